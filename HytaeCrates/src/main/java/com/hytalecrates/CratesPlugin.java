@@ -7,24 +7,43 @@ import com.hytalecrates.commands.CrateSetCommand;
 import com.hytalecrates.commands.CrateRemoveCommand;
 import com.hytalecrates.commands.CrateOpenCommand;
 import com.hytalecrates.config.ConfigManager;
+import com.hytalecrates.config.ConfigChanges;
+import com.hytalecrates.config.ConfigSet;
+import com.hytalecrates.config.ConfigWatcher;
+import com.hytalecrates.config.ReloadResult;
 import com.hytalecrates.crate.CrateManager;
+import com.hytalecrates.crate.CrateRegistrySnapshot;
 import com.hytalecrates.gui.GUIManager;
 import com.hytalecrates.key.KeyManager;
 import com.hytalecrates.listeners.CrateInteractListener;
 import com.hytalecrates.listeners.CrateUseBlockEcsSystem;
+import com.hytalecrates.mail.MailDelivery;
+import com.hytalecrates.mail.Mailbox;
 import com.hytalecrates.reward.RewardManager;
+import com.hytalecrates.storage.IoExecutor;
+import com.hytalecrates.storage.StorageLog;
 import com.hytalecrates.util.MessageUtil;
+import com.hytalecrates.util.PhaseTimer;
+import com.hypixel.hytale.component.Ref;
 import com.hypixel.hytale.event.EventPriority;
+import com.hypixel.hytale.server.core.entity.entities.Player;
 import com.hypixel.hytale.server.core.event.events.ecs.UseBlockEvent;
 import com.hypixel.hytale.server.core.event.events.player.AddPlayerToWorldEvent;
 import com.hypixel.hytale.server.core.event.events.player.DrainPlayerFromWorldEvent;
 import com.hypixel.hytale.server.core.event.events.player.PlayerInteractEvent;
 import com.hypixel.hytale.server.core.event.events.player.PlayerMouseButtonEvent;
+import com.hypixel.hytale.server.core.universe.PlayerRef;
+import com.hypixel.hytale.server.core.universe.world.World;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
 
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 
 /**
@@ -33,14 +52,19 @@ import java.util.logging.Level;
  */
 public class CratesPlugin extends JavaPlugin {
 
+    private static final int SHUTDOWN_WRITE_SECONDS = 10;
+
     private static CratesPlugin instance;
     
+    private IoExecutor ioExecutor;
     private ConfigManager configManager;
     private CrateManager crateManager;
     private KeyManager keyManager;
+    private Mailbox mailbox;
     private RewardManager rewardManager;
     private GUIManager guiManager;
-    private MessageUtil messageUtil;
+    private volatile MessageUtil messageUtil;
+    private ConfigWatcher configWatcher;
     private CrateInteractListener crateInteractListener;
     private final Set<String> worldListenerRegistered = new HashSet<>();
 
@@ -52,6 +76,7 @@ public class CratesPlugin extends JavaPlugin {
     @Override
     protected void setup() {
         getLogger().at(Level.INFO).log("Setting up HytaleCrates v1.0.0...");
+        PhaseTimer timer = new PhaseTimer();
         
         // Create data directory if needed
         try {
@@ -64,9 +89,11 @@ public class CratesPlugin extends JavaPlugin {
         }
         
         // Initialize managers
+        this.ioExecutor = new IoExecutor();
         this.configManager = new ConfigManager(this);
         this.crateManager = new CrateManager(this);
         this.keyManager = new KeyManager(this);
+        this.mailbox = new Mailbox(getStorageLog(), ioExecutor, keyManager, getDataDirectory().resolve("mailbox"));
         this.rewardManager = new RewardManager(this);
         this.guiManager = new GUIManager(this);
         this.crateInteractListener = new CrateInteractListener(this);
@@ -76,9 +103,23 @@ public class CratesPlugin extends JavaPlugin {
         
         // Initialize MessageUtil with prefix from config
         this.messageUtil = new MessageUtil(configManager.getMainConfig().getPrefix());
+        rewardManager.applySettings(configManager.getMainConfig().getSettings());
+        timer.mark("config");
         
         // Load crates
-        crateManager.loadCrates();
+        crateManager.loadCrates(timer);
+        if (configManager.getCompiledConfig() == null) {
+            // Cold start: compile a snapshot so the next start can skip JSON parsing
+            CompletableFuture.runAsync(this::writeCompiledConfig, ForkJoinPool.commonPool());
+        }
+
+        // Load virtual key balances and the key serial ledger
+        keyManager.loadBalances();
+        keyManager.loadSerialLedger();
+        int mailPlayers = mailbox.load();
+        getLogger().at(Level.INFO).log("Loaded mail for %d player(s)", mailPlayers);
+        timer.mark("balances");
+        updateConfigWatcher();
         
         // Register commands
         getCommandRegistry().registerCommand(new CrateCommand(this));
@@ -86,6 +127,7 @@ public class CratesPlugin extends JavaPlugin {
         getCommandRegistry().registerCommand(new CrateRemoveCommand(this));
         getCommandRegistry().registerCommand(new CrateOpenCommand(this));
         getLogger().at(Level.INFO).log("[SETUP] Commands registered (including /crateopen)");
+        timer.mark("commands");
 
         // Register plugin-global event listeners
         try {
@@ -121,8 +163,9 @@ public class CratesPlugin extends JavaPlugin {
         } catch (Throwable t) {
             getLogger().at(Level.SEVERE).withCause(t).log("[SETUP] FAILED to register world event handlers");
         }
+        timer.mark("listeners");
         
-        getLogger().at(Level.INFO).log("HytaleCrates setup complete!");
+        getLogger().at(Level.INFO).log("HytaleCrates setup complete! [%s]", timer.format());
     }
 
     private void ensureWorldListeners(AddPlayerToWorldEvent event) {
@@ -142,6 +185,10 @@ public class CratesPlugin extends JavaPlugin {
         
         if (worldName == null) return;
 
+        // Placements are loaded per world, on first entry, off the event thread
+        crateManager.loadWorldAsync(worldName);
+        deliverMail(event);
+
         if (worldListenerRegistered.contains(worldName)) {
             getLogger().at(Level.INFO).log("[EVENT] World '%s' already has listeners registered", worldName);
             return;
@@ -158,6 +205,37 @@ public class CratesPlugin extends JavaPlugin {
         }
     }
 
+    /**
+     * Delivers mail waiting for a player entering a world, on the world thread once the
+     * player is in it.
+     */
+    private void deliverMail(AddPlayerToWorldEvent event) {
+        PlayerRef playerRef = event.getHolder() != null ? event.getHolder().getComponent(PlayerRef.getComponentType()) : null;
+        if (playerRef == null || !mailbox.hasMail(playerRef.getUuid())) {
+            return;
+        }
+
+        try {
+            event.getWorld().execute(() -> {
+                Ref<EntityStore> ref = playerRef.getReference();
+                if (ref == null || !ref.isValid()) {
+                    return;
+                }
+                Player player = ref.getStore().getComponent(ref, Player.getComponentType());
+                MailDelivery delivery = mailbox.deliver(playerRef.getUuid(), player);
+                if (delivery.getDelivered() > 0) {
+                    player.sendMessage(MessageUtil.legacyToMessage("&aDelivered &e" + delivery.getDelivered()
+                            + " &akey(s)/item(s) from your mailbox."));
+                }
+                if (!delivery.getRemaining().isEmpty()) {
+                    player.sendMessage(MessageUtil.legacyToMessage("&eYou have more mail waiting. Make room and use &f/crate claim&e."));
+                }
+            });
+        } catch (Throwable t) {
+            getLogger().at(Level.WARNING).withCause(t).log("[EVENT] Failed to schedule mail delivery for %s", playerRef.getUsername());
+        }
+    }
+
     private void cleanupWorldListeners(DrainPlayerFromWorldEvent event) {
         // Best-effort cleanup: when a world drains/changes, allow re-registering.
         if (event == null || event.getWorld() == null) return;
@@ -165,6 +243,19 @@ public class CratesPlugin extends JavaPlugin {
         if (worldName != null) {
             worldListenerRegistered.remove(worldName);
         }
+
+        // Evict the world's placements once the draining player has actually left and no one
+        // else is in it; checked on the world thread, after the drain completes
+        World world = event.getWorld();
+        try {
+            world.execute(() -> {
+                if (worldName != null && world.getPlayerRefs().isEmpty()) {
+                    crateManager.unloadWorld(worldName);
+                }
+            });
+        } catch (Throwable t) {
+            getLogger().at(Level.WARNING).withCause(t).log("[EVENT] Failed to schedule unload of world '%s'", worldName);
+        }
     }
 
     @Override
@@ -178,29 +269,133 @@ public class CratesPlugin extends JavaPlugin {
         
         // Save data
         if (crateManager != null) {
-            crateManager.saveCrateLocations();
+            crateManager.close();
+            // Unless the live configuration is still the snapshot it was loaded from
+            if (configManager.getCompiledConfig() == null) {
+                writeCompiledConfig();
+            }
+        }
+        if (keyManager != null) {
+            keyManager.close();
         }
         
+        if (configWatcher != null) {
+            configWatcher.stop();
+        }
+
         // Clean up GUI sessions
         if (guiManager != null) {
             guiManager.closeAll();
         }
+
+        // Drain queued writes last, after everything above has queued its own
+        if (ioExecutor != null && !ioExecutor.shutdown(SHUTDOWN_WRITE_SECONDS, TimeUnit.SECONDS)) {
+            getLogger().at(Level.SEVERE).log("Pending file writes did not finish within %d seconds", SHUTDOWN_WRITE_SECONDS);
+        }
         
         getLogger().at(Level.INFO).log("HytaleCrates has been disabled.");
     }
 
     /**
      * Reloads all plugin configurations.
+     *
+     * <p>Staged so players never see a half-loaded plugin: every file is parsed and validated
+     * and every crate compiled into a new registry while the old one keeps serving; then the
+     * new configuration and registry are committed. If any file fails to parse or validate,
+     * nothing is committed and the previous configuration stays live.</p>
+     *
+     * @return The reload outcome
      */
-    public void reload() {
+    public synchronized ReloadResult reload() {
+        long start = System.nanoTime();
         getLogger().at(Level.INFO).log("Reloading HytaleCrates configurations...");
-        configManager.loadConfigs();
-        
+
+        // Stage 1: parse + validate
+        ConfigSet configs = configManager.readConfigs();
+        if (!configs.isValid()) {
+            getLogger().at(Level.WARNING).log("Reload rejected, keeping current configuration: %s",
+                    String.join("; ", configs.getErrors()));
+            return ReloadResult.rejected(configs.getErrors(), System.nanoTime() - start);
+        }
+
+        // Stage 2: compile crates, keys and item ids into a registry that is not yet live
+        CrateRegistrySnapshot prepared = crateManager.prepare(configs.getCrateConfigs(), configs.getMainConfig().getSettings());
+
+        // Stage 3: commit
+        configManager.applyConfigs(configs);
+        CrateRegistrySnapshot live = crateManager.commit(prepared);
+
         // Reinitialize MessageUtil with potentially updated prefix
-        this.messageUtil = new MessageUtil(configManager.getMainConfig().getPrefix());
-        
-        crateManager.loadCrates();
+        this.messageUtil = new MessageUtil(configs.getMainConfig().getPrefix());
+        rewardManager.applySettings(configs.getMainConfig().getSettings());
+
+        updateConfigWatcher();
+
         getLogger().at(Level.INFO).log("HytaleCrates configurations reloaded successfully!");
+        return ReloadResult.committed(live.getCrates().size(), live.getTotalLocations(), System.nanoTime() - start);
+    }
+
+    /**
+     * Reloads only the given config files, used by the config watcher.
+     * Files whose contents are unchanged are skipped; only crates whose files changed are
+     * recompiled and swapped, with their keys and placements.
+     *
+     * @param paths Paths reported as created, modified or deleted
+     */
+    public synchronized void reloadChanged(Collection<Path> paths) {
+        long start = System.nanoTime();
+        ConfigChanges changes = configManager.readChanges(paths);
+        for (String error : changes.getErrors()) {
+            getLogger().at(Level.WARNING).log("Skipped config change: %s", error);
+        }
+        if (changes.isEmpty()) {
+            return;
+        }
+
+        CrateRegistrySnapshot prepared = crateManager.prepare(changes.getChangedCrates());
+        configManager.applyChanges(changes);
+        crateManager.commitChanges(prepared, changes.getRemovedCrateIds());
+
+        if (changes.getMainConfig() != null) {
+            this.messageUtil = new MessageUtil(changes.getMainConfig().getPrefix());
+            rewardManager.applySettings(changes.getMainConfig().getSettings());
+            updateConfigWatcher();
+        }
+
+        getLogger().at(Level.INFO).log("Incremental reload: %d crate(s) updated, %d removed%s in %.1f ms",
+                changes.getChangedCrates().size(), changes.getRemovedCrateIds().size(),
+                changes.getMainConfig() != null ? ", config.json applied" : "",
+                (System.nanoTime() - start) / 1_000_000.0);
+    }
+
+    /**
+     * Writes the compiled config snapshot from the live configuration and registry.
+     */
+    private void writeCompiledConfig() {
+        configManager.writeCompiledConfig(crateManager.getSnapshot());
+    }
+
+    /**
+     * Starts, restarts or stops the config watcher to match the current settings.
+     */
+    private synchronized void updateConfigWatcher() {
+        var settings = configManager.getMainConfig().getSettings();
+        if (configWatcher != null && (!settings.isWatchConfigFiles()
+                || configWatcher.getDebounceMillis() != settings.getWatchDebounceMillis())) {
+            configWatcher.stop();
+            configWatcher = null;
+        }
+        if (configWatcher == null && settings.isWatchConfigFiles()) {
+            configWatcher = new ConfigWatcher(this, settings.getWatchDebounceMillis());
+            configWatcher.start();
+        }
+    }
+
+    /**
+     * Runs {@link #reload()} off the calling thread.
+     */
+    public CompletableFuture<ReloadResult> reloadAsync() {
+        return CompletableFuture.supplyAsync(this::reload, ForkJoinPool.commonPool());
     }
 
     // Static accessor
@@ -209,6 +404,23 @@ public class CratesPlugin extends JavaPlugin {
     }
 
     // Getters for managers
+    public IoExecutor getIoExecutor() {
+        return ioExecutor;
+    }
+
+    /**
+     * Gets a log for the storage classes, backed by the plugin logger.
+     */
+    public StorageLog getStorageLog() {
+        return (level, cause, format, args) -> {
+            var api = getLogger().at(level);
+            if (cause != null) {
+                api = api.withCause(cause);
+            }
+            api.log(String.format(format, args));
+        };
+    }
+
     public ConfigManager getConfigManager() {
         return configManager;
     }
@@ -221,6 +433,10 @@ public class CratesPlugin extends JavaPlugin {
         return keyManager;
     }
 
+    public Mailbox getMailbox() {
+        return mailbox;
+    }
+
     public RewardManager getRewardManager() {
         return rewardManager;
     }
@@ -5,10 +5,16 @@ import com.hytalecrates.config.CrateConfig;
 import com.hytalecrates.config.ItemConfig;
 import com.hytalecrates.config.RewardConfig;
 import com.hytalecrates.crate.Crate;
+import com.hytalecrates.reward.Rarity;
+import com.hytalecrates.reward.SimulationResult;
+import com.hytalecrates.util.MessageUtil;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Level;
 
 /**
@@ -127,31 +133,19 @@ public class CrateAdminCommand {
     public boolean addReward(String crateId, String material, int amount, String displayName,
                              String rarity, int weight) {
 
-        var crateOpt = plugin.getCrateManager().getCrate(crateId);
-        if (crateOpt.isEmpty()) {
-            return false;
-        }
-
-        Crate crate = crateOpt.get();
-        CrateConfig config = crate.getConfig();
-
-        // Create new reward
-        RewardConfig reward = new RewardConfig();
-        reward.setItem(new ItemConfig(material, amount, displayName));
-        reward.setRarity(rarity.toUpperCase());
-        reward.setWeight(weight);
-        reward.setChance(calculateChance(weight, config));
-
-        // Add to config
-        List<RewardConfig> rewards = new ArrayList<>(config.getRewards());
-        rewards.add(reward);
-        config.setRewards(rewards);
-
-        // Save and reload
-        plugin.getConfigManager().saveCrateConfig(config);
-        plugin.getCrateManager().reload();
-
-        return true;
+        return plugin.getCrateManager().updateCrate(crateId, config -> {
+            // Create new reward
+            RewardConfig reward = new RewardConfig();
+            reward.setItem(new ItemConfig(material, amount, displayName));
+            reward.setRarity(rarity.toUpperCase());
+            reward.setWeight(weight);
+            reward.setChance(calculateChance(weight, config));
+
+            List<RewardConfig> rewards = new ArrayList<>(config.getRewards());
+            rewards.add(reward);
+            config.setRewards(rewards);
+            return true;
+        }).isPresent();
     }
 
     /**
@@ -162,27 +156,15 @@ public class CrateAdminCommand {
      * @return true if successful
      */
     public boolean removeReward(String crateId, int rewardIndex) {
-        var crateOpt = plugin.getCrateManager().getCrate(crateId);
-        if (crateOpt.isEmpty()) {
-            return false;
-        }
-
-        Crate crate = crateOpt.get();
-        CrateConfig config = crate.getConfig();
-
-        List<RewardConfig> rewards = new ArrayList<>(config.getRewards());
-        if (rewardIndex < 0 || rewardIndex >= rewards.size()) {
-            return false;
-        }
-
-        rewards.remove(rewardIndex);
-        config.setRewards(rewards);
-
-        // Save and reload
-        plugin.getConfigManager().saveCrateConfig(config);
-        plugin.getCrateManager().reload();
-
-        return true;
+        return plugin.getCrateManager().updateCrate(crateId, config -> {
+            List<RewardConfig> rewards = new ArrayList<>(config.getRewards());
+            if (rewardIndex < 0 || rewardIndex >= rewards.size()) {
+                return false;
+            }
+            rewards.remove(rewardIndex);
+            config.setRewards(rewards);
+            return true;
+        }).isPresent();
     }
 
     /**
@@ -193,18 +175,10 @@ public class CrateAdminCommand {
      * @return true if successful
      */
     public boolean updateCrateDisplayName(String crateId, String newDisplayName) {
-        var crateOpt = plugin.getCrateManager().getCrate(crateId);
-        if (crateOpt.isEmpty()) {
-            return false;
-        }
-
-        CrateConfig config = crateOpt.get().getConfig();
-        config.setDisplayName(newDisplayName);
-
-        plugin.getConfigManager().saveCrateConfig(config);
-        plugin.getCrateManager().reload();
-
-        return true;
+        return plugin.getCrateManager().updateCrate(crateId, config -> {
+            config.setDisplayName(newDisplayName);
+            return true;
+        }).isPresent();
     }
 
     /**
@@ -216,49 +190,66 @@ public class CrateAdminCommand {
      * @return true if successful
      */
     public boolean updateKeyItem(String crateId, String material, String displayName) {
-        var crateOpt = plugin.getCrateManager().getCrate(crateId);
-        if (crateOpt.isEmpty()) {
-            return false;
-        }
-
-        CrateConfig config = crateOpt.get().getConfig();
-        ItemConfig keyItem = config.getKeyItem();
-        keyItem.setMaterial(material);
-        keyItem.setDisplayName(displayName);
-
-        plugin.getConfigManager().saveCrateConfig(config);
-        plugin.getCrateManager().reload();
-
-        return true;
+        return plugin.getCrateManager().updateCrate(crateId, config -> {
+            ItemConfig keyItem = config.getKeyItem() != null ? config.getKeyItem() : new ItemConfig();
+            keyItem.setMaterial(material);
+            keyItem.setDisplayName(displayName);
+            config.setKeyItem(keyItem);
+            return true;
+        }).isPresent();
     }
 
     /**
      * Runs a simulation of crate openings and displays results.
+     * The simulation runs in parallel off the calling thread; results are reported on completion.
      *
      * @param senderUuid The sender's UUID
      * @param crateId The crate ID
      * @param iterations Number of simulations
+     * @return A future that completes with the simulation result, or null if the crate is unknown
      */
-    public void runSimulation(UUID senderUuid, String crateId, int iterations) {
+    public CompletableFuture<SimulationResult> runSimulation(UUID senderUuid, String crateId, long iterations) {
         var crateOpt = plugin.getCrateManager().getCrate(crateId);
         if (crateOpt.isEmpty()) {
             sendMessage(senderUuid, plugin.getMessageUtil().crateNotFound(crateId));
-            return;
+            return CompletableFuture.completedFuture(null);
         }
 
         Crate crate = crateOpt.get();
-        var results = plugin.getRewardManager().simulateOpens(crate, iterations);
+        return plugin.getRewardManager().simulateAsync(crate, iterations)
+                .whenComplete((result, error) -> {
+                    if (error != null) {
+                        plugin.getLogger().at(Level.SEVERE).withCause(error).log("Simulation failed for crate %s", crateId);
+                        return;
+                    }
+                    reportSimulation(senderUuid, result);
+                });
+    }
 
-        sendMessage(senderUuid, plugin.getMessageUtil().format("&6=== Simulation Results (" + iterations + " opens) ==="));
+    private void reportSimulation(UUID senderUuid, SimulationResult result) {
+        MessageUtil messages = plugin.getMessageUtil();
+        sendMessage(senderUuid, messages.format("&6=== Simulation Results (" + result.getIterations() + " opens) ==="));
 
-        results.entrySet().stream()
-                .sorted((a, b) -> b.getValue().compareTo(a.getValue()))
-                .forEach(entry -> {
-                    double percentage = (entry.getValue() / (double) iterations) * 100;
-                    sendMessage(senderUuid, plugin.getMessageUtil().format(
-                            String.format("&7%s: &e%d &8(%.2f%%)", entry.getKey(), entry.getValue(), percentage)
-                    ));
-                });
+        Integer[] order = new Integer[result.getRewardCount()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(result.getCount(b), result.getCount(a)));
+
+        for (int i : order) {
+            sendMessage(senderUuid, messages.format(String.format("&7%s: &e%d &8(%.2f%%)",
+                    result.getReward(i).getItem().getDisplayName(), result.getCount(i), result.getPercentage(i))));
+        }
+
+        sendMessage(senderUuid, messages.format("&6--- By Rarity ---"));
+        for (Map.Entry<Rarity, Long> entry : result.getRarityCounts().entrySet()) {
+            double percentage = (entry.getValue() / (double) result.getIterations()) * 100;
+            sendMessage(senderUuid, messages.format(String.format("%s%s: &e%d &8(%.2f%%)",
+                    entry.getKey().getColorCode(), entry.getKey().name(), entry.getValue(), percentage)));
+        }
+
+        sendMessage(senderUuid, messages.format(String.format("&7Took &e%.1f ms &7across &e%d &7shards (&e%,.0f &7opens/sec)",
+                result.getElapsedNanos() / 1_000_000.0, result.getShards(), result.getOpensPerSecond())));
     }
 
     /**
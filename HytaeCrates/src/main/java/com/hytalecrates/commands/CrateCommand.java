@@ -3,6 +3,16 @@ package com.hytalecrates.commands;
 import com.hytalecrates.CratesPlugin;
 import com.hytalecrates.crate.Crate;
 import com.hytalecrates.crate.CrateLocation;
+import com.hytalecrates.crate.CrateManager;
+import com.hytalecrates.crate.PlacementSet;
+import com.hytalecrates.key.CrateKey;
+import com.hytalecrates.key.KeyBalances;
+import com.hytalecrates.key.KeyManager;
+import com.hytalecrates.mail.MailDelivery;
+import com.hytalecrates.mail.MailItem;
+import com.hytalecrates.reward.OddsCalculator;
+import com.hytalecrates.reward.OddsReport;
+import com.hytalecrates.storage.IoExecutor;
 import com.hytalecrates.util.MessageUtil;
 
 import com.hypixel.hytale.server.core.Message;
@@ -13,11 +23,15 @@ import com.hypixel.hytale.server.core.command.system.arguments.types.StringArgum
 import com.hypixel.hytale.server.core.command.system.basecommands.AbstractTargetPlayerCommand;
 import com.hypixel.hytale.component.Ref;
 import com.hypixel.hytale.component.Store;
+import com.hypixel.hytale.server.core.entity.entities.Player;
 import com.hypixel.hytale.server.core.universe.PlayerRef;
 import com.hypixel.hytale.server.core.universe.world.World;
 import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 
 /**
@@ -39,11 +53,19 @@ public class CrateCommand extends AbstractCommand {
         addSubCommand(new ListSubCommand(plugin));
         addSubCommand(new PreviewSubCommand(plugin));
         addSubCommand(new InfoSubCommand(plugin));
+        addSubCommand(new OddsSubCommand(plugin));
+        addSubCommand(new LocationsSubCommand(plugin));
         addSubCommand(new SetSubCommand(plugin));
         addSubCommand(new RemoveSubCommand(plugin));
         addSubCommand(new GiveSubCommand(plugin));
+        addSubCommand(new GiveAllSubCommand(plugin));
+        addSubCommand(new BalanceSubCommand(plugin));
+        addSubCommand(new DepositSubCommand(plugin));
+        addSubCommand(new WithdrawSubCommand(plugin));
+        addSubCommand(new ClaimSubCommand(plugin));
         addSubCommand(new ItemIdsSubCommand());
         addSubCommand(new ReloadSubCommand(plugin));
+        addSubCommand(new StatsSubCommand(plugin));
         addSubCommand(new HelpSubCommand(plugin));
     }
 
@@ -59,13 +81,21 @@ public class CrateCommand extends AbstractCommand {
         ctx.sendMessage(Message.raw("/crate list - List all crates"));
         ctx.sendMessage(Message.raw("/crate preview <name> - Preview crate rewards"));
         ctx.sendMessage(Message.raw("/crate info <name> - Show crate details"));
+        ctx.sendMessage(Message.raw("/crate balance - Show your virtual keys"));
+        ctx.sendMessage(Message.raw("/crate withdraw --key=<key> [--amount=<n>] - Turn virtual keys into key items"));
+        ctx.sendMessage(Message.raw("/crate claim - Collect keys and rewards from your mailbox"));
 
         if (isAdmin) {
             ctx.sendMessage(Message.raw("--- Admin Commands ---"));
             ctx.sendMessage(Message.raw("/crateset --crate=<name> - Set target block as crate (EASY!)"));
             ctx.sendMessage(Message.raw("/crateremove - Remove crate from target block"));
+            ctx.sendMessage(Message.raw("/crate odds --crate=<name> [--opens=<n>] - Exact odds report"));
+            ctx.sendMessage(Message.raw("/crate locations --crate=<name> [--page=<n>] - List crate placements"));
             ctx.sendMessage(Message.raw("/crate give --player=<name> --key=<key> - Give keys"));
+            ctx.sendMessage(Message.raw("/crate giveall --key=<key> [--amount=<n>] - Give keys to everyone online"));
+            ctx.sendMessage(Message.raw("/crate deposit --player=<name> --key=<key> [--amount=<n>] - Give virtual keys"));
             ctx.sendMessage(Message.raw("/crate reload - Reload configs"));
+            ctx.sendMessage(Message.raw("/crate stats - Show storage statistics"));
         }
     }
 
@@ -186,6 +216,145 @@ public class CrateCommand extends AbstractCommand {
         }
     }
 
+    /**
+     * /crate odds <name> [opens] - Shows exact odds computed from the reward weights.
+     */
+    private static class OddsSubCommand extends AbstractCommand {
+        private final CratesPlugin plugin;
+        private final OptionalArg<String> crateArg;
+        private final OptionalArg<String> opensArg;
+
+        OddsSubCommand(CratesPlugin plugin) {
+            super("odds", "Show exact crate odds and expected values");
+            this.plugin = plugin;
+            requirePermission("crates.admin");
+            this.crateArg = withOptionalArg("crate", "The crate to analyse", StringArgumentType.word());
+            this.opensArg = withOptionalArg("opens", "Opens to compute intervals for (default 100)", StringArgumentType.word());
+        }
+
+        @Override
+        protected CompletableFuture<Void> execute(CommandContext ctx) {
+            if (!ctx.provided(crateArg)) {
+                ctx.sendMessage(Message.raw("Usage: /crate odds --crate=<name> [--opens=<n>]"));
+                return CompletableFuture.completedFuture(null);
+            }
+
+            String crateId = ctx.get(crateArg).toLowerCase();
+            var crateOpt = plugin.getCrateManager().getCrate(crateId);
+            if (crateOpt.isEmpty()) {
+                ctx.sendMessage(Message.raw("Crate not found: " + crateId));
+                return CompletableFuture.completedFuture(null);
+            }
+
+            long opens = 100;
+            if (ctx.provided(opensArg)) {
+                try {
+                    opens = Long.parseLong(ctx.get(opensArg));
+                } catch (NumberFormatException e) {
+                    ctx.sendMessage(Message.raw("Invalid opens: " + ctx.get(opensArg)));
+                    return CompletableFuture.completedFuture(null);
+                }
+                if (opens < 1) opens = 1;
+            }
+
+            OddsReport report = OddsCalculator.calculate(crateOpt.get(), opens);
+
+            ctx.sendMessage(MessageUtil.legacyToMessage("&6=== Odds: " + crateOpt.get().getDisplayName()
+                    + " &6(" + report.getOpens() + " opens) ==="));
+            for (OddsReport.Entry entry : report.getRewards()) {
+                ctx.sendMessage(MessageUtil.legacyToMessage(entry.getRarity().getColorCode() + entry.getLabel()
+                        + formatEntry(entry)));
+            }
+
+            ctx.sendMessage(MessageUtil.legacyToMessage("&6--- By Rarity ---"));
+            for (OddsReport.Entry entry : report.getRarities().values()) {
+                ctx.sendMessage(MessageUtil.legacyToMessage(entry.getRarity().getColorCode() + entry.getLabel()
+                        + formatEntry(entry)));
+            }
+
+            var mismatches = report.getChanceMismatches();
+            if (!mismatches.isEmpty()) {
+                ctx.sendMessage(MessageUtil.legacyToMessage("&c" + mismatches.size() + " reward(s) have a configured chance that disagrees with their weight:"));
+                for (OddsReport.Entry entry : mismatches) {
+                    ctx.sendMessage(MessageUtil.legacyToMessage(String.format("&c- %s: configured %.2f%%, actual %.4f%%",
+                            entry.getLabel(), entry.getConfiguredChance(), entry.getChance())));
+                }
+            }
+            return CompletableFuture.completedFuture(null);
+        }
+
+        private static String formatEntry(OddsReport.Entry entry) {
+            return String.format(" &7%s &8| &7~%.1f keys/hit &8| &7%d-%d hits (95%%) &8| &7%.1f%% for 1+",
+                    MessageUtil.formatChance(entry.getChance()),
+                    entry.getExpectedKeys(),
+                    entry.getIntervalLow(),
+                    entry.getIntervalHigh(),
+                    entry.getChanceOfAtLeastOne() * 100);
+        }
+    }
+
+    /**
+     * /crate locations <name> [page] - Pages through a crate's placements in loaded worlds.
+     */
+    private static class LocationsSubCommand extends AbstractCommand {
+        private static final int PAGE_SIZE = 10;
+
+        private final CratesPlugin plugin;
+        private final OptionalArg<String> crateArg;
+        private final OptionalArg<String> pageArg;
+
+        LocationsSubCommand(CratesPlugin plugin) {
+            super("locations", "List where a crate is placed");
+            this.plugin = plugin;
+            requirePermission("crates.admin");
+            this.crateArg = withOptionalArg("crate", "The crate to list", StringArgumentType.word());
+            this.pageArg = withOptionalArg("page", "Page number (default 1)", StringArgumentType.word());
+        }
+
+        @Override
+        protected CompletableFuture<Void> execute(CommandContext ctx) {
+            if (!ctx.provided(crateArg)) {
+                ctx.sendMessage(Message.raw("Usage: /crate locations --crate=<name> [--page=<n>]"));
+                return CompletableFuture.completedFuture(null);
+            }
+
+            String crateId = ctx.get(crateArg).toLowerCase();
+            var crateOpt = plugin.getCrateManager().getCrate(crateId);
+            if (crateOpt.isEmpty()) {
+                ctx.sendMessage(Message.raw("Crate not found: " + crateId));
+                return CompletableFuture.completedFuture(null);
+            }
+
+            int page = 1;
+            if (ctx.provided(pageArg)) {
+                try {
+                    page = Integer.parseInt(ctx.get(pageArg));
+                } catch (NumberFormatException e) {
+                    ctx.sendMessage(Message.raw("Invalid page: " + ctx.get(pageArg)));
+                    return CompletableFuture.completedFuture(null);
+                }
+            }
+
+            PlacementSet locations = plugin.getCrateManager().getLocations(crateId);
+            if (locations.isEmpty()) {
+                ctx.sendMessage(MessageUtil.legacyToMessage(crateOpt.get().getDisplayName() + " &7is not placed in any loaded world."));
+                return CompletableFuture.completedFuture(null);
+            }
+
+            int pages = (locations.size() + PAGE_SIZE - 1) / PAGE_SIZE;
+            page = Math.max(1, Math.min(page, pages));
+            ctx.sendMessage(MessageUtil.legacyToMessage("&6=== Locations: " + crateOpt.get().getDisplayName()
+                    + " &6(page " + page + "/" + pages + ", " + locations.size() + " total) ==="));
+            for (CrateLocation location : locations.page((page - 1) * PAGE_SIZE, PAGE_SIZE)) {
+                ctx.sendMessage(Message.raw("- " + location.toDisplayString()));
+            }
+            if (page < pages) {
+                ctx.sendMessage(Message.raw("Next: /crate locations --crate=" + crateId + " --page=" + (page + 1)));
+            }
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
     /**
      * /crate set <name> <world> <x> <y> <z> - Sets a block as a crate location.
      */
@@ -345,17 +514,258 @@ public class CrateCommand extends AbstractCommand {
                 return;
             }
 
-            // Give the key
-            boolean success = plugin.getKeyManager().giveKey(store, targetEntityRef, keyId, amount);
+            // Give the key; whatever does not fit goes to the player's mailbox
+            int mailed = plugin.getKeyManager().giveKeyOrMail(store, targetEntityRef, keyId, amount);
 
-            if (success) {
+            if (mailed >= 0) {
                 String targetName = targetPlayerRef != null ? targetPlayerRef.getUsername() : "player";
                 ctx.sendMessage(MessageUtil.legacyToMessage(
                         "&aGave &e" + amount + "x " + keyOpt.get().getDisplayName() + " &ato &e" + targetName
                 ));
+                if (mailed > 0) {
+                    ctx.sendMessage(MessageUtil.legacyToMessage("&7" + mailed + " did not fit and were sent to their mailbox."));
+                }
             } else {
-                ctx.sendMessage(MessageUtil.legacyToMessage("&cFailed to give keys (insufficient inventory space?)"));
+                ctx.sendMessage(MessageUtil.legacyToMessage("&cFailed to give keys."));
+            }
+        }
+    }
+
+    /**
+     * /crate giveall <key> [amount] - Gives keys to every online player, world by world.
+     */
+    private static class GiveAllSubCommand extends AbstractCommand {
+        private final CratesPlugin plugin;
+        private final OptionalArg<String> keyArg;
+        private final OptionalArg<String> amountArg;
+
+        GiveAllSubCommand(CratesPlugin plugin) {
+            super("giveall", "Give keys to every online player");
+            this.plugin = plugin;
+            requirePermission("crates.admin");
+            this.keyArg = withOptionalArg("key", "Key type", StringArgumentType.word());
+            this.amountArg = withOptionalArg("amount", "Amount of keys per player", StringArgumentType.word());
+        }
+
+        @Override
+        protected CompletableFuture<Void> execute(CommandContext ctx) {
+            if (!ctx.provided(keyArg)) {
+                ctx.sendMessage(Message.raw("Usage: /crate giveall --key=<key> [--amount=<amount>]"));
+                return CompletableFuture.completedFuture(null);
+            }
+
+            String keyId = ctx.get(keyArg).toLowerCase();
+            var keyOpt = plugin.getKeyManager().getKey(keyId);
+            if (keyOpt.isEmpty()) {
+                ctx.sendMessage(Message.raw("Key not found: " + keyId));
+                return CompletableFuture.completedFuture(null);
+            }
+            int amount = parseAmount(ctx, amountArg, 64);
+            if (amount < 1) {
+                return CompletableFuture.completedFuture(null);
+            }
+
+            String keyName = keyOpt.get().getDisplayName();
+            ctx.sendMessage(MessageUtil.legacyToMessage("&7Giving &e" + amount + "x " + keyName + " &7to everyone online..."));
+            plugin.getKeyManager().giveKeyToAll(keyOpt.get(), amount, (worldName, players) ->
+                    ctx.sendMessage(MessageUtil.legacyToMessage("&7- &f" + worldName + "&7: " + players + " player(s) done"))
+            ).thenAccept(result -> ctx.sendMessage(MessageUtil.legacyToMessage(String.format(
+                    "&aGave &e%dx %s &ato &e%d &aplayer(s) in %d world(s) &7(%d as items, %d partly to virtual keys, %d left; %.1f ms)",
+                    amount, keyName, result.getGiven() + result.getBanked(), result.getWorlds(),
+                    result.getGiven(), result.getBanked(), result.getSkipped(), result.getElapsedNanos() / 1_000_000.0))));
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    /**
+     * /crate balance [player] - Shows a player's virtual keys.
+     */
+    private static class BalanceSubCommand extends AbstractTargetPlayerCommand {
+        private final CratesPlugin plugin;
+
+        BalanceSubCommand(CratesPlugin plugin) {
+            super("balance", "Show virtual key balances");
+            this.plugin = plugin;
+            requirePermission("crates.use");
+        }
+
+        @Override
+        protected void execute(CommandContext ctx,
+                               Ref<EntityStore> senderRef,
+                               Ref<EntityStore> targetEntityRef,
+                               PlayerRef targetPlayerRef,
+                               World world,
+                               Store<EntityStore> store) {
+            if (!isSelfOrAdmin(ctx, targetPlayerRef)) {
+                ctx.sendMessage(MessageUtil.legacyToMessage("&cYou can only view your own virtual keys."));
+                return;
+            }
+
+            Map<String, Integer> balances = plugin.getKeyManager().getBalances().getAll(targetPlayerRef.getUuid());
+            ctx.sendMessage(MessageUtil.legacyToMessage("&6=== Virtual Keys: " + targetPlayerRef.getUsername() + " ==="));
+            if (balances.isEmpty()) {
+                ctx.sendMessage(MessageUtil.legacyToMessage("&7No virtual keys."));
+                return;
+            }
+            for (Map.Entry<String, Integer> entry : balances.entrySet()) {
+                String name = plugin.getKeyManager().getKey(entry.getKey())
+                        .map(CrateKey::getDisplayName)
+                        .orElse(entry.getKey());
+                ctx.sendMessage(MessageUtil.legacyToMessage("&7- &f" + name + "&7: &e" + entry.getValue()));
+            }
+        }
+    }
+
+    /**
+     * /crate deposit <player> <key> [amount] - Adds virtual keys to a player's balance.
+     */
+    private static class DepositSubCommand extends AbstractTargetPlayerCommand {
+        private static final int MAX_AMOUNT = 1_000_000;
+
+        private final CratesPlugin plugin;
+        private final OptionalArg<String> keyArg;
+        private final OptionalArg<String> amountArg;
+
+        DepositSubCommand(CratesPlugin plugin) {
+            super("deposit", "Give virtual keys to a player");
+            this.plugin = plugin;
+            requirePermission("crates.admin");
+            this.keyArg = withOptionalArg("key", "Key type", StringArgumentType.word());
+            this.amountArg = withOptionalArg("amount", "Amount of keys", StringArgumentType.word());
+        }
+
+        @Override
+        protected void execute(CommandContext ctx,
+                               Ref<EntityStore> senderRef,
+                               Ref<EntityStore> targetEntityRef,
+                               PlayerRef targetPlayerRef,
+                               World world,
+                               Store<EntityStore> store) {
+            if (!ctx.provided(keyArg)) {
+                ctx.sendMessage(Message.raw("Usage: /crate deposit --player=<name> --key=<key> [--amount=<amount>]"));
+                return;
+            }
+
+            String keyId = ctx.get(keyArg).toLowerCase();
+            var keyOpt = plugin.getKeyManager().getKey(keyId);
+            if (keyOpt.isEmpty()) {
+                ctx.sendMessage(Message.raw("Key not found: " + keyId));
+                return;
+            }
+
+            int amount = parseAmount(ctx, amountArg, MAX_AMOUNT);
+            if (amount < 1) {
+                return;
+            }
+
+            int balance;
+            try {
+                balance = plugin.getKeyManager().getBalances().deposit(targetPlayerRef.getUuid(), keyId, amount);
+            } catch (ArithmeticException e) {
+                ctx.sendMessage(MessageUtil.legacyToMessage("&cThat would overflow the player's balance."));
+                return;
+            }
+            ctx.sendMessage(MessageUtil.legacyToMessage("&aDeposited &e" + amount + "x " + keyOpt.get().getDisplayName()
+                    + " &ato &e" + targetPlayerRef.getUsername() + " &7(balance: " + balance + ")"));
+        }
+    }
+
+    /**
+     * /crate withdraw <key> [amount] - Turns virtual keys into key items in the inventory.
+     */
+    private static class WithdrawSubCommand extends AbstractTargetPlayerCommand {
+        private final CratesPlugin plugin;
+        private final OptionalArg<String> keyArg;
+        private final OptionalArg<String> amountArg;
+
+        WithdrawSubCommand(CratesPlugin plugin) {
+            super("withdraw", "Turn virtual keys into key items");
+            this.plugin = plugin;
+            requirePermission("crates.use");
+            this.keyArg = withOptionalArg("key", "Key type", StringArgumentType.word());
+            this.amountArg = withOptionalArg("amount", "Amount of keys", StringArgumentType.word());
+        }
+
+        @Override
+        protected void execute(CommandContext ctx,
+                               Ref<EntityStore> senderRef,
+                               Ref<EntityStore> targetEntityRef,
+                               PlayerRef targetPlayerRef,
+                               World world,
+                               Store<EntityStore> store) {
+            if (!ctx.provided(keyArg)) {
+                ctx.sendMessage(Message.raw("Usage: /crate withdraw --key=<key> [--amount=<amount>]"));
+                return;
+            }
+            if (!isSelfOrAdmin(ctx, targetPlayerRef)) {
+                ctx.sendMessage(MessageUtil.legacyToMessage("&cYou can only withdraw your own virtual keys."));
+                return;
+            }
+
+            String keyId = ctx.get(keyArg).toLowerCase();
+            var keyOpt = plugin.getKeyManager().getKey(keyId);
+            if (keyOpt.isEmpty()) {
+                ctx.sendMessage(Message.raw("Key not found: " + keyId));
+                return;
+            }
+
+            // Key items are given one stack at a time
+            int amount = parseAmount(ctx, amountArg, 64);
+            if (amount < 1) {
+                return;
             }
+
+            KeyBalances balances = plugin.getKeyManager().getBalances();
+            UUID playerId = targetPlayerRef.getUuid();
+            if (!balances.withdraw(playerId, keyId, amount)) {
+                ctx.sendMessage(MessageUtil.legacyToMessage("&cNot enough virtual keys &7(balance: "
+                        + balances.get(playerId, keyId) + ")"));
+                return;
+            }
+            Player player = store.getComponent(targetEntityRef, Player.getComponentType());
+            if (player == null) {
+                balances.deposit(playerId, keyId, amount);
+                ctx.sendMessage(MessageUtil.legacyToMessage("&cCould not find that player; the virtual keys were kept."));
+                return;
+            }
+            // Keys that fit stay in the inventory, so only the rest goes back to the balance
+            KeyManager keyManager = plugin.getKeyManager();
+            int left = keyManager.giveKeyItem(player, keyManager.createKeyItem(keyOpt.get(), amount));
+            if (left > 0) {
+                balances.deposit(playerId, keyId, left);
+            }
+            int withdrawn = amount - left;
+            if (withdrawn == 0) {
+                ctx.sendMessage(MessageUtil.legacyToMessage("&cNot enough inventory space; the virtual keys were kept."));
+                return;
+            }
+            ctx.sendMessage(MessageUtil.legacyToMessage("&aWithdrew &e" + withdrawn + "x " + keyOpt.get().getDisplayName()
+                    + (left > 0 ? " &c(" + left + " did not fit and were kept)" : "")
+                    + " &7(balance: " + balances.get(playerId, keyId) + ")"));
+        }
+    }
+
+    /**
+     * Checks that a command targets the sender, unless the sender is an admin.
+     */
+    private static boolean isSelfOrAdmin(CommandContext ctx, PlayerRef target) {
+        return ctx.sender().hasPermission("crates.admin") || target.getUuid().equals(ctx.sender().getUuid());
+    }
+
+    /**
+     * Parses an optional amount argument, defaulting to 1 and clamped to [1, max].
+     *
+     * @return The amount, or 0 after reporting an invalid one
+     */
+    private static int parseAmount(CommandContext ctx, OptionalArg<String> amountArg, int max) {
+        if (!ctx.provided(amountArg)) {
+            return 1;
+        }
+        try {
+            return Math.max(1, Math.min(max, Integer.parseInt(ctx.get(amountArg))));
+        } catch (NumberFormatException e) {
+            ctx.sendMessage(Message.raw("Invalid amount: " + ctx.get(amountArg)));
+            return 0;
         }
     }
 
@@ -373,8 +783,102 @@ public class CrateCommand extends AbstractCommand {
 
         @Override
         protected CompletableFuture<Void> execute(CommandContext ctx) {
-            plugin.reload();
-            ctx.sendMessage(MessageUtil.legacyToMessage("&aHytaleCrates configurations reloaded!"));
+            ctx.sendMessage(MessageUtil.legacyToMessage("&7Reloading HytaleCrates configurations..."));
+            return plugin.reloadAsync().thenAccept(result -> {
+                if (result.isSuccess()) {
+                    ctx.sendMessage(MessageUtil.legacyToMessage(String.format(
+                            "&aHytaleCrates configurations reloaded! &7(%d crate(s), %d location(s), %.1f ms)",
+                            result.getCrateCount(), result.getLocationCount(), result.getElapsedNanos() / 1_000_000.0)));
+                    return;
+                }
+                ctx.sendMessage(MessageUtil.legacyToMessage("&cReload failed; the previous configuration is still active:"));
+                for (String error : result.getErrors()) {
+                    ctx.sendMessage(MessageUtil.legacyToMessage("&7- &f" + error));
+                }
+            });
+        }
+    }
+
+    /**
+     * /crate claim [player] - Delivers a player's mailbox and lists whatever did not fit.
+     */
+    private static class ClaimSubCommand extends AbstractTargetPlayerCommand {
+        private final CratesPlugin plugin;
+
+        ClaimSubCommand(CratesPlugin plugin) {
+            super("claim", "Collect keys and rewards from your mailbox");
+            this.plugin = plugin;
+            requirePermission("crates.use");
+        }
+
+        @Override
+        protected void execute(CommandContext ctx,
+                               Ref<EntityStore> senderRef,
+                               Ref<EntityStore> targetEntityRef,
+                               PlayerRef targetPlayerRef,
+                               World world,
+                               Store<EntityStore> store) {
+            if (!isSelfOrAdmin(ctx, targetPlayerRef)) {
+                ctx.sendMessage(MessageUtil.legacyToMessage("&cYou can only claim your own mailbox."));
+                return;
+            }
+
+            UUID playerId = targetPlayerRef.getUuid();
+            if (!plugin.getMailbox().hasMail(playerId)) {
+                ctx.sendMessage(MessageUtil.legacyToMessage("&7The mailbox of &f" + targetPlayerRef.getUsername() + " &7is empty."));
+                return;
+            }
+
+            Player player = store.getComponent(targetEntityRef, Player.getComponentType());
+            MailDelivery delivery = plugin.getMailbox().deliver(playerId, player);
+            ctx.sendMessage(MessageUtil.legacyToMessage("&aDelivered &e" + delivery.getDelivered()
+                    + " &akey(s)/item(s) to &e" + targetPlayerRef.getUsername()));
+
+            List<MailItem> remaining = delivery.getRemaining();
+            if (remaining.isEmpty()) {
+                return;
+            }
+            ctx.sendMessage(MessageUtil.legacyToMessage("&6Still waiting (make room and claim again):"));
+            for (MailItem mail : remaining) {
+                String name = mail.getKind() == MailItem.Kind.KEY
+                        ? plugin.getKeyManager().getKey(mail.getId()).map(CrateKey::getDisplayName).orElse(mail.getId() + " &c(unknown key)")
+                        : mail.getId();
+                ctx.sendMessage(MessageUtil.legacyToMessage("&7- &e" + mail.getAmount() + "x &f" + name));
+            }
+        }
+    }
+
+    /**
+     * /crate stats - Shows registry sizes and how many file writes were performed or skipped.
+     */
+    private static class StatsSubCommand extends AbstractCommand {
+        private final CratesPlugin plugin;
+
+        StatsSubCommand(CratesPlugin plugin) {
+            super("stats", "Show crate storage statistics");
+            this.plugin = plugin;
+            requirePermission("crates.admin");
+        }
+
+        @Override
+        protected CompletableFuture<Void> execute(CommandContext ctx) {
+            CrateManager crateManager = plugin.getCrateManager();
+            IoExecutor io = plugin.getIoExecutor();
+            ctx.sendMessage(MessageUtil.legacyToMessage("&6=== HytaleCrates Stats ==="));
+            ctx.sendMessage(MessageUtil.legacyToMessage(String.format("&7Crates: &f%d &7Locations: &f%d",
+                    crateManager.getCrateIds().size(), crateManager.getTotalLocations())));
+            ctx.sendMessage(MessageUtil.legacyToMessage(String.format("&7Worlds loaded: &f%d &7(unsaved: &f%d&7)",
+                    crateManager.getLoadedWorldCount(), crateManager.getDirtyWorldCount())));
+            ctx.sendMessage(MessageUtil.legacyToMessage(String.format(
+                    "&7File writes: &f%d performed&7, &f%d skipped unchanged&7, &f%d merged",
+                    io.getCompletedCount(), io.getSkippedCount(), io.getCoalescedCount())));
+            ctx.sendMessage(MessageUtil.legacyToMessage(String.format("&7Virtual keys: &f%d player(s)&7, balance log &f%d&7 bytes",
+                    plugin.getKeyManager().getBalances().getPlayerCount(), plugin.getKeyManager().getBalanceLogBytes())));
+            ctx.sendMessage(MessageUtil.legacyToMessage(String.format("&7Mailboxes: &f%d player(s)",
+                    plugin.getMailbox().getPlayerCount())));
+            plugin.getKeyManager().getSerialLedger().ifPresent(ledger -> ctx.sendMessage(MessageUtil.legacyToMessage(
+                    String.format("&7Key serials: &f%d&7 of &f%d&7 issued, &f%d&7 spent",
+                            ledger.getIssued(), ledger.getCapacity(), ledger.getSpent()))));
             return CompletableFuture.completedFuture(null);
         }
     }
@@ -459,13 +963,21 @@ public class CrateCommand extends AbstractCommand {
             ctx.sendMessage(Message.raw("/crate list - List all crates"));
             ctx.sendMessage(Message.raw("/crate preview <name> - Preview crate rewards"));
             ctx.sendMessage(Message.raw("/crate info <name> - Show crate details"));
+            ctx.sendMessage(Message.raw("/crate balance - Show your virtual keys"));
+            ctx.sendMessage(Message.raw("/crate withdraw --key=<key> [--amount=<n>] - Turn virtual keys into key items"));
+            ctx.sendMessage(Message.raw("/crate claim - Collect keys and rewards from your mailbox"));
 
             if (isAdmin) {
                 ctx.sendMessage(Message.raw("--- Admin Commands ---"));
                 ctx.sendMessage(Message.raw("/crateset --crate=<name> - Set target block as crate"));
                 ctx.sendMessage(Message.raw("/crateremove - Remove crate from target block"));
+                ctx.sendMessage(Message.raw("/crate odds --crate=<name> [--opens=<n>] - Exact odds report"));
+                ctx.sendMessage(Message.raw("/crate locations --crate=<name> [--page=<n>] - List crate placements"));
                 ctx.sendMessage(Message.raw("/crate give --player=<name> --key=<key> - Give keys"));
+                ctx.sendMessage(Message.raw("/crate giveall --key=<key> [--amount=<n>] - Give keys to everyone online"));
+                ctx.sendMessage(Message.raw("/crate deposit --player=<name> --key=<key> [--amount=<n>] - Give virtual keys"));
                 ctx.sendMessage(Message.raw("/crate reload - Reload configs"));
+                ctx.sendMessage(Message.raw("/crate stats - Show storage statistics"));
             }
             return CompletableFuture.completedFuture(null);
         }
@@ -3,6 +3,7 @@ package com.hytalecrates.commands;
 import com.hytalecrates.CratesPlugin;
 import com.hytalecrates.crate.Crate;
 import com.hytalecrates.key.CrateKey;
+import com.hytalecrates.key.KeyManager;
 import com.hytalecrates.reward.Reward;
 import com.hytalecrates.util.MessageUtil;
 
@@ -20,6 +21,7 @@ import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
 import com.hypixel.hytale.server.core.util.TargetUtil;
 
 import java.util.Optional;
+import java.util.UUID;
 
 /**
  * /crateopen - Opens the crate block you're looking at.
@@ -68,27 +70,26 @@ public class CrateOpenCommand extends AbstractTargetPlayerCommand {
         String worldName = world.getName();
 
         // Check if this is a crate location (with y±1 fallback for container blocks)
-        Optional<Crate> crateOpt = plugin.getCrateManager().getCrateAt(worldName, targetBlock.x, targetBlock.y, targetBlock.z);
-        if (crateOpt.isEmpty()) {
-            crateOpt = plugin.getCrateManager().getCrateAt(worldName, targetBlock.x, targetBlock.y + 1, targetBlock.z);
-        }
-        if (crateOpt.isEmpty()) {
-            crateOpt = plugin.getCrateManager().getCrateAt(worldName, targetBlock.x, targetBlock.y - 1, targetBlock.z);
-        }
-
-        if (crateOpt.isEmpty()) {
+        Crate crate = plugin.getCrateManager().findCrateNear(worldName, targetBlock.x, targetBlock.y, targetBlock.z);
+        if (crate == null) {
             ctx.sendMessage(MessageUtil.legacyToMessage("&cThe block you're looking at is not a crate."));
             ctx.sendMessage(MessageUtil.legacyToMessage("&7Looking at: &f" + targetBlock.x + ", " + targetBlock.y + ", " + targetBlock.z));
             return;
         }
 
-        Crate crate = crateOpt.get();
         var settings = plugin.getConfigManager().getMainConfig().getSettings();
 
         // Check if key is required
         if (!settings.isRequireKeyInHand()) {
             // No key required - just give reward
-            giveRewardToPlayer(ctx, player, crate, settings.isConsumeKeyOnUse());
+            giveRewardToPlayer(ctx, player, crate, null, settings.isConsumeKeyOnUse());
+            return;
+        }
+
+        // Virtual keys first: one map lookup, no held item to validate and no hotbar slot to consume
+        UUID playerId = player.getUuid();
+        if (playerId != null && plugin.getKeyManager().getBalances().get(playerId, crate.getKeyId()) > 0) {
+            giveRewardForVirtualKey(ctx, player, playerId, crate);
             return;
         }
 
@@ -123,10 +124,39 @@ public class CrateOpenCommand extends AbstractTargetPlayerCommand {
         }
 
         // Give reward
-        giveRewardToPlayer(ctx, player, crate, settings.isConsumeKeyOnUse());
+        giveRewardToPlayer(ctx, player, crate, heldItem, settings.isConsumeKeyOnUse());
     }
 
-    private void giveRewardToPlayer(CommandContext ctx, Player player, Crate crate, boolean consumeKey) {
+    private void giveRewardForVirtualKey(CommandContext ctx, Player player, UUID playerId, Crate crate) {
+        Reward reward = plugin.getRewardManager().selectReward(crate);
+        if (reward == null) {
+            ctx.sendMessage(MessageUtil.legacyToMessage("&cThis crate has no rewards configured."));
+            return;
+        }
+
+        // Spent only once the reward is granted
+        if (!plugin.getKeyManager().takeVirtualKey(playerId, crate.getKeyId())) {
+            ctx.sendMessage(MessageUtil.legacyToMessage("&cYou need a key to open this crate!"));
+            return;
+        }
+        if (!plugin.getRewardManager().giveReward(player, reward)) {
+            plugin.getKeyManager().refundVirtualKey(playerId, crate.getKeyId());
+            ctx.sendMessage(MessageUtil.legacyToMessage("&cYour inventory is full!"));
+            return;
+        }
+
+        ctx.sendMessage(MessageUtil.legacyToMessage(
+                "&a\u2605 You opened " + crate.getDisplayName() + " &a\u2605"
+        ));
+        ctx.sendMessage(MessageUtil.legacyToMessage(
+                "&aYou won: &e" + reward.getItem().getAmount() + "x &f" + reward.getItem().getMaterial()
+        ));
+        ctx.sendMessage(MessageUtil.legacyToMessage(
+                "&7Virtual keys left: &f" + plugin.getKeyManager().getBalances().get(playerId, crate.getKeyId())
+        ));
+    }
+
+    private void giveRewardToPlayer(CommandContext ctx, Player player, Crate crate, ItemStack keyItem, boolean consumeKey) {
         // Select a random reward
         Reward reward = plugin.getRewardManager().selectReward(crate);
         if (reward == null) {
@@ -134,9 +164,28 @@ public class CrateOpenCommand extends AbstractTargetPlayerCommand {
             return;
         }
 
+        // A copy of a key stack shares its serials; once they are spent the copy is rejected
+        long serial = KeyManager.NO_SERIAL;
+        if (consumeKey && keyItem != null) {
+            serial = plugin.getKeyManager().claimSerial(keyItem);
+            if (serial == KeyManager.DUPLICATE) {
+                plugin.getLogger().at(java.util.logging.Level.WARNING).log("Rejected duplicated %s key from player %s",
+                        crate.getKeyId(), player.getUuid());
+                ctx.sendMessage(MessageUtil.legacyToMessage("&cThis key has already been used."));
+                return;
+            }
+            if (serial == KeyManager.UNAVAILABLE) {
+                plugin.getLogger().at(java.util.logging.Level.SEVERE).log("Rejected %s key from player %s: the key serial ledger is not open",
+                        crate.getKeyId(), player.getUuid());
+                ctx.sendMessage(MessageUtil.legacyToMessage("&cKeys can't be used right now. Please tell an admin."));
+                return;
+            }
+        }
+
         // Give the reward
         boolean granted = plugin.getRewardManager().giveReward(player, reward);
         if (!granted) {
+            plugin.getKeyManager().releaseSerial(serial);
             ctx.sendMessage(MessageUtil.legacyToMessage("&cYour inventory is full!"));
             return;
         }
@@ -0,0 +1,74 @@
+package com.hytalecrates.config;
+
+import com.hytalecrates.reward.AliasTable;
+
+import java.util.Map;
+
+/**
+ * Crate configuration restored from the compiled config snapshot written by a previous run.
+ *
+ * <p>Produced by {@link CompiledConfigCache#load(String)} only when every crate file still
+ * hashes to what the snapshot was compiled from. Alongside the configs it carries each
+ * crate's alias sampler, so startup can skip building it. Item ids are not carried: they
+ * depend on the server's asset map, not only on the crate files.</p>
+ */
+public class CompiledConfig {
+
+    private final String sourceHash;
+    private final Map<String, CrateConfig> crateConfigs;
+    private final Map<String, AliasTable> samplers;
+    private final Map<String, String> fileHashes;
+    private final Map<String, String> fileCrateIds;
+
+    CompiledConfig(String sourceHash, Map<String, CrateConfig> crateConfigs, Map<String, AliasTable> samplers,
+                   Map<String, String> fileHashes, Map<String, String> fileCrateIds) {
+        this.sourceHash = sourceHash;
+        this.crateConfigs = crateConfigs;
+        this.samplers = samplers;
+        this.fileHashes = fileHashes;
+        this.fileCrateIds = fileCrateIds;
+    }
+
+    /**
+     * Gets the combined hash of the crate files this snapshot was compiled from.
+     */
+    public String getSourceHash() {
+        return sourceHash;
+    }
+
+    /**
+     * Gets the crate configurations, keyed by crate ID.
+     */
+    public Map<String, CrateConfig> getCrateConfigs() {
+        return crateConfigs;
+    }
+
+    /**
+     * Gets the compiled sampler for a crate, or null if it must be built.
+     */
+    public AliasTable getSampler(String crateId) {
+        return samplers.get(crateId);
+    }
+
+    /**
+     * Gets the content hash of each crate file, keyed by file name.
+     */
+    Map<String, String> getFileHashes() {
+        return fileHashes;
+    }
+
+    /**
+     * Gets the crate ID each crate file defines, keyed by file name.
+     */
+    Map<String, String> getFileCrateIds() {
+        return fileCrateIds;
+    }
+
+    @Override
+    public String toString() {
+        return "CompiledConfig{" +
+                "crates=" + crateConfigs.size() +
+                ", sourceHash=" + sourceHash +
+                '}';
+    }
+}
@@ -0,0 +1,405 @@
+package com.hytalecrates.config;
+
+import com.hytalecrates.CratesPlugin;
+import com.hytalecrates.crate.Crate;
+import com.hytalecrates.crate.CrateRegistrySnapshot;
+import com.hytalecrates.reward.AliasTable;
+import com.hytalecrates.reward.Reward;
+import com.hytalecrates.util.ContentHash;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Level;
+
+/**
+ * Reads and writes the compiled config snapshot, a binary file in the data directory that
+ * lets a warm start skip JSON parsing and sampler compilation.
+ *
+ * <p>The snapshot is keyed by {@link #sourceHash(Map)} over the crate files it was compiled
+ * from, and is only used when the files on disk hash to the same value. Layout (big-endian):</p>
+ * <pre>
+ * int magic, int version, str sourceHash
+ * int files {str name, str hash, str crateId}
+ * int crates {crate config, sampler columns?}
+ * </pre>
+ * <p>Strings are an int byte length (-1 for null) followed by UTF-8, and lists and maps an int
+ * count (-1 for null) followed by their entries. The file is memory-mapped for reading. Placements are not included; they are loaded per world on demand. Nor are
+ * resolved item ids, which depend on the server's asset map rather than the crate files.</p>
+ */
+public class CompiledConfigCache {
+
+    public static final String FILE_NAME = "compiled-config.bin";
+
+    private static final int MAGIC = 0x48434346; // "HCCF"
+    private static final int VERSION = 4;
+
+    private final CratesPlugin plugin;
+    private final Path path;
+
+    public CompiledConfigCache(CratesPlugin plugin) {
+        this.plugin = plugin;
+        this.path = plugin.getDataDirectory().resolve(FILE_NAME);
+    }
+
+    /**
+     * Combines per-file content hashes into one hash that changes if any crate file is
+     * added, removed, renamed or edited.
+     *
+     * @param fileHashes Content hash of each crate file, keyed by file name
+     */
+    public static String sourceHash(Map<String, String> fileHashes) {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, String> entry : new TreeMap<>(fileHashes).entrySet()) {
+            sb.append(entry.getKey()).append('=').append(entry.getValue()).append('\n');
+        }
+        return ContentHash.sha256(sb.toString());
+    }
+
+    /**
+     * Loads the snapshot if it was compiled from crate files with the given source hash.
+     *
+     * @return The compiled config, or null if there is no usable snapshot
+     */
+    public CompiledConfig load(String sourceHash) {
+        if (!Files.exists(path)) {
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            CompiledConfig compiled = decode(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), sourceHash);
+            if (compiled == null) {
+                plugin.getLogger().at(Level.INFO).log("%s is stale or unreadable; compiling crate files", FILE_NAME);
+            }
+            return compiled;
+        } catch (IOException e) {
+            plugin.getLogger().at(Level.WARNING).withCause(e).log("Ignoring unreadable %s", FILE_NAME);
+            return null;
+        }
+    }
+
+    /**
+     * Decodes a snapshot if it was compiled from crate files with the given source hash.
+     *
+     * @return The compiled config, or null if the bytes are from another build, were compiled
+     *         from other crate files, or are corrupt
+     */
+    static CompiledConfig decode(ByteBuffer buffer, String sourceHash) {
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return null;
+            }
+            if (!sourceHash.equals(readString(buffer))) {
+                return null;
+            }
+            return decodeConfig(buffer, sourceHash);
+        } catch (RuntimeException e) {
+            // Corrupt; the JSON files are the source of truth
+            return null;
+        }
+    }
+
+    /**
+     * Writes a snapshot of the given configuration. Samplers are taken from the registry for
+     * crates still compiled from exactly these configs. Encoded on the calling
+     * thread and written atomically by the plugin's I/O executor.
+     *
+     * @param fileHashes Content hash of each crate file, keyed by file name
+     * @param fileCrateIds Crate ID each crate file defines, keyed by file name
+     * @param configs Crate configurations the files define
+     * @param snapshot Registry to take compiled parts from
+     */
+    public void write(Map<String, String> fileHashes, Map<String, String> fileCrateIds,
+                      Collection<CrateConfig> configs, CrateRegistrySnapshot snapshot) {
+        try {
+            byte[] file = encode(fileHashes, fileCrateIds, configs, snapshot);
+            plugin.getIoExecutor().write(path, file).whenComplete((ignored, error) -> {
+                if (error != null) {
+                    plugin.getLogger().at(Level.WARNING).withCause(error).log("Failed to write %s", FILE_NAME);
+                } else {
+                    plugin.getLogger().at(Level.INFO).log("Wrote compiled config: %d crate(s), %d bytes.",
+                            configs.size(), file.length);
+                }
+            });
+        } catch (IOException e) {
+            plugin.getLogger().at(Level.WARNING).withCause(e).log("Failed to encode %s", FILE_NAME);
+        }
+    }
+
+    // Encoding
+
+    /**
+     * Encodes a snapshot of the given configuration, in the layout {@link #decode} reads.
+     */
+    static byte[] encode(Map<String, String> fileHashes, Map<String, String> fileCrateIds,
+                         Collection<CrateConfig> configs, CrateRegistrySnapshot snapshot) throws IOException {
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(file);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        writeString(out, sourceHash(fileHashes));
+        encodeConfig(out, fileHashes, fileCrateIds, configs, snapshot);
+        out.flush();
+        return file.toByteArray();
+    }
+
+    private static void encodeConfig(DataOutputStream out, Map<String, String> fileHashes,
+                                     Map<String, String> fileCrateIds, Collection<CrateConfig> configs,
+                                     CrateRegistrySnapshot snapshot) throws IOException {
+        out.writeInt(fileHashes.size());
+        for (Map.Entry<String, String> entry : fileHashes.entrySet()) {
+            writeString(out, entry.getKey());
+            writeString(out, entry.getValue());
+            writeString(out, fileCrateIds.get(entry.getKey()));
+        }
+
+        out.writeInt(configs.size());
+        for (CrateConfig config : configs) {
+            writeCrateConfig(out, config);
+
+            Crate crate = snapshot.getCrate(config.getId());
+            AliasTable sampler = crate != null && isCompiledFrom(crate, config) ? crate.getSampler() : null;
+            out.writeBoolean(sampler != null);
+            if (sampler != null) {
+                out.writeInt(sampler.size());
+                for (int i = 0; i < sampler.size(); i++) {
+                    out.writeDouble(sampler.getColumnProbability(i));
+                    out.writeInt(sampler.getAlias(i));
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks that a crate's rewards still match its config, which admin edits mutate in
+     * place before the crate is recompiled.
+     */
+    private static boolean isCompiledFrom(Crate crate, CrateConfig config) {
+        List<RewardConfig> rewardConfigs = config.getRewards();
+        List<Reward> rewards = crate.getRewards();
+        if (crate.getConfig() != config || rewardConfigs == null || rewards.size() != rewardConfigs.size()) {
+            return false;
+        }
+        for (int i = 0; i < rewards.size(); i++) {
+            Reward reward = rewards.get(i);
+            RewardConfig rewardConfig = rewardConfigs.get(i);
+            if (reward.getWeight() != rewardConfig.getWeight() || reward.getItem() != rewardConfig.getItem()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeCrateConfig(DataOutputStream out, CrateConfig config) throws IOException {
+        writeString(out, config.getId());
+        writeString(out, config.getDisplayName());
+        writeString(out, config.getBlockType());
+        writeString(out, config.getKeyId());
+        writeItem(out, config.getKeyItem());
+
+        List<RewardConfig> rewards = config.getRewards();
+        out.writeInt(rewards.size());
+        for (RewardConfig reward : rewards) {
+            writeItem(out, reward.getItem());
+            writeString(out, reward.getRarity());
+            out.writeInt(reward.getWeight());
+            out.writeDouble(reward.getChance());
+        }
+
+        CrateConfig.HologramConfig hologram = config.getHologram();
+        out.writeBoolean(hologram != null);
+        if (hologram != null) {
+            out.writeBoolean(hologram.isEnabled());
+            writeStrings(out, hologram.getLines());
+        }
+    }
+
+    private static void writeItem(DataOutputStream out, ItemConfig item) throws IOException {
+        out.writeBoolean(item != null);
+        if (item == null) {
+            return;
+        }
+        writeString(out, item.getMaterial());
+        out.writeInt(item.getAmount());
+        writeString(out, item.rawDisplayName());
+        out.writeBoolean(item.isEnchanted());
+        writeStrings(out, item.rawLore());
+        Map<String, Integer> enchantments = item.rawEnchantments();
+        out.writeInt(enchantments != null ? enchantments.size() : -1);
+        if (enchantments == null) {
+            return;
+        }
+        for (Map.Entry<String, Integer> entry : enchantments.entrySet()) {
+            writeString(out, entry.getKey());
+            out.writeBoolean(entry.getValue() != null);
+            if (entry.getValue() != null) {
+                out.writeInt(entry.getValue());
+            }
+        }
+    }
+
+    private static void writeStrings(DataOutputStream out, List<String> values) throws IOException {
+        if (values == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(values.size());
+        for (String value : values) {
+            writeString(out, value);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    // Decoding
+
+    private static CompiledConfig decodeConfig(ByteBuffer in, String sourceHash) {
+        int fileCount = readCount(in);
+        Map<String, String> fileHashes = new HashMap<>();
+        Map<String, String> fileCrateIds = new HashMap<>();
+        for (int i = 0; i < fileCount; i++) {
+            String name = readString(in);
+            fileHashes.put(name, readString(in));
+            String crateId = readString(in);
+            if (crateId != null) {
+                fileCrateIds.put(name, crateId);
+            }
+        }
+
+        int crateCount = readCount(in);
+        Map<String, CrateConfig> configs = new LinkedHashMap<>();
+        Map<String, AliasTable> samplers = new HashMap<>();
+        for (int i = 0; i < crateCount; i++) {
+            CrateConfig config = readCrateConfig(in);
+            configs.put(config.getId(), config);
+
+            if (in.get() != 0) {
+                int n = readCount(in);
+                double[] probability = new double[n];
+                int[] alias = new int[n];
+                for (int c = 0; c < n; c++) {
+                    probability[c] = in.getDouble();
+                    alias[c] = in.getInt();
+                }
+                samplers.put(config.getId(), AliasTable.of(probability, alias));
+            }
+        }
+
+        return new CompiledConfig(sourceHash, configs, samplers, fileHashes, fileCrateIds);
+    }
+
+    private static CrateConfig readCrateConfig(ByteBuffer in) {
+        CrateConfig config = new CrateConfig();
+        config.setId(readString(in));
+        config.setDisplayName(readString(in));
+        config.setBlockType(readString(in));
+        config.setKeyId(readString(in));
+        config.setKeyItem(readItem(in));
+
+        int rewardCount = readCount(in);
+        List<RewardConfig> rewards = new ArrayList<>(rewardCount);
+        for (int i = 0; i < rewardCount; i++) {
+            ItemConfig item = readItem(in);
+            String rarity = readString(in);
+            int weight = in.getInt();
+            double chance = in.getDouble();
+            rewards.add(new RewardConfig(item, rarity, weight, chance));
+        }
+        config.setRewards(rewards);
+
+        if (in.get() != 0) {
+            CrateConfig.HologramConfig hologram = new CrateConfig.HologramConfig();
+            hologram.setEnabled(in.get() != 0);
+            hologram.setLines(readStrings(in));
+            config.setHologram(hologram);
+        } else {
+            config.setHologram(null);
+        }
+        return config;
+    }
+
+    private static ItemConfig readItem(ByteBuffer in) {
+        if (in.get() == 0) {
+            return null;
+        }
+        ItemConfig item = new ItemConfig();
+        item.setMaterial(readString(in));
+        item.setAmount(in.getInt());
+        item.setDisplayName(readString(in));
+        item.setEnchanted(in.get() != 0);
+        item.setLore(readStrings(in));
+        if (in.getInt(in.position()) == -1) {
+            in.getInt();
+            item.setEnchantments(null);
+        } else {
+            int enchantmentCount = readCount(in);
+            Map<String, Integer> enchantments = new LinkedHashMap<>();
+            for (int i = 0; i < enchantmentCount; i++) {
+                String name = readString(in);
+                enchantments.put(name, in.get() != 0 ? in.getInt() : null);
+            }
+            item.setEnchantments(enchantments);
+        }
+        return item;
+    }
+
+    private static List<String> readStrings(ByteBuffer in) {
+        if (in.getInt(in.position()) == -1) {
+            in.getInt();
+            return null;
+        }
+        int count = readCount(in);
+        List<String> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            values.add(readString(in));
+        }
+        return values;
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length == -1) {
+            return null;
+        }
+        if (length < 0 || length > in.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads an element count, rejecting values a corrupt file could use to force a huge
+     * allocation (every element takes at least one byte).
+     */
+    private static int readCount(ByteBuffer in) {
+        int count = in.getInt();
+        if (count < 0 || count > in.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        return count;
+    }
+}
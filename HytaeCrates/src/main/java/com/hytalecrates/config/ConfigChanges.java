@@ -0,0 +1,101 @@
+package com.hytalecrates.config;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Configuration files whose contents changed since they were last read, parsed but not applied.
+ *
+ * <p>Produced by {@link ConfigManager#readChanges(java.util.Collection)} for incremental
+ * reloads. Files that fail to parse or validate are described in {@link #getErrors()} and
+ * otherwise ignored, so the previous version of that crate stays live.</p>
+ */
+public class ConfigChanges {
+
+    private MainConfig mainConfig;
+    private final Map<String, CrateConfig> changedCrates = new LinkedHashMap<>();
+    private final Set<String> removedCrateIds = new LinkedHashSet<>();
+    private final List<String> errors = new ArrayList<>();
+    private final Map<Path, String> fileHashes = new HashMap<>();
+    private final Map<Path, String> fileCrateIds = new HashMap<>();
+    private final Set<Path> removedFiles = new HashSet<>();
+
+    ConfigChanges() {}
+
+    /**
+     * Gets the new main configuration, or null if config.json did not change.
+     */
+    public MainConfig getMainConfig() {
+        return mainConfig;
+    }
+
+    /**
+     * Gets added or changed crate configurations, keyed by crate ID.
+     */
+    public Map<String, CrateConfig> getChangedCrates() {
+        return changedCrates;
+    }
+
+    /**
+     * Gets the IDs of crates whose files were deleted or now define a different crate.
+     */
+    public Set<String> getRemovedCrateIds() {
+        return removedCrateIds;
+    }
+
+    /**
+     * Gets problems with individual files that were skipped.
+     */
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    /**
+     * Checks if there is nothing to apply.
+     */
+    public boolean isEmpty() {
+        return mainConfig == null && changedCrates.isEmpty() && removedCrateIds.isEmpty();
+    }
+
+    void setMainConfig(Path path, String hash, MainConfig config) {
+        this.mainConfig = config;
+        fileHashes.put(path, hash);
+    }
+
+    void putCrate(Path path, String hash, CrateConfig config) {
+        changedCrates.put(config.getId(), config);
+        removedCrateIds.remove(config.getId());
+        fileHashes.put(path, hash);
+        fileCrateIds.put(path, config.getId());
+    }
+
+    void removeFile(Path path, String crateId) {
+        if (!changedCrates.containsKey(crateId)) {
+            removedCrateIds.add(crateId);
+        }
+        removedFiles.add(path);
+    }
+
+    void addError(String error) {
+        errors.add(error);
+    }
+
+    Map<Path, String> getFileHashes() {
+        return fileHashes;
+    }
+
+    Map<Path, String> getFileCrateIds() {
+        return fileCrateIds;
+    }
+
+    Set<Path> getRemovedFiles() {
+        return removedFiles;
+    }
+}
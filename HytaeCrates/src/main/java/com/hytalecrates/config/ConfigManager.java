@@ -3,13 +3,28 @@ package com.hytalecrates.config;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.hytalecrates.CratesPlugin;
+import com.hytalecrates.crate.CrateRegistrySnapshot;
+import com.hytalecrates.storage.IoExecutor;
+import com.hytalecrates.util.ContentHash;
 
 import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.stream.Stream;
 
@@ -23,8 +38,15 @@ public class ConfigManager {
     private final Path configFolder;
     private final Path cratesFolder;
 
-    private MainConfig mainConfig;
-    private Map<String, CrateConfig> crateConfigs;
+    private volatile MainConfig mainConfig;
+    private volatile Map<String, CrateConfig> crateConfigs;
+    // Content hash of every config file as last read or written, and the crate each crate file defines
+    private final Map<Path, String> fileHashes;
+    private final Map<Path, String> fileCrateIds;
+    private final CompiledConfigCache compiledCache;
+    // Used only for writing; reads create a codec per pass so its string pool is dropped after
+    private final CrateConfigCodec crateWriter;
+    private volatile CompiledConfig compiledConfig;
 
     public ConfigManager(CratesPlugin plugin) {
         this.plugin = plugin;
@@ -34,16 +56,149 @@ public class ConfigManager {
                 .create();
         this.configFolder = plugin.getDataDirectory().resolve("config");
         this.cratesFolder = configFolder.resolve("crates");
-        this.crateConfigs = new HashMap<>();
+        this.mainConfig = new MainConfig();
+        this.crateConfigs = new ConcurrentHashMap<>();
+        this.fileHashes = new ConcurrentHashMap<>();
+        this.fileCrateIds = new ConcurrentHashMap<>();
+        this.compiledCache = new CompiledConfigCache(plugin);
+        this.crateWriter = new CrateConfigCodec();
     }
 
     /**
      * Loads all configuration files.
+     * Invalid crate files are skipped with a warning; use {@link #readConfigs()} to inspect them.
      */
     public void loadConfigs() {
+        applyConfigs(readConfigs());
+    }
+
+    /**
+     * Reads and validates every configuration file without changing the live configuration.
+     */
+    public ConfigSet readConfigs() {
         createDefaultConfigs();
-        loadMainConfig();
-        loadCrateConfigs();
+        List<String> errors = new ArrayList<>();
+        Map<Path, String> hashes = new HashMap<>();
+        Map<Path, String> crateIds = new HashMap<>();
+        MainConfig main = readMainConfig(errors, hashes);
+        Map<String, CrateConfig> crates = new HashMap<>();
+        CompiledConfig compiled = readCrateConfigs(crates, errors, hashes, crateIds);
+        return new ConfigSet(main, crates, errors, hashes, crateIds, compiled);
+    }
+
+    /**
+     * Makes a previously read configuration set the live configuration.
+     */
+    public void applyConfigs(ConfigSet configs) {
+        this.mainConfig = configs.getMainConfig();
+        this.crateConfigs = new ConcurrentHashMap<>(configs.getCrateConfigs());
+        fileHashes.clear();
+        fileHashes.putAll(configs.getFileHashes());
+        fileCrateIds.clear();
+        fileCrateIds.putAll(configs.getFileCrateIds());
+        this.compiledConfig = configs.getCompiled();
+    }
+
+    /**
+     * Reads only the given changed files, skipping any whose contents hash to what was last
+     * read or written. Does not change the live configuration.
+     *
+     * @param paths Paths reported as created, modified or deleted
+     */
+    public ConfigChanges readChanges(Collection<Path> paths) {
+        ConfigChanges changes = new ConfigChanges();
+        Path mainConfigPath = configFolder.resolve("config.json");
+
+        // Deletions first, so a crate moved between files is not reported as a duplicate
+        List<Path> ordered = new ArrayList<>(new LinkedHashSet<>(paths));
+        ordered.sort(Comparator.comparing(path -> Files.exists(path)));
+
+        CrateConfigCodec codec = new CrateConfigCodec();
+        for (Path path : ordered) {
+            if (path.equals(mainConfigPath)) {
+                readMainConfigChange(path, changes);
+            } else if (cratesFolder.equals(path.getParent()) && path.toString().endsWith(".json")) {
+                readCrateConfigChange(path, changes, codec);
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * Makes a previously read set of changes part of the live configuration.
+     */
+    public void applyChanges(ConfigChanges changes) {
+        if (changes.getMainConfig() != null) {
+            this.mainConfig = changes.getMainConfig();
+        }
+        for (String crateId : changes.getRemovedCrateIds()) {
+            crateConfigs.remove(crateId);
+        }
+        crateConfigs.putAll(changes.getChangedCrates());
+        for (Path path : changes.getRemovedFiles()) {
+            fileHashes.remove(path);
+            fileCrateIds.remove(path);
+        }
+        fileHashes.putAll(changes.getFileHashes());
+        fileCrateIds.putAll(changes.getFileCrateIds());
+        this.compiledConfig = null;
+    }
+
+    private void readMainConfigChange(Path path, ConfigChanges changes) {
+        try {
+            if (!Files.exists(path)) {
+                return;
+            }
+            byte[] bytes = Files.readAllBytes(path);
+            String hash = ContentHash.sha256(bytes);
+            if (hash.equals(fileHashes.get(path))) {
+                return;
+            }
+            MainConfig config = gson.fromJson(new String(bytes, StandardCharsets.UTF_8), MainConfig.class);
+            changes.setMainConfig(path, hash, config != null ? config : new MainConfig());
+        } catch (Exception e) {
+            plugin.getLogger().at(Level.WARNING).withCause(e).log("Ignoring unreadable config.json change");
+            changes.addError("config.json: " + e.getMessage());
+        }
+    }
+
+    private void readCrateConfigChange(Path path, ConfigChanges changes, CrateConfigCodec codec) {
+        String previousId = fileCrateIds.get(path);
+        try {
+            if (!Files.exists(path)) {
+                if (previousId != null) {
+                    changes.removeFile(path, previousId);
+                }
+                return;
+            }
+
+            byte[] bytes = Files.readAllBytes(path);
+            String hash = ContentHash.sha256(bytes);
+            if (hash.equals(fileHashes.get(path))) {
+                return;
+            }
+
+            CrateConfig config = parseCrateConfig(bytes, codec);
+            if (config == null || !config.isValid()) {
+                changes.addError(path.getFileName() + ": missing id, displayName, keyId or rewards");
+                return;
+            }
+            for (Map.Entry<Path, String> entry : fileCrateIds.entrySet()) {
+                if (entry.getValue().equals(config.getId()) && !entry.getKey().equals(path)
+                        && !changes.getRemovedFiles().contains(entry.getKey())) {
+                    changes.addError(path.getFileName() + ": duplicate crate id " + config.getId());
+                    return;
+                }
+            }
+
+            if (previousId != null && !previousId.equals(config.getId())) {
+                changes.removeFile(path, previousId);
+            }
+            changes.putCrate(path, hash, config);
+        } catch (Exception e) {
+            plugin.getLogger().at(Level.WARNING).withCause(e).log("Ignoring unreadable crate config change: %s", path.getFileName());
+            changes.addError(path.getFileName() + ": " + e.getMessage());
+        }
     }
 
     /**
@@ -100,7 +255,8 @@ public class ConfigManager {
         try {
             if (resourcePath.equals("config/config.json")) {
                 MainConfig defaultConfig = new MainConfig();
-                saveJsonFile(target, defaultConfig);
+                // Read back right after, so wait for it
+                saveJsonFile(target, defaultConfig).join();
             }
         } catch (Exception e) {
             plugin.getLogger().at(Level.SEVERE).withCause(e).log("Failed to create default file: %s", target.getFileName());
@@ -108,116 +264,310 @@ public class ConfigManager {
     }
 
     /**
-     * Loads the main configuration file.
+     * Reads the main configuration file.
      */
-    private void loadMainConfig() {
+    private MainConfig readMainConfig(List<String> errors, Map<Path, String> hashes) {
         Path configPath = configFolder.resolve("config.json");
         try {
-            mainConfig = loadJsonFile(configPath, MainConfig.class);
-            if (mainConfig == null) {
-                mainConfig = new MainConfig();
+            MainConfig config = readJsonFile(configPath, MainConfig.class, hashes);
+            if (config == null) {
+                config = new MainConfig();
             }
             plugin.getLogger().at(Level.INFO).log("Loaded main configuration.");
+            return config;
         } catch (Exception e) {
             plugin.getLogger().at(Level.SEVERE).withCause(e).log("Failed to load config.json, using defaults");
-            mainConfig = new MainConfig();
+            errors.add("config.json: " + e.getMessage());
+            return new MainConfig();
         }
     }
 
     /**
-     * Loads all crate configuration files from the crates folder.
+     * Reads all crate configuration files from the crates folder into {@code configs}.
+     * If the compiled config snapshot was built from exactly these files, the configs come
+     * from it and no JSON is parsed.
+     *
+     * @return The compiled config used, or null if the files were parsed
      */
-    private void loadCrateConfigs() {
-        crateConfigs.clear();
-
+    private CompiledConfig readCrateConfigs(Map<String, CrateConfig> configs, List<String> errors,
+                                            Map<Path, String> hashes, Map<Path, String> crateIds) {
         if (!Files.exists(cratesFolder) || !Files.isDirectory(cratesFolder)) {
             plugin.getLogger().at(Level.WARNING).log("Crates folder not found!");
-            return;
+            return null;
         }
 
+        List<Path> files;
         try (Stream<Path> paths = Files.list(cratesFolder)) {
-            paths.filter(path -> path.toString().endsWith(".json"))
-                 .forEach(this::loadCrateConfig);
+            files = paths.filter(path -> path.toString().endsWith(".json")).sorted().toList();
         } catch (IOException e) {
             plugin.getLogger().at(Level.SEVERE).withCause(e).log("Failed to list crate configuration files");
-            return;
+            errors.add("crates/: " + e.getMessage());
+            return null;
+        }
+
+        // Read and hash concurrently; the hashes decide whether the compiled snapshot applies
+        List<ParsedFile> read = runConcurrently(files, this::readCrateFile);
+        CompiledConfig compiled = loadCompiledConfig(read);
+        if (compiled != null) {
+            for (ParsedFile file : read) {
+                hashes.put(file.path, file.hash);
+                String crateId = compiled.getFileCrateIds().get(file.path.getFileName().toString());
+                if (crateId != null) {
+                    crateIds.put(file.path, crateId);
+                }
+            }
+            configs.putAll(compiled.getCrateConfigs());
+            plugin.getLogger().at(Level.INFO).log("Loaded %d crate(s) from %s.", configs.size(), CompiledConfigCache.FILE_NAME);
+            return compiled;
+        }
+
+        // Parse concurrently, then merge in sorted path order so duplicate detection and logging
+        // are deterministic. One codec for the pass lets files share interned strings.
+        CrateConfigCodec codec = new CrateConfigCodec();
+        List<ParsedFile> parsed = runConcurrently(read, file -> parseCrateFile(file, codec));
+        for (ParsedFile file : parsed) {
+            mergeCrateConfig(file, configs, errors, hashes, crateIds);
         }
 
-        if (crateConfigs.isEmpty()) {
+        if (configs.isEmpty()) {
             plugin.getLogger().at(Level.WARNING).log("No crate configuration files found!");
-            return;
+            return null;
         }
 
-        plugin.getLogger().at(Level.INFO).log("Loaded %d crate(s).", crateConfigs.size());
+        plugin.getLogger().at(Level.INFO).log("Loaded %d crate(s).", configs.size());
+        return null;
     }
 
     /**
-     * Loads a single crate configuration file.
+     * Loads the compiled snapshot if every crate file was read and the snapshot was compiled
+     * from exactly these contents.
      */
-    private void loadCrateConfig(Path path) {
-        try {
-            CrateConfig config = loadJsonFile(path, CrateConfig.class);
-            if (config != null && config.isValid()) {
-                crateConfigs.put(config.getId(), config);
-                plugin.getLogger().at(Level.INFO).log("Loaded crate: %s", config.getId());
-            } else {
-                plugin.getLogger().at(Level.WARNING).log("Invalid crate config: %s", path.getFileName());
+    private CompiledConfig loadCompiledConfig(List<ParsedFile> files) {
+        if (files.isEmpty()) {
+            return null;
+        }
+        Map<String, String> nameHashes = new HashMap<>();
+        for (ParsedFile file : files) {
+            if (file.error != null) {
+                return null;
             }
-        } catch (Exception e) {
-            plugin.getLogger().at(Level.SEVERE).withCause(e).log("Failed to load crate config: %s", path.getFileName());
+            nameHashes.put(file.path.getFileName().toString(), file.hash);
         }
+        return compiledCache.load(CompiledConfigCache.sourceHash(nameHashes));
+    }
+
+    private static <T, R> List<R> runConcurrently(List<T> inputs, Function<T, R> task) {
+        List<Future<R>> futures = new ArrayList<>(inputs.size());
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (T input : inputs) {
+                futures.add(executor.submit(() -> task.apply(input)));
+            }
+        }
+        List<R> results = new ArrayList<>(futures.size());
+        for (Future<R> future : futures) {
+            results.add(future.resultNow());
+        }
+        return results;
     }
 
     /**
-     * Loads a JSON file and deserializes it to the specified class.
+     * Reads and hashes one crate file. Runs concurrently; touches no shared state.
      */
-    private <T> T loadJsonFile(Path path, Class<T> clazz) {
-        if (!Files.exists(path)) {
-            return null;
+    private ParsedFile readCrateFile(Path path) {
+        try {
+            byte[] bytes = Files.readAllBytes(path);
+            return new ParsedFile(path, bytes, ContentHash.sha256(bytes), null, null);
+        } catch (Exception e) {
+            return new ParsedFile(path, null, null, null, e);
         }
+    }
 
-        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
-            return gson.fromJson(reader, clazz);
+    /**
+     * Parses one crate file read by {@link #readCrateFile}. Runs concurrently; touches no shared state.
+     */
+    private ParsedFile parseCrateFile(ParsedFile file, CrateConfigCodec codec) {
+        if (file.error != null) {
+            return file;
+        }
+        try {
+            CrateConfig config = parseCrateConfig(file.bytes, codec);
+            return new ParsedFile(file.path, null, file.hash, config, null);
         } catch (Exception e) {
-            plugin.getLogger().at(Level.SEVERE).withCause(e).log("Error reading JSON file: %s", path.getFileName());
-            return null;
+            return new ParsedFile(file.path, null, null, null, e);
         }
     }
 
     /**
-     * Saves an object to a JSON file.
+     * Parses a crate file with the streaming codec, falling back to reflective binding if the
+     * file has fields the codec does not know.
      */
-    public <T> void saveJsonFile(Path path, T object) {
-        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
-            gson.toJson(object, writer);
-        } catch (Exception e) {
-            plugin.getLogger().at(Level.SEVERE).withCause(e).log("Error writing JSON file: %s", path.getFileName());
+    private CrateConfig parseCrateConfig(byte[] bytes, CrateConfigCodec codec) {
+        try {
+            return codec.fromJson(bytes);
+        } catch (CrateConfigCodec.UnknownFieldException e) {
+            return gson.fromJson(new String(bytes, StandardCharsets.UTF_8), CrateConfig.class);
+        }
+    }
+
+    /**
+     * Merges one parsed crate file into {@code configs}.
+     */
+    private void mergeCrateConfig(ParsedFile file, Map<String, CrateConfig> configs, List<String> errors,
+                                  Map<Path, String> hashes, Map<Path, String> crateIds) {
+        Path path = file.path;
+        if (file.error != null) {
+            plugin.getLogger().at(Level.SEVERE).withCause(file.error).log("Failed to load crate config: %s", path.getFileName());
+            errors.add(path.getFileName() + ": " + file.error.getMessage());
+            return;
+        }
+
+        hashes.put(path, file.hash);
+        CrateConfig config = file.config;
+        if (config == null || !config.isValid()) {
+            plugin.getLogger().at(Level.WARNING).log("Invalid crate config: %s", path.getFileName());
+            errors.add(path.getFileName() + ": missing id, displayName, keyId or rewards");
+        } else if (configs.containsKey(config.getId())) {
+            plugin.getLogger().at(Level.WARNING).log("Duplicate crate id %s in %s", config.getId(), path.getFileName());
+            errors.add(path.getFileName() + ": duplicate crate id " + config.getId());
+        } else {
+            configs.put(config.getId(), config);
+            crateIds.put(path, config.getId());
+            plugin.getLogger().at(Level.INFO).log("Loaded crate: %s", config.getId());
+        }
+    }
+
+    /**
+     * Result of reading one crate file: its bytes and hash, then its config, or the error.
+     */
+    private static final class ParsedFile {
+        final Path path;
+        final byte[] bytes;
+        final String hash;
+        final CrateConfig config;
+        final Exception error;
+
+        ParsedFile(Path path, byte[] bytes, String hash, CrateConfig config, Exception error) {
+            this.path = path;
+            this.bytes = bytes;
+            this.hash = hash;
+            this.config = config;
+            this.error = error;
         }
     }
 
     /**
-     * Saves a crate configuration to file.
+     * Reads a JSON file, records its content hash, and deserializes it to the specified class.
+     *
+     * @return The parsed object, or null if the file does not exist
+     * @throws IOException If the file cannot be read
+     * @throws com.google.gson.JsonParseException If the file is not valid JSON for the class
      */
-    public void saveCrateConfig(CrateConfig config) {
+    private <T> T readJsonFile(Path path, Class<T> clazz, Map<Path, String> hashes) throws IOException {
+        if (!Files.exists(path)) {
+            return null;
+        }
+
+        byte[] bytes = Files.readAllBytes(path);
+        hashes.put(path, ContentHash.sha256(bytes));
+        return gson.fromJson(new String(bytes, StandardCharsets.UTF_8), clazz);
+    }
+
+    /**
+     * Saves an object to a JSON file. Serialized on the calling thread, written by the
+     * plugin's {@link IoExecutor}.
+     *
+     * @return A future completed once the file is on disk; failures are also logged
+     */
+    public <T> CompletableFuture<Void> saveJsonFile(Path path, T object) {
+        byte[] json = gson.toJson(object).getBytes(StandardCharsets.UTF_8);
+        return logFailure(plugin.getIoExecutor().write(path, json), "Error writing JSON file: %s", path);
+    }
+
+    /**
+     * Saves a crate configuration to file. The live configuration is updated immediately;
+     * the file is written by the plugin's {@link IoExecutor}.
+     *
+     * @return A future completed once the file is on disk; failures are also logged
+     */
+    public CompletableFuture<Void> saveCrateConfig(CrateConfig config) {
         Path path = cratesFolder.resolve(config.getId() + ".json");
-        saveJsonFile(path, config);
+        String json = crateWriter.toJson(config);
+        // Recorded so the config watcher does not reload our own write
+        fileHashes.put(path, ContentHash.sha256(json));
+        fileCrateIds.put(path, config.getId());
         crateConfigs.put(config.getId(), config);
+        this.compiledConfig = null;
+        return logFailure(plugin.getIoExecutor().write(path, json.getBytes(StandardCharsets.UTF_8)),
+                "Error writing JSON file: %s", path);
     }
 
     /**
-     * Deletes a crate configuration file.
+     * Deletes a crate configuration file. The crate leaves the live configuration
+     * immediately; the file is deleted by the plugin's {@link IoExecutor}.
+     *
+     * @return true if the crate was configured
      */
     public boolean deleteCrateConfig(String crateId) {
         Path path = cratesFolder.resolve(crateId + ".json");
-        try {
-            if (Files.exists(path) && Files.deleteIfExists(path)) {
-                crateConfigs.remove(crateId);
-                return true;
+        boolean known = crateConfigs.remove(crateId) != null;
+        fileHashes.remove(path);
+        known |= fileCrateIds.remove(path) != null;
+        if (known) {
+            this.compiledConfig = null;
+            logFailure(plugin.getIoExecutor().delete(path), "Failed to delete crate config: %s", path);
+        }
+        return known;
+    }
+
+    private CompletableFuture<Void> logFailure(CompletableFuture<Void> write, String message, Path path) {
+        write.whenComplete((ignored, error) -> {
+            if (error != null) {
+                plugin.getLogger().at(Level.SEVERE).withCause(error).log(message, path.getFileName());
             }
-        } catch (IOException e) {
-            plugin.getLogger().at(Level.SEVERE).withCause(e).log("Failed to delete crate config: %s", crateId);
+        });
+        return write;
+    }
+
+    /**
+     * Writes the compiled config snapshot for the live configuration, so the next start with
+     * unchanged crate files can skip JSON parsing. Skipped while any crate file failed to
+     * load, because only parsing reports those errors.
+     *
+     * @param snapshot Registry to take compiled crates from
+     */
+    public void writeCompiledConfig(CrateRegistrySnapshot snapshot) {
+        Map<String, String> nameHashes = new HashMap<>();
+        Map<String, String> nameCrateIds = new HashMap<>();
+        for (Map.Entry<Path, String> entry : fileHashes.entrySet()) {
+            Path path = entry.getKey();
+            if (!cratesFolder.equals(path.getParent())) {
+                continue;
+            }
+            String crateId = fileCrateIds.get(path);
+            if (crateId == null) {
+                plugin.getLogger().at(Level.INFO).log("Not writing %s: %s did not load.",
+                        CompiledConfigCache.FILE_NAME, path.getFileName());
+                return;
+            }
+            String name = path.getFileName().toString();
+            nameHashes.put(name, entry.getValue());
+            nameCrateIds.put(name, crateId);
         }
-        return false;
+
+        Map<String, CrateConfig> configs = new HashMap<>(crateConfigs);
+        if (!configs.keySet().equals(new HashSet<>(nameCrateIds.values()))) {
+            // A crate without a file (or vice versa) would not survive a restart
+            return;
+        }
+        compiledCache.write(nameHashes, nameCrateIds, configs.values(), snapshot);
+    }
+
+    /**
+     * Gets the compiled snapshot the live configuration was loaded from, or null if it was
+     * parsed from JSON or has changed since.
+     */
+    public CompiledConfig getCompiledConfig() {
+        return compiledConfig;
     }
 
     // Getters
@@ -0,0 +1,76 @@
+package com.hytalecrates.config;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A complete set of configuration read from disk, not yet applied.
+ *
+ * <p>Produced by {@link ConfigManager#readConfigs()} so a reload can parse and validate
+ * everything before any live state changes. Invalid crate files are left out of
+ * {@link #getCrateConfigs()} and described in {@link #getErrors()}.</p>
+ */
+public class ConfigSet {
+
+    private final MainConfig mainConfig;
+    private final Map<String, CrateConfig> crateConfigs;
+    private final List<String> errors;
+    private final Map<Path, String> fileHashes;
+    private final Map<Path, String> fileCrateIds;
+    private final CompiledConfig compiled;
+
+    ConfigSet(MainConfig mainConfig, Map<String, CrateConfig> crateConfigs, List<String> errors,
+              Map<Path, String> fileHashes, Map<Path, String> fileCrateIds, CompiledConfig compiled) {
+        this.mainConfig = mainConfig;
+        this.crateConfigs = crateConfigs;
+        this.errors = List.copyOf(errors);
+        this.fileHashes = fileHashes;
+        this.fileCrateIds = fileCrateIds;
+        this.compiled = compiled;
+    }
+
+    /**
+     * Gets the main configuration (defaults if config.json could not be read).
+     */
+    public MainConfig getMainConfig() {
+        return mainConfig;
+    }
+
+    /**
+     * Gets the valid crate configurations, keyed by crate ID.
+     */
+    public Map<String, CrateConfig> getCrateConfigs() {
+        return crateConfigs;
+    }
+
+    /**
+     * Gets every problem found while reading, one message per problem.
+     */
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    /**
+     * Gets the compiled snapshot the crate configurations came from, or null if they were
+     * parsed from JSON.
+     */
+    public CompiledConfig getCompiled() {
+        return compiled;
+    }
+
+    Map<Path, String> getFileHashes() {
+        return fileHashes;
+    }
+
+    Map<Path, String> getFileCrateIds() {
+        return fileCrateIds;
+    }
+
+    /**
+     * Checks if every file was read and validated without problems.
+     */
+    public boolean isValid() {
+        return errors.isEmpty();
+    }
+}
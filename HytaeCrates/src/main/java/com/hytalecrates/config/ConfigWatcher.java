@@ -0,0 +1,161 @@
+package com.hytalecrates.config;
+
+import com.hytalecrates.CratesPlugin;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Watches the config and crates folders and triggers incremental reloads.
+ *
+ * <p>Events are collected until the folders have been quiet for the debounce interval, so an
+ * editor's save burst (truncate, write, rename) becomes one reload. The changed paths are then
+ * handed to {@link CratesPlugin#reloadChanged(java.util.Collection)}, which compares content
+ * hashes and only reparses files that really changed.</p>
+ */
+public class ConfigWatcher {
+
+    private final CratesPlugin plugin;
+    private final long debounceMillis;
+    private WatchService watchService;
+    private Thread thread;
+
+    public ConfigWatcher(CratesPlugin plugin, long debounceMillis) {
+        this.plugin = plugin;
+        this.debounceMillis = debounceMillis;
+    }
+
+    /**
+     * Starts watching. Does nothing if already running.
+     */
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+
+        ConfigManager configManager = plugin.getConfigManager();
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            register(configManager.getConfigFolder());
+            register(configManager.getCratesFolder());
+        } catch (IOException e) {
+            plugin.getLogger().at(Level.SEVERE).withCause(e).log("Failed to start config watcher");
+            closeQuietly();
+            return;
+        }
+
+        thread = new Thread(this::run, "HytaleCrates-ConfigWatcher");
+        thread.setDaemon(true);
+        thread.start();
+        plugin.getLogger().at(Level.INFO).log("Watching config files for changes (debounce %d ms).", debounceMillis);
+    }
+
+    /**
+     * Stops watching. Does nothing if not running.
+     */
+    public synchronized void stop() {
+        if (thread == null) {
+            return;
+        }
+        closeQuietly();
+        thread.interrupt();
+        thread = null;
+        plugin.getLogger().at(Level.INFO).log("Stopped watching config files.");
+    }
+
+    /**
+     * Gets the debounce interval in milliseconds.
+     */
+    public long getDebounceMillis() {
+        return debounceMillis;
+    }
+
+    /**
+     * Checks if the watcher is running.
+     */
+    public synchronized boolean isRunning() {
+        return thread != null;
+    }
+
+    private void register(Path folder) throws IOException {
+        folder.register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE);
+    }
+
+    private void run() {
+        WatchService service = watchService;
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                Set<Path> changed = new LinkedHashSet<>();
+                boolean overflow = false;
+
+                // Block for the first event, then drain until the folders go quiet
+                WatchKey key = service.take();
+                while (key != null) {
+                    overflow |= collect(key, changed);
+                    key = service.poll(debounceMillis, TimeUnit.MILLISECONDS);
+                }
+
+                if (overflow || !changed.isEmpty()) {
+                    try {
+                        if (overflow) {
+                            // Events were dropped, so the changed set is incomplete
+                            plugin.reload();
+                        } else {
+                            plugin.reloadChanged(changed);
+                        }
+                    } catch (Exception e) {
+                        plugin.getLogger().at(Level.SEVERE).withCause(e).log("Incremental config reload failed");
+                    }
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Stopped
+        }
+    }
+
+    /**
+     * Adds the JSON files a key reports to {@code changed}.
+     *
+     * @return true if the key overflowed and events were lost
+     */
+    private static boolean collect(WatchKey key, Set<Path> changed) {
+        Path folder = (Path) key.watchable();
+        boolean overflow = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                overflow = true;
+                continue;
+            }
+            Path name = (Path) event.context();
+            if (name.toString().endsWith(".json")) {
+                changed.add(folder.resolve(name));
+            }
+        }
+        key.reset();
+        return overflow;
+    }
+
+    private void closeQuietly() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException ignored) {
+                // Already closed
+            }
+            watchService = null;
+        }
+    }
+}
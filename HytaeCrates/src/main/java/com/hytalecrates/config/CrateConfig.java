@@ -83,6 +83,29 @@ public class CrateConfig {
         this.hologram = hologram;
     }
 
+    /**
+     * Creates a deep copy, so a crate's live configuration can be edited without changing
+     * what other threads see until the edited copy is swapped in.
+     */
+    public CrateConfig copy() {
+        CrateConfig copy = new CrateConfig();
+        copy.id = id;
+        copy.displayName = displayName;
+        copy.blockType = blockType;
+        copy.keyId = keyId;
+        copy.keyItem = keyItem != null ? keyItem.copy() : null;
+        if (rewards != null) {
+            copy.rewards = new ArrayList<>(rewards.size());
+            for (RewardConfig reward : rewards) {
+                copy.rewards.add(reward != null ? reward.copy() : null);
+            }
+        } else {
+            copy.rewards = null;
+        }
+        copy.hologram = hologram != null ? hologram.copy() : null;
+        return copy;
+    }
+
     /**
      * Validates that this crate config has all required fields.
      */
@@ -120,5 +143,15 @@ public class CrateConfig {
         public void setLines(List<String> lines) {
             this.lines = lines;
         }
+
+        /**
+         * Creates a deep copy.
+         */
+        public HologramConfig copy() {
+            HologramConfig copy = new HologramConfig();
+            copy.enabled = enabled;
+            copy.lines = lines != null ? new ArrayList<>(lines) : null;
+            return copy;
+        }
     }
 }
@@ -0,0 +1,389 @@
+package com.hytalecrates.config;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Streaming reader and writer for crate configuration files.
+ *
+ * <p>Binds the crate schema field by field with {@link JsonReader} and {@link JsonWriter}
+ * instead of Gson's reflective binding, so a document is never held as a tree or a second
+ * full string. Strings that repeat across rewards and files (materials, rarities, names,
+ * lore lines, enchantment keys) are interned in a pool owned by the codec, so one codec
+ * should be used for one read pass and then dropped. Safe for concurrent reads.</p>
+ *
+ * <p>Reading accepts what the reflective binding accepts (lenient syntax, quoted numbers,
+ * explicit nulls) and {@link #toJson(CrateConfig)} produces the same pretty-printed text. A
+ * document with a field this codec does not know raises {@link UnknownFieldException}, so the
+ * caller can fall back to the reflective path for fields added to the model classes.</p>
+ */
+public class CrateConfigCodec {
+
+    private final Map<String, String> pool = new ConcurrentHashMap<>();
+
+    /**
+     * Reads a crate configuration from UTF-8 bytes.
+     *
+     * @return The config, or null if the document is empty or {@code null}
+     * @throws UnknownFieldException If the document has a field outside the crate schema
+     * @throws JsonSyntaxException If the document is malformed or has the wrong shape
+     */
+    public CrateConfig fromJson(byte[] bytes) {
+        return fromJson(new InputStreamReader(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Reads a crate configuration from a reader.
+     *
+     * @see #fromJson(byte[])
+     */
+    public CrateConfig fromJson(Reader reader) {
+        JsonReader in = new JsonReader(reader);
+        in.setLenient(true);
+        try {
+            try {
+                in.peek();
+            } catch (EOFException e) {
+                return null;
+            }
+            CrateConfig config = readCrate(in);
+            if (in.peek() != JsonToken.END_DOCUMENT) {
+                throw new JsonSyntaxException("JSON document was not fully consumed.");
+            }
+            return config;
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+
+    /**
+     * Writes a crate configuration as pretty-printed JSON.
+     */
+    public String toJson(CrateConfig config) {
+        StringWriter writer = new StringWriter();
+        toJson(config, writer);
+        return writer.toString();
+    }
+
+    /**
+     * Writes a crate configuration as pretty-printed JSON to a writer.
+     */
+    public void toJson(CrateConfig config, Writer writer) {
+        try {
+            JsonWriter out = new JsonWriter(writer);
+            out.setIndent("  ");
+            out.setHtmlSafe(false);
+            out.setSerializeNulls(false);
+            writeCrate(out, config);
+            out.flush();
+        } catch (IOException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+
+    // Reading
+
+    private CrateConfig readCrate(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        CrateConfig config = new CrateConfig();
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            switch (name) {
+                case "id" -> config.setId(readString(in, false));
+                case "displayName" -> config.setDisplayName(readString(in, false));
+                case "blockType" -> config.setBlockType(readString(in, true));
+                case "keyId" -> config.setKeyId(readString(in, false));
+                case "keyItem" -> config.setKeyItem(readItem(in));
+                case "rewards" -> config.setRewards(readRewards(in));
+                case "hologram" -> config.setHologram(readHologram(in));
+                default -> throw new UnknownFieldException("crate", name);
+            }
+        }
+        in.endObject();
+        return config;
+    }
+
+    private List<RewardConfig> readRewards(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        List<RewardConfig> rewards = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            rewards.add(readReward(in));
+        }
+        in.endArray();
+        return rewards;
+    }
+
+    private RewardConfig readReward(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        RewardConfig reward = new RewardConfig();
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            switch (name) {
+                case "item" -> reward.setItem(readItem(in));
+                case "rarity" -> reward.setRarity(readString(in, true));
+                case "weight" -> {
+                    if (!skipNull(in)) {
+                        reward.setWeight(in.nextInt());
+                    }
+                }
+                case "chance" -> {
+                    if (!skipNull(in)) {
+                        reward.setChance(in.nextDouble());
+                    }
+                }
+                default -> throw new UnknownFieldException("reward", name);
+            }
+        }
+        in.endObject();
+        return reward;
+    }
+
+    private ItemConfig readItem(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        ItemConfig item = new ItemConfig();
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            switch (name) {
+                case "material" -> item.setMaterial(readString(in, true));
+                case "amount" -> {
+                    if (!skipNull(in)) {
+                        item.setAmount(in.nextInt());
+                    }
+                }
+                case "displayName" -> item.setDisplayName(readString(in, true));
+                case "enchanted" -> {
+                    if (!skipNull(in)) {
+                        item.setEnchanted(readBoolean(in));
+                    }
+                }
+                case "lore" -> item.setLore(readStrings(in));
+                case "enchantments" -> item.setEnchantments(readEnchantments(in));
+                default -> throw new UnknownFieldException("item", name);
+            }
+        }
+        in.endObject();
+        return item;
+    }
+
+    private CrateConfig.HologramConfig readHologram(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        CrateConfig.HologramConfig hologram = new CrateConfig.HologramConfig();
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            switch (name) {
+                case "enabled" -> {
+                    if (!skipNull(in)) {
+                        hologram.setEnabled(readBoolean(in));
+                    }
+                }
+                case "lines" -> hologram.setLines(readStrings(in));
+                default -> throw new UnknownFieldException("hologram", name);
+            }
+        }
+        in.endObject();
+        return hologram;
+    }
+
+    private Map<String, Integer> readEnchantments(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        Map<String, Integer> enchantments = new LinkedHashMap<>();
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = intern(in.nextName());
+            Integer level = skipNull(in) ? null : in.nextInt();
+            if (enchantments.put(name, level) != null) {
+                throw new JsonSyntaxException("duplicate key: " + name);
+            }
+        }
+        in.endObject();
+        return enchantments;
+    }
+
+    private List<String> readStrings(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        List<String> values = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            values.add(readString(in, true));
+        }
+        in.endArray();
+        return values;
+    }
+
+    private String readString(JsonReader in, boolean intern) throws IOException {
+        JsonToken token = in.peek();
+        if (token == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        // Like Gson, accept a boolean or number where a string is expected
+        String value = token == JsonToken.BOOLEAN ? Boolean.toString(in.nextBoolean()) : in.nextString();
+        return intern ? intern(value) : value;
+    }
+
+    private static boolean readBoolean(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.STRING) {
+            return Boolean.parseBoolean(in.nextString());
+        }
+        return in.nextBoolean();
+    }
+
+    /**
+     * Consumes a null so a primitive field keeps its default, as Gson does.
+     */
+    private static boolean skipNull(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return true;
+        }
+        return false;
+    }
+
+    private String intern(String value) {
+        String existing = pool.putIfAbsent(value, value);
+        return existing != null ? existing : value;
+    }
+
+    // Writing
+
+    private static void writeCrate(JsonWriter out, CrateConfig config) throws IOException {
+        if (config == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        writeString(out, "id", config.getId());
+        writeString(out, "displayName", config.getDisplayName());
+        writeString(out, "blockType", config.getBlockType());
+        writeString(out, "keyId", config.getKeyId());
+        if (config.getKeyItem() != null) {
+            out.name("keyItem");
+            writeItem(out, config.getKeyItem());
+        }
+        if (config.getRewards() != null) {
+            out.name("rewards").beginArray();
+            for (RewardConfig reward : config.getRewards()) {
+                writeReward(out, reward);
+            }
+            out.endArray();
+        }
+        CrateConfig.HologramConfig hologram = config.getHologram();
+        if (hologram != null) {
+            out.name("hologram").beginObject();
+            out.name("enabled").value(hologram.isEnabled());
+            writeStrings(out, "lines", hologram.getLines());
+            out.endObject();
+        }
+        out.endObject();
+    }
+
+    private static void writeReward(JsonWriter out, RewardConfig reward) throws IOException {
+        if (reward == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        if (reward.getItem() != null) {
+            out.name("item");
+            writeItem(out, reward.getItem());
+        }
+        writeString(out, "rarity", reward.getRarity());
+        out.name("weight").value(reward.getWeight());
+        out.name("chance").value(reward.getChance());
+        out.endObject();
+    }
+
+    private static void writeItem(JsonWriter out, ItemConfig item) throws IOException {
+        out.beginObject();
+        writeString(out, "material", item.getMaterial());
+        out.name("amount").value(item.getAmount());
+        writeString(out, "displayName", item.rawDisplayName());
+        out.name("enchanted").value(item.isEnchanted());
+        if (item.rawLore() != null) {
+            writeStrings(out, "lore", item.rawLore());
+        }
+        Map<String, Integer> enchantments = item.rawEnchantments();
+        if (enchantments != null) {
+            out.name("enchantments").beginObject();
+            for (Map.Entry<String, Integer> entry : enchantments.entrySet()) {
+                out.name(entry.getKey());
+                if (entry.getValue() != null) {
+                    out.value(entry.getValue());
+                } else {
+                    out.nullValue();
+                }
+            }
+            out.endObject();
+        }
+        out.endObject();
+    }
+
+    private static void writeStrings(JsonWriter out, String name, List<String> values) throws IOException {
+        out.name(name).beginArray();
+        for (String value : values) {
+            out.value(value);
+        }
+        out.endArray();
+    }
+
+    private static void writeString(JsonWriter out, String name, String value) throws IOException {
+        if (value != null) {
+            out.name(name).value(value);
+        }
+    }
+
+    /**
+     * Thrown when a document has a field the streaming codec does not bind.
+     */
+    public static class UnknownFieldException extends JsonParseException {
+
+        private static final long serialVersionUID = 1L;
+
+        public UnknownFieldException(String object, String field) {
+            super("Unknown " + object + " field: " + field);
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.hytalecrates.config;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -92,6 +93,31 @@ public class ItemConfig {
         return lore != null && !lore.isEmpty();
     }
 
+    // Fields as set, for the serializers; the getters above substitute defaults
+
+    String rawDisplayName() {
+        return displayName;
+    }
+
+    List<String> rawLore() {
+        return lore;
+    }
+
+    Map<String, Integer> rawEnchantments() {
+        return enchantments;
+    }
+
+    /**
+     * Creates a deep copy.
+     */
+    public ItemConfig copy() {
+        ItemConfig copy = new ItemConfig(material, amount, displayName);
+        copy.enchanted = enchanted;
+        copy.lore = lore != null ? new ArrayList<>(lore) : null;
+        copy.enchantments = enchantments != null ? new LinkedHashMap<>(enchantments) : null;
+        return copy;
+    }
+
     @Override
     public String toString() {
         return "ItemConfig{" +
@@ -248,12 +248,24 @@ public class MainConfig {
         private boolean consumeKeyOnUse;
         private boolean preventCrateBreak;
         private int cooldownSeconds;
+        private String rewardSampler;
+        private String rngAlgorithm;
+        private Long rngSeed;
+        private boolean watchConfigFiles;
+        private int watchDebounceMillis;
+        private String locationIndex;
 
         public SettingsConfig() {
             this.requireKeyInHand = true;
             this.consumeKeyOnUse = true;
             this.preventCrateBreak = true;
             this.cooldownSeconds = 0;
+            this.rewardSampler = "ALIAS";
+            this.rngAlgorithm = "L64X128MixRandom";
+            this.rngSeed = null;
+            this.watchConfigFiles = false;
+            this.watchDebounceMillis = 500;
+            this.locationIndex = "HEAP";
         }
 
         public boolean isRequireKeyInHand() {
@@ -287,5 +299,85 @@ public class MainConfig {
         public void setCooldownSeconds(int cooldownSeconds) {
             this.cooldownSeconds = cooldownSeconds;
         }
+
+        /**
+         * Gets the reward sampler: "ALIAS" (O(1) per roll) or "CUMULATIVE" (legacy linear walk).
+         */
+        public String getRewardSampler() {
+            return rewardSampler != null ? rewardSampler : "ALIAS";
+        }
+
+        public void setRewardSampler(String rewardSampler) {
+            this.rewardSampler = rewardSampler;
+        }
+
+        /**
+         * Checks if the legacy cumulative sampler is selected (kept for benchmark comparison).
+         */
+        public boolean isCumulativeSampler() {
+            return "CUMULATIVE".equalsIgnoreCase(getRewardSampler());
+        }
+
+        /**
+         * Gets the java.util.random algorithm for reward rolls (e.g. L64X128MixRandom, Xoshiro256PlusPlus).
+         */
+        public String getRngAlgorithm() {
+            return rngAlgorithm;
+        }
+
+        public void setRngAlgorithm(String rngAlgorithm) {
+            this.rngAlgorithm = rngAlgorithm;
+        }
+
+        /**
+         * Gets the fixed RNG seed for reproducible runs, or null for a random seed.
+         */
+        public Long getRngSeed() {
+            return rngSeed;
+        }
+
+        public void setRngSeed(Long rngSeed) {
+            this.rngSeed = rngSeed;
+        }
+
+        /**
+         * Checks if config files are watched and changed crates reloaded automatically.
+         */
+        public boolean isWatchConfigFiles() {
+            return watchConfigFiles;
+        }
+
+        public void setWatchConfigFiles(boolean watchConfigFiles) {
+            this.watchConfigFiles = watchConfigFiles;
+        }
+
+        /**
+         * Gets how long the watcher waits for edits to settle before reloading, in milliseconds.
+         */
+        public int getWatchDebounceMillis() {
+            return watchDebounceMillis > 0 ? watchDebounceMillis : 500;
+        }
+
+        public void setWatchDebounceMillis(int watchDebounceMillis) {
+            this.watchDebounceMillis = watchDebounceMillis;
+        }
+
+        /**
+         * Gets where crate position tables are stored: "HEAP" or "OFF_HEAP" (native memory).
+         */
+        public String getLocationIndex() {
+            return locationIndex != null ? locationIndex : "HEAP";
+        }
+
+        public void setLocationIndex(String locationIndex) {
+            this.locationIndex = locationIndex;
+        }
+
+        /**
+         * Checks if crate position tables are kept off the Java heap.
+         */
+        public boolean isOffHeapLocationIndex() {
+            return "OFF_HEAP".equalsIgnoreCase(getLocationIndex());
+        }
     }
 }
@@ -0,0 +1,74 @@
+package com.hytalecrates.config;
+
+import java.util.List;
+
+/**
+ * Outcome of a staged configuration reload.
+ *
+ * <p>A failed reload changes nothing: the previous configuration and crate registry stay live.</p>
+ */
+public class ReloadResult {
+
+    private final boolean success;
+    private final List<String> errors;
+    private final int crateCount;
+    private final int locationCount;
+    private final long elapsedNanos;
+
+    private ReloadResult(boolean success, List<String> errors, int crateCount, int locationCount, long elapsedNanos) {
+        this.success = success;
+        this.errors = List.copyOf(errors);
+        this.crateCount = crateCount;
+        this.locationCount = locationCount;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Creates the result of a committed reload.
+     */
+    public static ReloadResult committed(int crateCount, int locationCount, long elapsedNanos) {
+        return new ReloadResult(true, List.of(), crateCount, locationCount, elapsedNanos);
+    }
+
+    /**
+     * Creates the result of a reload rejected before commit.
+     */
+    public static ReloadResult rejected(List<String> errors, long elapsedNanos) {
+        return new ReloadResult(false, errors, 0, 0, elapsedNanos);
+    }
+
+    /**
+     * Checks if the new configuration was committed.
+     */
+    public boolean isSuccess() {
+        return success;
+    }
+
+    /**
+     * Gets the problems that caused the reload to be rejected.
+     */
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    /**
+     * Gets the number of crates live after the reload.
+     */
+    public int getCrateCount() {
+        return crateCount;
+    }
+
+    /**
+     * Gets the number of crate locations live after the reload.
+     */
+    public int getLocationCount() {
+        return locationCount;
+    }
+
+    /**
+     * Gets the wall-clock time the reload took, in nanoseconds.
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+}
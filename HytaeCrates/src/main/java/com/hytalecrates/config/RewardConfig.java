@@ -55,4 +55,11 @@ public class RewardConfig {
     public void setChance(double chance) {
         this.chance = chance;
     }
+
+    /**
+     * Creates a deep copy.
+     */
+    public RewardConfig copy() {
+        return new RewardConfig(item != null ? item.copy() : null, rarity, weight, chance);
+    }
 }
@@ -0,0 +1,61 @@
+package com.hytalecrates.crate;
+
+/**
+ * Packs block coordinates into a single {@code long} for allocation-free lookups.
+ *
+ * <p>Layout (most to least significant): 26 bits x, 26 bits z, 12 bits y, each stored
+ * two's-complement. This covers x/z in [-33554432, 33554431] and y in [-2048, 2047].</p>
+ */
+public final class BlockKey {
+
+    private static final int XZ_BITS = 26;
+    private static final int Y_BITS = 12;
+    private static final long XZ_MASK = (1L << XZ_BITS) - 1;
+    private static final long Y_MASK = (1L << Y_BITS) - 1;
+    private static final int Z_SHIFT = Y_BITS;
+    private static final int X_SHIFT = Y_BITS + XZ_BITS;
+
+    private BlockKey() {}
+
+    /**
+     * Packs block coordinates into a key.
+     */
+    public static long pack(int x, int y, int z) {
+        return ((x & XZ_MASK) << X_SHIFT) | ((z & XZ_MASK) << Z_SHIFT) | (y & Y_MASK);
+    }
+
+    /**
+     * Gets the x coordinate from a packed key.
+     */
+    public static int unpackX(long key) {
+        return (int) (key >> X_SHIFT);
+    }
+
+    /**
+     * Gets the y coordinate from a packed key.
+     */
+    public static int unpackY(long key) {
+        return (int) (key << (64 - Y_BITS) >> (64 - Y_BITS));
+    }
+
+    /**
+     * Gets the z coordinate from a packed key.
+     */
+    public static int unpackZ(long key) {
+        return (int) (key << (64 - X_SHIFT) >> (64 - XZ_BITS));
+    }
+
+    /**
+     * Gets the key of the block directly above a packed key's block.
+     */
+    public static long above(long key) {
+        return (key & ~Y_MASK) | ((key + 1) & Y_MASK);
+    }
+
+    /**
+     * Gets the key of the block directly below a packed key's block.
+     */
+    public static long below(long key) {
+        return (key & ~Y_MASK) | ((key - 1) & Y_MASK);
+    }
+}
@@ -2,43 +2,105 @@ package com.hytalecrates.crate;
 
 import com.hytalecrates.config.CrateConfig;
 import com.hytalecrates.config.RewardConfig;
+import com.hytalecrates.reward.AliasTable;
 import com.hytalecrates.reward.Rarity;
 import com.hytalecrates.reward.Reward;
+import com.hytalecrates.util.MessageUtil;
 
 import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Represents a crate with its configuration and rewards.
+ *
+ * <p>A crate is an immutable snapshot compiled once from its {@link CrateConfig}: the reward
+ * list, total weight, rarity buckets, per-reward chances and the alias sampler are all
+ * precomputed, so accessors never recompute derived data. Changing a crate means compiling
+ * a new instance. Block placements are tracked by {@link CrateManager}.</p>
  */
 public class Crate {
 
     private final String id;
     private final String displayName;
+    private final String strippedDisplayName;
     private final String blockType;
     private final String keyId;
     private final CrateConfig config;
     private final List<Reward> rewards;
-    private final List<CrateLocation> locations;
+    private final long totalWeight;
+    private final Map<Rarity, List<Reward>> rewardsByRarity;
+    private final double[] probabilities;
+    private final String[] formattedChances;
+    private final AliasTable sampler;
 
     public Crate(CrateConfig config) {
+        this(config, null);
+    }
+
+    /**
+     * Creates a crate with a sampler compiled by a previous run, skipping the sampler build.
+     * A sampler that does not match the rewards is ignored and rebuilt.
+     *
+     * @param sampler Alias table over the reward weights, or null to build it
+     */
+    public Crate(CrateConfig config, AliasTable sampler) {
         this.id = config.getId();
         this.displayName = config.getDisplayName();
+        this.strippedDisplayName = MessageUtil.stripColors(displayName);
         this.blockType = config.getBlockType();
         this.keyId = config.getKeyId();
         this.config = config;
-        this.rewards = new ArrayList<>();
-        this.locations = new ArrayList<>();
 
         // Convert reward configs to Reward objects
-        for (RewardConfig rewardConfig : config.getRewards()) {
+        List<RewardConfig> rewardConfigs = config.getRewards();
+        List<Reward> compiled = new ArrayList<>();
+        for (RewardConfig rewardConfig : rewardConfigs) {
             Reward reward = new Reward(
                     rewardConfig.getItem(),
                     Rarity.fromString(rewardConfig.getRarity()),
                     rewardConfig.getWeight(),
                     rewardConfig.getChance()
             );
-            rewards.add(reward);
+            compiled.add(reward);
+        }
+        this.rewards = List.copyOf(compiled);
+
+        int n = rewards.size();
+        int[] weights = new int[n];
+        long total = 0;
+        EnumMap<Rarity, List<Reward>> buckets = new EnumMap<>(Rarity.class);
+        for (int i = 0; i < n; i++) {
+            Reward reward = rewards.get(i);
+            weights[i] = reward.getWeight();
+            total += Math.max(0, reward.getWeight());
+            buckets.computeIfAbsent(reward.getRarity(), r -> new ArrayList<>()).add(reward);
+        }
+        this.totalWeight = total;
+
+        EnumMap<Rarity, List<Reward>> frozen = new EnumMap<>(Rarity.class);
+        for (Rarity rarity : Rarity.values()) {
+            List<Reward> bucket = buckets.get(rarity);
+            frozen.put(rarity, bucket != null ? List.copyOf(bucket) : List.of());
+        }
+        this.rewardsByRarity = frozen;
+
+        this.probabilities = new double[n];
+        this.formattedChances = new String[n];
+        for (int i = 0; i < n; i++) {
+            // Same rule as the sampler: non-positive weights never hit, an all-zero crate is uniform
+            probabilities[i] = total > 0 ? Math.max(0, weights[i]) / (double) total : 1.0 / n;
+            formattedChances[i] = MessageUtil.formatChance(probabilities[i] * 100);
+        }
+
+        // Compile the O(1) sampler once (or reuse a compiled one); rolls never touch the weights again.
+        if (n == 0) {
+            this.sampler = null;
+        } else if (sampler != null && sampler.size() == n) {
+            this.sampler = sampler;
+        } else {
+            this.sampler = AliasTable.build(weights);
         }
     }
 
@@ -60,7 +122,7 @@ public class Crate {
      * Gets the display name without color codes.
      */
     public String getStrippedDisplayName() {
-        return displayName.replaceAll("&[0-9a-fk-or]", "");
+        return strippedDisplayName;
     }
 
     /**
@@ -78,63 +140,53 @@ public class Crate {
     }
 
     /**
-     * Gets the original configuration.
+     * Gets the configuration this crate was compiled from.
      */
     public CrateConfig getConfig() {
         return config;
     }
 
     /**
-     * Gets all possible rewards from this crate.
+     * Gets all possible rewards from this crate (unmodifiable).
      */
     public List<Reward> getRewards() {
         return rewards;
     }
 
     /**
-     * Gets the total weight of all rewards.
+     * Gets the alias table compiled from the reward weights, or null if there are no rewards.
+     * Indexes returned by the sampler map directly into {@link #getRewards()}.
      */
-    public int getTotalWeight() {
-        return rewards.stream().mapToInt(Reward::getWeight).sum();
+    public AliasTable getSampler() {
+        return sampler;
     }
 
     /**
-     * Gets all locations where this crate is placed.
+     * Gets the total weight of all rewards, ignoring non-positive weights.
      */
-    public List<CrateLocation> getLocations() {
-        return locations;
-    }
-
-    /**
-     * Adds a location to this crate.
-     */
-    public void addLocation(CrateLocation location) {
-        if (!locations.contains(location)) {
-            locations.add(location);
-        }
+    public long getTotalWeight() {
+        return totalWeight;
     }
 
     /**
-     * Removes a location from this crate.
+     * Gets the weight-derived probability (0-1) of the reward at an index.
      */
-    public boolean removeLocation(CrateLocation location) {
-        return locations.remove(location);
+    public double getProbability(int rewardIndex) {
+        return probabilities[rewardIndex];
     }
 
     /**
-     * Checks if this crate exists at the given location.
+     * Gets the weight-derived chance of the reward at an index, formatted for display.
      */
-    public boolean isAtLocation(String world, int x, int y, int z) {
-        return locations.stream().anyMatch(loc -> loc.matches(world, x, y, z));
+    public String getFormattedChance(int rewardIndex) {
+        return formattedChances[rewardIndex];
     }
 
     /**
-     * Gets rewards filtered by rarity.
+     * Gets rewards filtered by rarity (unmodifiable).
      */
     public List<Reward> getRewardsByRarity(Rarity rarity) {
-        return rewards.stream()
-                .filter(r -> r.getRarity() == rarity)
-                .toList();
+        return rewardsByRarity.get(rarity);
     }
 
     /**
@@ -148,7 +200,7 @@ public class Crate {
      * Checks if this crate has any legendary rewards.
      */
     public boolean hasLegendaryRewards() {
-        return rewards.stream().anyMatch(r -> r.getRarity() == Rarity.LEGENDARY);
+        return !rewardsByRarity.get(Rarity.LEGENDARY).isEmpty();
     }
 
     @Override
@@ -157,7 +209,6 @@ public class Crate {
                 "id='" + id + '\'' +
                 ", displayName='" + displayName + '\'' +
                 ", rewards=" + rewards.size() +
-                ", locations=" + locations.size() +
                 '}';
     }
 }
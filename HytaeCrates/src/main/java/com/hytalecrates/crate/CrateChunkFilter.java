@@ -0,0 +1,64 @@
+package com.hytalecrates.crate;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Counting presence filter of chunk columns that contain at least one crate.
+ *
+ * <p>Used as a negative fast path: if {@link #mightContain(int, int)} returns false, no crate
+ * exists anywhere in that 32x32 column, so interaction events can be dropped before the world
+ * is even resolved. Columns are hashed into a fixed table of counters without the world, so
+ * collisions and same-column crates in other worlds only cause false positives, never false
+ * negatives. Counters make removal exact. Safe to read from any thread.</p>
+ */
+public class CrateChunkFilter {
+
+    /**
+     * Block-to-chunk shift (32-block chunk columns).
+     */
+    public static final int CHUNK_SHIFT = 5;
+
+    private static final int TABLE_BITS = 14;
+    private static final int TABLE_MASK = (1 << TABLE_BITS) - 1;
+
+    private final AtomicIntegerArray counts = new AtomicIntegerArray(1 << TABLE_BITS);
+
+    /**
+     * Checks whether the chunk column containing a block might hold a crate.
+     */
+    public boolean mightContain(int blockX, int blockZ) {
+        return counts.get(slot(blockX, blockZ)) > 0;
+    }
+
+    /**
+     * Records a crate in the chunk column containing a block.
+     * Must be called before the crate becomes visible in the location index.
+     */
+    public void add(int blockX, int blockZ) {
+        counts.incrementAndGet(slot(blockX, blockZ));
+    }
+
+    /**
+     * Removes a crate from the chunk column containing a block.
+     * Must be called after the crate is removed from the location index.
+     */
+    public void remove(int blockX, int blockZ) {
+        int slot = slot(blockX, blockZ);
+        counts.getAndUpdate(slot, count -> count > 0 ? count - 1 : 0);
+    }
+
+    /**
+     * Resets every counter.
+     */
+    public void clear() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+    }
+
+    private static int slot(int blockX, int blockZ) {
+        long chunk = ((long) (blockX >> CHUNK_SHIFT) << 32) | ((blockZ >> CHUNK_SHIFT) & 0xFFFFFFFFL);
+        chunk *= 0x9E3779B97F4A7C15L;
+        return (int) (chunk >>> (64 - TABLE_BITS)) & TABLE_MASK;
+    }
+}
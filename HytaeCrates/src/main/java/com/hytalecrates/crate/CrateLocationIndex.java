@@ -0,0 +1,171 @@
+package com.hytalecrates.crate;
+
+import com.hytalecrates.util.LongIntHashMap;
+import com.hytalecrates.util.LongIntMap;
+import com.hytalecrates.util.OffHeapLongIntMap;
+
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * Spatial index from block position to crate.
+ *
+ * <p>One {@link LongIntMap} per world, addressed by interned world id and keyed by
+ * {@link BlockKey} packed coordinates. Values are interned crate ids. All lookups are
+ * allocation-free. Tables are {@link LongIntHashMap}s on the heap by default, or
+ * {@link OffHeapLongIntMap}s in native memory for worlds with millions of placements (see
+ * {@link #offHeap()}).</p>
+ *
+ * <p>Copies made with {@link #CrateLocationIndex(CrateLocationIndex)} share every world table
+ * with their source and clone a table only on its first write, so editing one world of a
+ * published index costs one table copy and leaves the source untouched.</p>
+ */
+public class CrateLocationIndex {
+
+    /**
+     * Returned by lookups when no crate is at the position.
+     */
+    public static final int NONE = -1;
+
+    private final Supplier<LongIntMap> tableFactory;
+    private LongIntMap[] worlds;
+    // Tables this instance created or cloned, and may therefore mutate in place
+    private boolean[] owned;
+    private int size;
+
+    public CrateLocationIndex() {
+        this(LongIntHashMap::new);
+    }
+
+    private CrateLocationIndex(Supplier<LongIntMap> tableFactory) {
+        this.tableFactory = tableFactory;
+        this.worlds = new LongIntMap[4];
+        this.owned = new boolean[4];
+    }
+
+    /**
+     * Creates an empty index whose world tables live in native memory.
+     */
+    public static CrateLocationIndex offHeap() {
+        return new CrateLocationIndex(OffHeapLongIntMap::new);
+    }
+
+    /**
+     * Creates a copy-on-write copy of another index. The source is never modified through it.
+     */
+    public CrateLocationIndex(CrateLocationIndex base) {
+        this.tableFactory = base.tableFactory;
+        this.worlds = base.worlds.clone();
+        this.owned = new boolean[worlds.length];
+        this.size = base.size;
+    }
+
+    /**
+     * Gets the crate id at an exact position, or {@link #NONE}.
+     */
+    public int get(int worldId, int x, int y, int z) {
+        LongIntMap world = world(worldId);
+        return world != null ? world.get(BlockKey.pack(x, y, z)) : NONE;
+    }
+
+    /**
+     * Gets the crate id at a position, falling back to the blocks directly above and below.
+     * Some interactions report container blocks one block off vertically.
+     */
+    public int findVertical(int worldId, int x, int y, int z) {
+        LongIntMap world = world(worldId);
+        if (world == null) {
+            return NONE;
+        }
+        long key = BlockKey.pack(x, y, z);
+        int crateId = world.get(key);
+        if (crateId == NONE) {
+            crateId = world.get(BlockKey.above(key));
+        }
+        if (crateId == NONE) {
+            crateId = world.get(BlockKey.below(key));
+        }
+        return crateId;
+    }
+
+    /**
+     * Places a crate at a position.
+     *
+     * @return The crate id previously at the position, or {@link #NONE}
+     */
+    public int put(int worldId, int x, int y, int z, int crateId) {
+        if (worldId >= worlds.length) {
+            int length = Math.max(worlds.length << 1, worldId + 1);
+            worlds = Arrays.copyOf(worlds, length);
+            owned = Arrays.copyOf(owned, length);
+        }
+        LongIntMap world = writable(worldId);
+        int previous = world.put(BlockKey.pack(x, y, z), crateId);
+        if (previous == NONE) {
+            size++;
+        }
+        return previous;
+    }
+
+    /**
+     * Removes the crate at a position.
+     *
+     * @return The removed crate id, or {@link #NONE}
+     */
+    public int remove(int worldId, int x, int y, int z) {
+        LongIntMap world = world(worldId);
+        long key = BlockKey.pack(x, y, z);
+        if (world == null || !world.containsKey(key)) {
+            return NONE;
+        }
+        size--;
+        return writable(worldId).remove(key);
+    }
+
+    /**
+     * Removes every position in a world by dropping its table, without copying it.
+     *
+     * @return The number of positions removed
+     */
+    public int removeWorld(int worldId) {
+        LongIntMap world = world(worldId);
+        if (world == null) {
+            return 0;
+        }
+        int removed = world.size();
+        worlds[worldId] = null;
+        owned[worldId] = false;
+        size -= removed;
+        return removed;
+    }
+
+    /**
+     * Gets the total number of indexed positions across all worlds.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public void clear() {
+        Arrays.fill(worlds, null);
+        Arrays.fill(owned, false);
+        size = 0;
+    }
+
+    private LongIntMap writable(int worldId) {
+        LongIntMap world = worlds[worldId];
+        if (!owned[worldId]) {
+            world = world != null ? world.copy() : tableFactory.get();
+            worlds[worldId] = world;
+            owned[worldId] = true;
+        }
+        return world;
+    }
+
+    private LongIntMap world(int worldId) {
+        return worldId >= 0 && worldId < worlds.length ? worlds[worldId] : null;
+    }
+}
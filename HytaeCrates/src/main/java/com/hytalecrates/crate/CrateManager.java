@@ -1,105 +1,491 @@
 package com.hytalecrates.crate;
 
-import com.google.gson.reflect.TypeToken;
 import com.hytalecrates.CratesPlugin;
+import com.hytalecrates.config.CompiledConfig;
 import com.hytalecrates.config.CrateConfig;
-
-import java.io.*;
-import java.lang.reflect.Type;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
+import com.hytalecrates.config.MainConfig;
+import com.hytalecrates.key.CrateKey;
+import com.hytalecrates.reward.Reward;
+import com.hytalecrates.storage.IoExecutor;
+import com.hytalecrates.storage.LocationJournal;
+import com.hytalecrates.storage.WorldLocationStore;
+import com.hytalecrates.util.IdInterner;
+import com.hytalecrates.util.PhaseTimer;
+
+import java.io.IOException;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
 import java.util.logging.Level;
 
 /**
  * Manages all crates in the plugin - registration, locations, and lookups.
+ *
+ * <p>All crate state lives in an immutable {@link CrateRegistrySnapshot} behind one atomic
+ * reference. Reads (including every interaction event) dereference it once with no locks;
+ * writes build a new snapshot from the current one and compare-and-set it in, retrying if
+ * another writer got there first.</p>
+ *
+ * <p>Placements are stored per world by a {@link WorldLocationStore} and held in the registry
+ * only while the world is loaded: from the first time a player enters it until the last one
+ * leaves. Placement changes are not saved on the calling thread. Each one is recorded in a
+ * {@link LocationJournal} that a background thread appends in batches; world files are
+ * rewritten only when the journal is compacted, when a world unloads and on shutdown.</p>
  */
 public class CrateManager {
 
     private final CratesPlugin plugin;
-    private final Map<String, Crate> crates;
-    private final Map<CrateLocation, String> locationToCrate;
-    private final Path locationsPath;
+    private final IdInterner worldIds;
+    private final IdInterner crateIds;
+    private final AtomicReference<CrateRegistrySnapshot> registry;
+    private final CrateChunkFilter chunkFilter;
+    private final Path legacyLocationsPath;
+    private final WorldLocationStore store;
+    private final LocationJournal journal;
+    private final Set<String> loadedWorlds;
+    // Loaded worlds with placement changes not yet in their file
+    private final Set<String> dirtyWorlds;
+    // Serializes publishing, evicting and saving of world placements, and placement changes
+    private final Object worldLock = new Object();
+    // Worlds whose file is being read, by the read; guarded by worldLock
+    private final Map<String, CompletableFuture<Boolean>> loadingWorlds = new HashMap<>();
+    // Worlds saving before eviction, by the save; guarded by worldLock
+    private final Map<String, CompletableFuture<Void>> unloadingWorlds = new HashMap<>();
+    // Serializes publishing crate edits with queueing their saves
+    private final Object editLock = new Object();
 
     public CrateManager(CratesPlugin plugin) {
         this.plugin = plugin;
-        this.crates = new HashMap<>();
-        this.locationToCrate = new HashMap<>();
-        this.locationsPath = plugin.getDataDirectory().resolve("locations.json");
+        this.worldIds = new IdInterner();
+        this.crateIds = new IdInterner();
+        this.registry = new AtomicReference<>(CrateRegistrySnapshot.empty(worldIds, crateIds));
+        this.chunkFilter = new CrateChunkFilter();
+        this.legacyLocationsPath = plugin.getDataDirectory().resolve("locations.json");
+        this.store = new WorldLocationStore(plugin, plugin.getConfigManager().getGson(),
+                plugin.getDataDirectory().resolve("locations"));
+        this.loadedWorlds = ConcurrentHashMap.newKeySet();
+        this.dirtyWorlds = ConcurrentHashMap.newKeySet();
+        this.journal = new LocationJournal(plugin.getStorageLog(), plugin.getDataDirectory().resolve("locations.journal"),
+                this::crateIdAt, loadedWorlds::contains, this::writeDirtyWorlds);
     }
 
     /**
      * Loads all crates from configuration.
      */
     public void loadCrates() {
-        crates.clear();
-        locationToCrate.clear();
+        loadCrates(new PhaseTimer());
+    }
+
+    /**
+     * Loads all crates from configuration, recording "crates", "keys" and "locations" phases.
+     * Placements in loaded worlds are kept; other worlds load when a player enters them.
+     */
+    public void loadCrates(PhaseTimer timer) {
+        CrateRegistrySnapshot.Builder builder = newBuilder(plugin.getConfigManager().getMainConfig().getSettings());
 
         Map<String, CrateConfig> configs = plugin.getConfigManager().getCrateConfigs();
+        CompiledConfig compiled = plugin.getConfigManager().getCompiledConfig();
+        List<Crate> loaded = new ArrayList<>(configs.size());
         for (CrateConfig config : configs.values()) {
-            Crate crate = new Crate(config);
-            crates.put(crate.getId(), crate);
+            loaded.add(compile(config, compiled));
+        }
+        timer.mark("crates");
+
+        for (Crate crate : loaded) {
+            builder.putCrate(crate);
+            plugin.getLogger().at(Level.INFO).log("Registered key: %s for crate: %s", crate.getKeyId(), crate.getId());
+        }
+        timer.mark("keys");
+
+        for (Map.Entry<String, PlacementSet> entry : registry.get().getPlacements().entrySet()) {
+            if (builder.hasCrate(entry.getKey())) {
+                entry.getValue().forEach(location -> builder.putLocation(entry.getKey(), location));
+            }
+        }
+
+        CrateRegistrySnapshot next = builder.build();
+        // Resolve item ids and build prototypes before publishing; both are kept once assets are loaded
+        for (Crate crate : next.getCrates()) {
+            for (Reward reward : crate.getRewards()) {
+                reward.getItemPrototype();
+            }
+        }
+        for (CrateKey key : next.getKeys().values()) {
+            key.getItemPrototype();
+        }
+        // Grow the chunk filter before publishing and shrink it after, so it never reports a
+        // false negative for a crate that is visible in either generation.
+        forEachLocation(next, location -> chunkFilter.add(location.getX(), location.getZ()));
+        CrateRegistrySnapshot previous = registry.getAndSet(next);
+        forEachLocation(previous, location -> chunkFilter.remove(location.getX(), location.getZ()));
+
+        migrateLegacyLocations();
+        recoverJournal();
+        timer.mark("locations");
+        plugin.getLogger().at(Level.INFO).log("Loaded %d crate(s).", next.getCrates().size());
+    }
+
+    /**
+     * Creates an empty registry builder with the location index selected in the settings.
+     */
+    private CrateRegistrySnapshot.Builder newBuilder(MainConfig.SettingsConfig settings) {
+        boolean offHeap = settings != null && settings.isOffHeapLocationIndex();
+        return CrateRegistrySnapshot.builder(worldIds, crateIds,
+                offHeap ? CrateLocationIndex.offHeap() : new CrateLocationIndex());
+    }
+
+    /**
+     * Splits a pre-per-world locations.json into world files, once.
+     */
+    private void migrateLegacyLocations() {
+        try {
+            store.migrateLegacy(legacyLocationsPath);
+        } catch (Exception e) {
+            plugin.getLogger().at(Level.SEVERE).withCause(e).log("Failed to migrate %s", legacyLocationsPath.getFileName());
+        }
+    }
+
+    /**
+     * Applies changes journaled before the last shutdown or crash to the world files, then
+     * starts the journal. The journal is only truncated if every world file was updated.
+     */
+    private void recoverJournal() {
+        Map<String, Map<CrateLocation, String>> changes = new LinkedHashMap<>();
+        int replayed = journal.replay(
+                (crateId, location) -> changes.computeIfAbsent(location.getWorldName(), w -> new LinkedHashMap<>())
+                        .put(location, crateId),
+                location -> changes.computeIfAbsent(location.getWorldName(), w -> new LinkedHashMap<>())
+                        .put(location, null));
+
+        boolean recovered = true;
+        for (Map.Entry<String, Map<CrateLocation, String>> entry : changes.entrySet()) {
+            try {
+                Map<CrateLocation, String> placements = store.load(entry.getKey());
+                for (Map.Entry<CrateLocation, String> change : entry.getValue().entrySet()) {
+                    if (change.getValue() != null) {
+                        placements.put(change.getKey(), change.getValue());
+                    } else {
+                        placements.remove(change.getKey());
+                    }
+                }
+                IoExecutor.await(store.save(entry.getKey(), placements));
+            } catch (Exception e) {
+                recovered = false;
+                plugin.getLogger().at(Level.SEVERE).withCause(e).log("Failed to apply journaled locations for world %s", entry.getKey());
+            }
+        }
+
+        journal.start();
+        if (replayed > 0) {
+            plugin.getLogger().at(Level.INFO).log("Recovered %d journaled location change(s) in %d world(s).",
+                    replayed, changes.size());
+            if (recovered) {
+                journal.requestCompaction();
+            }
+        }
+    }
+
+    /**
+     * Loads a world's placements if they are not loaded yet, waiting for the read. Called
+     * before any placement change in the world.
+     *
+     * @return true if the world's placements are loaded
+     */
+    public boolean loadWorld(String world) {
+        return loadWorldAsync(world).join();
+    }
+
+    /**
+     * Starts loading a world's placements if they are not loaded yet. The file is read on a
+     * pool thread and the placements are published when the read finishes. Called when a
+     * player enters a world; cancels an unload of the world that is still saving.
+     *
+     * @return A future completed with true once the world's placements are loaded, or false
+     *         if its file could not be read
+     */
+    public CompletableFuture<Boolean> loadWorldAsync(String world) {
+        if (world == null) {
+            return CompletableFuture.completedFuture(false);
+        }
+
+        synchronized (worldLock) {
+            unloadingWorlds.remove(world);
+            if (loadedWorlds.contains(world)) {
+                return CompletableFuture.completedFuture(true);
+            }
+            CompletableFuture<Boolean> load = loadingWorlds.get(world);
+            if (load == null) {
+                // The read cannot finish before it is registered, since it publishes under the lock
+                load = CompletableFuture.supplyAsync(() -> readWorld(world), ForkJoinPool.commonPool());
+                loadingWorlds.put(world, load);
+            }
+            return load;
+        }
+    }
+
+    /**
+     * Reads a world's file and publishes its placements.
+     */
+    private boolean readWorld(String world) {
+        Map<CrateLocation, String> placements;
+        try {
+            placements = store.load(world);
+        } catch (Exception e) {
+            synchronized (worldLock) {
+                loadingWorlds.remove(world);
+            }
+            // Not marked loaded, so nothing overwrites the file with partial data
+            plugin.getLogger().at(Level.SEVERE).withCause(e).log("Failed to load crate locations for world %s", world);
+            return false;
+        }
+
+        int unknown = 0;
+        synchronized (worldLock) {
+            try {
+                placements.keySet().forEach(location -> chunkFilter.add(location.getX(), location.getZ()));
+                CrateRegistrySnapshot[] committed = new CrateRegistrySnapshot[1];
+                update(current -> {
+                    CrateRegistrySnapshot.Builder builder = current.toBuilder();
+                    for (Map.Entry<CrateLocation, String> entry : placements.entrySet()) {
+                        if (builder.hasCrate(entry.getValue())) {
+                            builder.putLocation(entry.getValue(), entry.getKey());
+                        }
+                    }
+                    committed[0] = builder.build();
+                    return committed[0];
+                });
+                loadedWorlds.add(world);
+
+                for (Map.Entry<CrateLocation, String> entry : placements.entrySet()) {
+                    if (committed[0].getCrate(entry.getValue()) == null) {
+                        chunkFilter.remove(entry.getKey().getX(), entry.getKey().getZ());
+                        unknown++;
+                    }
+                }
+            } finally {
+                loadingWorlds.remove(world);
+            }
+        }
+
+        if (unknown > 0) {
+            plugin.getLogger().at(Level.WARNING).log("Skipped %d location(s) of unknown crates in world %s", unknown, world);
+        }
+        plugin.getLogger().at(Level.INFO).log("Loaded %d crate location(s) for world %s.",
+                placements.size() - unknown, world);
+        return true;
+    }
 
-            // Register the key for this crate
-            plugin.getKeyManager().registerKey(crate);
+    /**
+     * Saves a world's placements and drops them from memory once the file is on disk, without
+     * waiting for it. Called on the world thread when the last player leaves a world. The
+     * world stays loaded if saving fails, if its placements change while saving or if a
+     * player enters it again first.
+     */
+    public void unloadWorld(String world) {
+        if (world == null) {
+            return;
         }
 
-        // Load saved locations
-        loadCrateLocations();
+        CompletableFuture<Void> save;
+        synchronized (worldLock) {
+            if (!loadedWorlds.contains(world) || unloadingWorlds.containsKey(world)) {
+                return;
+            }
+            // A change made while saving marks it dirty again, which keeps it loaded
+            dirtyWorlds.remove(world);
+            save = store.save(world, registry.get().getPlacementsInWorld(world));
+            unloadingWorlds.put(world, save);
+        }
+        save.whenComplete((ignored, failure) -> evictWorld(world, save, failure));
+    }
+
+    /**
+     * Drops a world's placements after its unload save finished, unless the unload was
+     * overtaken in the meantime.
+     */
+    private void evictWorld(String world, CompletableFuture<Void> save, Throwable failure) {
+        Map<CrateLocation, String> evicted;
+        synchronized (worldLock) {
+            if (!unloadingWorlds.remove(world, save)) {
+                return;
+            }
+            if (failure != null) {
+                dirtyWorlds.add(world);
+                plugin.getLogger().at(Level.SEVERE).withCause(failure).log("Failed to save crate locations for world %s; keeping it loaded", world);
+                return;
+            }
+            if (dirtyWorlds.contains(world)) {
+                return;
+            }
+
+            loadedWorlds.remove(world);
+            CrateRegistrySnapshot previous = update(current -> {
+                CrateRegistrySnapshot.Builder builder = current.toBuilder();
+                return builder.removeWorld(world) > 0 ? builder.build() : current;
+            });
+            evicted = previous.getPlacementsInWorld(world);
+            evicted.keySet().forEach(location -> chunkFilter.remove(location.getX(), location.getZ()));
+        }
+        plugin.getLogger().at(Level.INFO).log("Unloaded %d crate location(s) for world %s.", evicted.size(), world);
 
-        plugin.getLogger().at(Level.INFO).log("Loaded %d crate(s).", crates.size());
+        // The world file now supersedes its journal records
+        journal.requestCompaction();
+    }
+
+    /**
+     * Checks if a world's placements are loaded.
+     */
+    public boolean isWorldLoaded(String world) {
+        return loadedWorlds.contains(world);
+    }
+
+    /**
+     * Compiles a crate, reusing its sampler from the compiled snapshot if present.
+     */
+    private static Crate compile(CrateConfig config, CompiledConfig compiled) {
+        if (compiled == null || compiled.getCrateConfigs().get(config.getId()) != config) {
+            return new Crate(config);
+        }
+        return new Crate(config, compiled.getSampler(config.getId()));
+    }
+
+    /**
+     * Gets the current registry snapshot. Callers that make several reads should fetch it
+     * once and read from it, so all reads see the same generation.
+     */
+    public CrateRegistrySnapshot getSnapshot() {
+        return registry.get();
     }
 
     /**
      * Gets a crate by its ID.
      */
     public Optional<Crate> getCrate(String id) {
-        return Optional.ofNullable(crates.get(id));
+        return Optional.ofNullable(registry.get().getCrate(id));
     }
 
     /**
      * Gets the crate at a specific location.
      */
     public Optional<Crate> getCrateAt(String world, int x, int y, int z) {
-        CrateLocation location = new CrateLocation(world, x, y, z);
-        String crateId = locationToCrate.get(location);
-        if (crateId != null) {
-            return getCrate(crateId);
-        }
-        return Optional.empty();
+        return Optional.ofNullable(findCrateAt(world, x, y, z));
     }
 
     /**
      * Gets the crate at a specific location.
      */
     public Optional<Crate> getCrateAt(CrateLocation location) {
-        String crateId = locationToCrate.get(location);
-        if (crateId != null) {
-            return getCrate(crateId);
+        return Optional.ofNullable(registry.get().findCrateAt(location));
+    }
+
+    /**
+     * Gets the crate at a specific location, or null. Allocation-free.
+     */
+    public Crate findCrateAt(String world, int x, int y, int z) {
+        return registry.get().findCrateAt(world, x, y, z);
+    }
+
+    /**
+     * Gets the crate at a location or directly above/below it, or null. Allocation-free.
+     * Some interactions report container blocks one block off vertically.
+     */
+    public Crate findCrateNear(String world, int x, int y, int z) {
+        return registry.get().findCrateNear(world, x, y, z);
+    }
+
+    /**
+     * Fast negative check for interaction handlers: returns false only if no crate exists in
+     * the chunk column containing the block, in any world. Safe to call from any thread.
+     */
+    public boolean mightHaveCrateNear(int x, int z) {
+        return chunkFilter.mightContain(x, z);
+    }
+
+    /**
+     * Applies an update to the registry with compare-and-set, retrying on contention.
+     * The update must be side-effect free because it may run more than once; returning
+     * its argument unchanged skips publishing.
+     *
+     * @return The snapshot the update was applied to
+     */
+    private CrateRegistrySnapshot update(UnaryOperator<CrateRegistrySnapshot> update) {
+        while (true) {
+            CrateRegistrySnapshot current = registry.get();
+            CrateRegistrySnapshot next = update.apply(current);
+            if (next == current || registry.compareAndSet(current, next)) {
+                return current;
+            }
+        }
+    }
+
+    /**
+     * Runs a placement change with its world loaded. The change runs under the world lock, so
+     * the world cannot be evicted between the change and its journal record.
+     */
+    private boolean changeInLoadedWorld(String world, BooleanSupplier change) {
+        while (loadWorld(world)) {
+            synchronized (worldLock) {
+                if (loadedWorlds.contains(world)) {
+                    return change.getAsBoolean();
+                }
+            }
+            // Evicted between loading and locking; load it again
+        }
+        return false;
+    }
+
+    private void recordChange(CrateLocation location) {
+        dirtyWorlds.add(location.getWorldName());
+        journal.record(location);
+    }
+
+    private String crateIdAt(CrateLocation location) {
+        Crate crate = registry.get().findCrateAt(location);
+        return crate != null ? crate.getId() : null;
+    }
+
+    private static void forEachLocation(CrateRegistrySnapshot snapshot, Consumer<CrateLocation> action) {
+        for (PlacementSet locations : snapshot.getPlacements().values()) {
+            locations.forEach(action);
         }
-        return Optional.empty();
     }
 
     /**
      * Sets a block location as a crate.
      */
     public boolean setCrateLocation(String crateId, CrateLocation location) {
-        Optional<Crate> crateOpt = getCrate(crateId);
-        if (crateOpt.isEmpty()) {
-            return false;
-        }
+        return changeInLoadedWorld(location.getWorldName(), () -> putLocation(crateId, location));
+    }
 
-        // Remove any existing crate at this location
-        removeCrateLocation(location);
+    private boolean putLocation(String crateId, CrateLocation location) {
+        chunkFilter.add(location.getX(), location.getZ());
 
-        // Add the new crate location
-        Crate crate = crateOpt.get();
-        crate.addLocation(location);
-        locationToCrate.put(location, crateId);
+        // Replaces any existing crate at this location
+        CrateRegistrySnapshot previous = update(current -> {
+            if (current.getCrate(crateId) == null) {
+                return current;
+            }
+            CrateRegistrySnapshot.Builder builder = current.toBuilder();
+            builder.putLocation(crateId, location);
+            return builder.build();
+        });
+
+        if (previous.getCrate(crateId) == null || previous.findCrateAt(location) != null) {
+            // Unknown crate, or the position was already counted once
+            chunkFilter.remove(location.getX(), location.getZ());
+        }
+        if (previous.getCrate(crateId) == null) {
+            return false;
+        }
 
-        // Save locations
-        saveCrateLocations();
+        recordChange(location);
 
         plugin.getLogger().at(Level.INFO).log("Set crate %s at %s", crateId, location.toDisplayString());
         return true;
@@ -109,11 +495,22 @@ public class CrateManager {
      * Removes a crate from a location.
      */
     public boolean removeCrateLocation(CrateLocation location) {
-        String crateId = locationToCrate.remove(location);
-        if (crateId != null) {
-            Optional<Crate> crateOpt = getCrate(crateId);
-            crateOpt.ifPresent(crate -> crate.removeLocation(location));
-            saveCrateLocations();
+        return changeInLoadedWorld(location.getWorldName(), () -> removeLocation(location));
+    }
+
+    private boolean removeLocation(CrateLocation location) {
+        CrateRegistrySnapshot previous = update(current -> {
+            if (current.findCrateAt(location) == null) {
+                return current;
+            }
+            CrateRegistrySnapshot.Builder builder = current.toBuilder();
+            builder.removeLocation(location);
+            return builder.build();
+        });
+
+        if (previous.findCrateAt(location) != null) {
+            chunkFilter.remove(location.getX(), location.getZ());
+            recordChange(location);
             plugin.getLogger().at(Level.INFO).log("Removed crate from %s", location.toDisplayString());
             return true;
         }
@@ -124,139 +521,304 @@ public class CrateManager {
      * Checks if a location has a crate.
      */
     public boolean isCrateLocation(CrateLocation location) {
-        return locationToCrate.containsKey(location);
+        return registry.get().findCrateAt(location) != null;
     }
 
     /**
      * Checks if a location has a crate.
      */
     public boolean isCrateLocation(String world, int x, int y, int z) {
-        return isCrateLocation(new CrateLocation(world, x, y, z));
+        return findCrateAt(world, x, y, z) != null;
+    }
+
+    /**
+     * Gets all locations where a crate is placed, in loaded worlds.
+     */
+    public PlacementSet getLocations(String crateId) {
+        return registry.get().getLocations(crateId);
     }
 
     /**
      * Gets all registered crates.
      */
     public Collection<Crate> getAllCrates() {
-        return crates.values();
+        return registry.get().getCrates();
     }
 
     /**
      * Gets all crate IDs.
      */
     public Set<String> getCrateIds() {
-        return crates.keySet();
+        return registry.get().getCrateIds();
     }
 
     /**
-     * Gets the total number of crate locations.
+     * Gets the total number of crate locations in loaded worlds.
      */
     public int getTotalLocations() {
-        return locationToCrate.size();
+        return registry.get().getTotalLocations();
     }
 
     /**
-     * Saves crate locations to file.
+     * Gets the number of worlds whose placements are loaded.
      */
-    public void saveCrateLocations() {
-        Map<String, List<String>> locationData = new HashMap<>();
-
-        for (Crate crate : crates.values()) {
-            List<String> locations = crate.getLocations().stream()
-                    .map(CrateLocation::toString)
-                    .toList();
-            if (!locations.isEmpty()) {
-                locationData.put(crate.getId(), locations);
-            }
-        }
+    public int getLoadedWorldCount() {
+        return loadedWorlds.size();
+    }
 
-        try (Writer writer = Files.newBufferedWriter(locationsPath, StandardCharsets.UTF_8)) {
-            plugin.getConfigManager().getGson().toJson(locationData, writer);
+    /**
+     * Gets the number of loaded worlds with placement changes not yet written to their file.
+     */
+    public int getDirtyWorldCount() {
+        return dirtyWorlds.size();
+    }
+
+    /**
+     * Saves the crate locations of every loaded world changed since its last save. Worlds
+     * without changes are not rewritten.
+     */
+    public void saveCrateLocations() {
+        try {
+            writeDirtyWorlds();
         } catch (IOException e) {
             plugin.getLogger().at(Level.SEVERE).withCause(e).log("Failed to save crate locations");
         }
     }
 
     /**
-     * Loads crate locations from file.
+     * Rewrites the file of every loaded world with unsaved changes and waits until they are
+     * on disk. Also the location journal's compaction step, so it throws rather than let the
+     * journal be truncated.
      */
-    private void loadCrateLocations() {
-        if (!Files.exists(locationsPath)) {
-            return;
+    private void writeDirtyWorlds() throws IOException {
+        Map<String, CompletableFuture<Void>> writes = new LinkedHashMap<>();
+        synchronized (worldLock) {
+            for (String world : new ArrayList<>(dirtyWorlds)) {
+                // Cleared before reading the registry, so a concurrent change marks it again
+                dirtyWorlds.remove(world);
+                if (loadedWorlds.contains(world)) {
+                    writes.put(world, store.save(world, registry.get().getPlacementsInWorld(world)));
+                }
+            }
         }
 
-        try (Reader reader = Files.newBufferedReader(locationsPath, StandardCharsets.UTF_8)) {
-            Type type = new TypeToken<Map<String, List<String>>>() {}.getType();
-            Map<String, List<String>> locationData = plugin.getConfigManager().getGson().fromJson(reader, type);
+        // Waited for outside the lock, so world loads are not held up by disk I/O
+        IOException failure = null;
+        for (Map.Entry<String, CompletableFuture<Void>> write : writes.entrySet()) {
+            try {
+                IoExecutor.await(write.getValue());
+            } catch (IOException e) {
+                dirtyWorlds.add(write.getKey());
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
 
-            if (locationData != null) {
-                for (Map.Entry<String, List<String>> entry : locationData.entrySet()) {
-                    String crateId = entry.getKey();
-                    Optional<Crate> crateOpt = getCrate(crateId);
-                    if (crateOpt.isEmpty()) {
-                        plugin.getLogger().at(Level.WARNING).log("Unknown crate in locations file: %s", crateId);
-                        continue;
-                    }
+    /**
+     * Writes pending location changes, compacts the journal into the world files and stops
+     * the journal thread. Called on shutdown.
+     */
+    public void close() {
+        journal.close();
+    }
 
-                    Crate crate = crateOpt.get();
-                    for (String locStr : entry.getValue()) {
-                        CrateLocation location = CrateLocation.fromString(locStr);
-                        if (location != null) {
-                            crate.addLocation(location);
-                            locationToCrate.put(location, crateId);
-                        }
-                    }
+    /**
+     * Reloads all crates from the live configuration. Placements are carried over and the
+     * previous registry serves lookups until the new one is committed.
+     */
+    public void reload() {
+        commit(prepare(plugin.getConfigManager().getCrateConfigs()));
+    }
+
+    /**
+     * Compiles crates and keys from configuration into a registry that is not yet live.
+     * Safe to call off-thread; nothing observable changes until {@link #commit}.
+     *
+     * @return A registry with crates and keys but no placements
+     */
+    public CrateRegistrySnapshot prepare(Map<String, CrateConfig> configs) {
+        return prepare(configs, plugin.getConfigManager().getMainConfig().getSettings());
+    }
+
+    /**
+     * Compiles crates and keys into a registry that is not yet live, using the location index
+     * selected in the given settings rather than the live ones. A registry committed with
+     * {@link #commit} keeps that index; {@link #commitChanges} keeps the live registry's.
+     *
+     * @return A registry with crates and keys but no placements
+     */
+    public CrateRegistrySnapshot prepare(Map<String, CrateConfig> configs, MainConfig.SettingsConfig settings) {
+        CrateRegistrySnapshot.Builder builder = newBuilder(settings);
+        for (CrateConfig config : configs.values()) {
+            Crate crate = new Crate(config);
+            // Build item prototypes here rather than on the first open
+            for (Reward reward : crate.getRewards()) {
+                reward.getItemPrototype();
+            }
+            builder.putCrate(crate);
+        }
+        CrateRegistrySnapshot prepared = builder.build();
+        for (CrateKey key : prepared.getKeys().values()) {
+            key.getItemPrototype();
+        }
+        return prepared;
+    }
+
+    /**
+     * Atomically replaces the live crates with a prepared registry, keeping every placement
+     * whose crate still exists.
+     *
+     * @return The registry now live
+     */
+    public CrateRegistrySnapshot commit(CrateRegistrySnapshot prepared) {
+        CrateRegistrySnapshot[] committed = new CrateRegistrySnapshot[1];
+        CrateRegistrySnapshot previous = update(current -> {
+            CrateRegistrySnapshot.Builder builder = prepared.toBuilder();
+            for (Map.Entry<String, PlacementSet> entry : current.getPlacements().entrySet()) {
+                if (builder.hasCrate(entry.getKey())) {
+                    entry.getValue().forEach(location -> builder.putLocation(entry.getKey(), location));
                 }
             }
+            committed[0] = builder.build();
+            return committed[0];
+        });
+
+        // Placements of removed crates are gone; the rest were already counted
+        for (Map.Entry<String, PlacementSet> entry : previous.getPlacements().entrySet()) {
+            if (prepared.getCrate(entry.getKey()) == null) {
+                entry.getValue().forEach(location -> chunkFilter.remove(location.getX(), location.getZ()));
+            }
+        }
 
-            plugin.getLogger().at(Level.INFO).log("Loaded %d crate location(s).", locationToCrate.size());
-        } catch (Exception e) {
-            plugin.getLogger().at(Level.SEVERE).withCause(e).log("Failed to load crate locations");
+        CrateRegistrySnapshot live = committed[0];
+        plugin.getLogger().at(Level.INFO).log("Committed crate registry generation %d: %d crate(s), %d location(s).",
+                live.getGeneration(), live.getCrates().size(), live.getTotalLocations());
+        return live;
+    }
+
+    /**
+     * Atomically swaps in only the given crates, leaving every other crate, key and placement
+     * untouched. Changed crates keep their placements; removed crates lose theirs.
+     *
+     * @param prepared Registry holding the changed crates, from {@link #prepare}
+     * @param removedCrateIds IDs of crates to remove
+     * @return The registry now live
+     */
+    public CrateRegistrySnapshot commitChanges(CrateRegistrySnapshot prepared, Set<String> removedCrateIds) {
+        CrateRegistrySnapshot[] committed = new CrateRegistrySnapshot[1];
+        CrateRegistrySnapshot previous = update(current -> {
+            CrateRegistrySnapshot.Builder builder = current.toBuilder();
+            for (String crateId : removedCrateIds) {
+                builder.removeCrate(crateId);
+            }
+            for (Crate crate : prepared.getCrates()) {
+                builder.putCrate(crate);
+            }
+            committed[0] = builder.build();
+            return committed[0];
+        });
+
+        for (String crateId : removedCrateIds) {
+            previous.getLocations(crateId).forEach(location -> chunkFilter.remove(location.getX(), location.getZ()));
         }
+        return committed[0];
     }
 
     /**
-     * Reloads all crates from configuration.
+     * Edits one crate's configuration and swaps in the recompiled crate, without a reload.
+     *
+     * <p>The edit is applied to a copy of the live configuration, so readers keep seeing the
+     * old crate until the new one is published. Only this crate, its reward sampler and its
+     * key entry are rebuilt; its placements are kept. If another writer replaces the crate
+     * first, the edit is applied again to the newer configuration. The file is saved in the
+     * background.</p>
+     *
+     * @param crateId The crate to edit
+     * @param edit Applies the change to the copy; returning false abandons the edit
+     * @return The crate now live, or empty if the crate is unknown, the edit was abandoned or
+     *         the result is not a valid crate
      */
-    public void reload() {
-        plugin.getKeyManager().clearKeys();
-        loadCrates();
+    public Optional<Crate> updateCrate(String crateId, Predicate<CrateConfig> edit) {
+        while (true) {
+            CrateRegistrySnapshot current = registry.get();
+            Crate base = current.getCrate(crateId);
+            if (base == null) {
+                return Optional.empty();
+            }
+
+            CrateConfig config = base.getConfig().copy();
+            if (!edit.test(config)) {
+                return Optional.empty();
+            }
+            if (!crateId.equals(config.getId()) || !config.isValid()) {
+                plugin.getLogger().at(Level.WARNING).log("Rejected edit of crate %s: result is not a valid crate", crateId);
+                return Optional.empty();
+            }
+
+            Crate updated = new Crate(config);
+            for (Reward reward : updated.getRewards()) {
+                reward.getItemPrototype();
+            }
+            CrateRegistrySnapshot next = current.toBuilder().putCrate(updated).build();
+            next.getKeyForCrate(crateId).getItemPrototype();
+            // Publishing and queueing the save together keeps the file in publication order
+            synchronized (editLock) {
+                if (registry.compareAndSet(current, next)) {
+                    plugin.getConfigManager().saveCrateConfig(config);
+                    return Optional.of(updated);
+                }
+            }
+        }
     }
 
     /**
      * Creates a new crate from configuration.
      */
     public boolean createCrate(CrateConfig config) {
-        if (crates.containsKey(config.getId())) {
-            return false;
-        }
-
-        plugin.getConfigManager().saveCrateConfig(config);
         Crate crate = new Crate(config);
-        crates.put(crate.getId(), crate);
-        plugin.getKeyManager().registerKey(crate);
+        while (true) {
+            CrateRegistrySnapshot current = registry.get();
+            if (current.getCrate(crate.getId()) != null) {
+                return false;
+            }
 
-        return true;
+            CrateRegistrySnapshot next = current.toBuilder().putCrate(crate).build();
+            // Saved only once published, so a lost race never overwrites the winner's file
+            synchronized (editLock) {
+                if (registry.compareAndSet(current, next)) {
+                    plugin.getConfigManager().saveCrateConfig(config);
+                    return true;
+                }
+            }
+        }
     }
 
     /**
      * Deletes a crate.
      */
     public boolean deleteCrate(String crateId) {
-        Crate crate = crates.remove(crateId);
-        if (crate == null) {
-            return false;
-        }
+        CrateRegistrySnapshot previous = update(current -> {
+            if (current.getCrate(crateId) == null) {
+                return current;
+            }
+            CrateRegistrySnapshot.Builder builder = current.toBuilder();
+            builder.removeCrate(crateId);
+            return builder.build();
+        });
 
-        // Remove all locations
-        for (CrateLocation location : new ArrayList<>(crate.getLocations())) {
-            locationToCrate.remove(location);
+        if (previous.getCrate(crateId) == null) {
+            return false;
         }
+        previous.getLocations(crateId).forEach(location -> {
+            chunkFilter.remove(location.getX(), location.getZ());
+            recordChange(location);
+        });
 
         // Delete config file
         plugin.getConfigManager().deleteCrateConfig(crateId);
-        plugin.getKeyManager().unregisterKey(crate.getKeyId());
-        saveCrateLocations();
 
         return true;
     }
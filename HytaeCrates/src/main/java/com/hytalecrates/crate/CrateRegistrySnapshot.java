@@ -0,0 +1,374 @@
+package com.hytalecrates.crate;
+
+import com.hytalecrates.key.CrateKey;
+import com.hytalecrates.util.IdInterner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Immutable view of every registered crate, its placements and its key.
+ *
+ * <p>{@link CrateManager} publishes one snapshot through a single atomic reference. Readers
+ * dereference it once and then read without locks; writers derive a new snapshot with
+ * {@link #toBuilder()} and compare-and-set it in. Builders copy lazily, so a single edit only
+ * duplicates the small per-crate maps and the one world table it touches.</p>
+ */
+public final class CrateRegistrySnapshot {
+
+    private static final AtomicLong GENERATIONS = new AtomicLong();
+
+    private final long generation;
+    private final IdInterner worldIds;
+    private final IdInterner crateIds;
+    private final Map<String, Crate> crates;
+    private final Crate[] cratesById;
+    private final CrateLocationIndex locationIndex;
+    private final Map<String, PlacementSet> placements;
+    private final PlacementSet emptyPlacements;
+    private final Map<String, CrateKey> keys;
+    private final Map<String, CrateKey> keysByCrate;
+
+    private CrateRegistrySnapshot(Builder builder) {
+        this.generation = GENERATIONS.incrementAndGet();
+        this.worldIds = builder.worldIds;
+        this.crateIds = builder.crateIds;
+        this.crates = Collections.unmodifiableMap(builder.crates);
+        this.cratesById = builder.cratesById;
+        this.locationIndex = builder.locationIndex;
+        this.placements = Collections.unmodifiableMap(builder.placements);
+        this.emptyPlacements = new PlacementSet(builder.worldIds);
+        this.keys = Collections.unmodifiableMap(builder.keys);
+        this.keysByCrate = builder.keysByCrate;
+    }
+
+    /**
+     * Creates a builder for an empty registry.
+     *
+     * @param worldIds The shared world name interner
+     * @param crateIds The shared crate ID interner
+     */
+    public static Builder builder(IdInterner worldIds, IdInterner crateIds) {
+        return builder(worldIds, crateIds, new CrateLocationIndex());
+    }
+
+    /**
+     * Creates a builder for an empty registry with a given location index, for example an
+     * {@linkplain CrateLocationIndex#offHeap() off-heap} one. Snapshots derived from it keep
+     * using the same kind of index.
+     *
+     * @param locationIndex An empty location index, owned by the builder from now on
+     */
+    public static Builder builder(IdInterner worldIds, IdInterner crateIds, CrateLocationIndex locationIndex) {
+        if (locationIndex.size() != 0) {
+            throw new IllegalArgumentException("Location index must be empty");
+        }
+        return new Builder(worldIds, crateIds, locationIndex);
+    }
+
+    /**
+     * Creates an empty registry.
+     */
+    public static CrateRegistrySnapshot empty(IdInterner worldIds, IdInterner crateIds) {
+        return builder(worldIds, crateIds).build();
+    }
+
+    /**
+     * Creates a builder seeded with this snapshot's contents. This snapshot is never modified.
+     */
+    public Builder toBuilder() {
+        return new Builder(this);
+    }
+
+    /**
+     * Gets the generation number. Every published snapshot has a larger one than its predecessor.
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Gets a crate by its ID, or null.
+     */
+    public Crate getCrate(String crateId) {
+        return crates.get(crateId);
+    }
+
+    /**
+     * Gets all crates (unmodifiable).
+     */
+    public Collection<Crate> getCrates() {
+        return crates.values();
+    }
+
+    /**
+     * Gets all crate IDs (unmodifiable).
+     */
+    public Set<String> getCrateIds() {
+        return crates.keySet();
+    }
+
+    /**
+     * Gets the crate at a position, or null. Allocation-free.
+     */
+    public Crate findCrateAt(String world, int x, int y, int z) {
+        return crateById(locationIndex.get(worldIds.find(world), x, y, z));
+    }
+
+    /**
+     * Gets the crate at a position or directly above/below it, or null. Allocation-free.
+     */
+    public Crate findCrateNear(String world, int x, int y, int z) {
+        return crateById(locationIndex.findVertical(worldIds.find(world), x, y, z));
+    }
+
+    /**
+     * Gets the crate at a location, or null.
+     */
+    public Crate findCrateAt(CrateLocation location) {
+        return findCrateAt(location.getWorldName(), location.getX(), location.getY(), location.getZ());
+    }
+
+    /**
+     * Gets all locations of a crate.
+     */
+    public PlacementSet getLocations(String crateId) {
+        PlacementSet locations = placements.get(crateId);
+        return locations != null ? locations : emptyPlacements;
+    }
+
+    /**
+     * Gets every crate's locations, keyed by crate ID (unmodifiable).
+     */
+    public Map<String, PlacementSet> getPlacements() {
+        return placements;
+    }
+
+    /**
+     * Gets the placements in one world as location to crate ID. O(placements in the world).
+     */
+    public Map<CrateLocation, String> getPlacementsInWorld(String worldName) {
+        Map<CrateLocation, String> result = new LinkedHashMap<>();
+        for (Map.Entry<String, PlacementSet> entry : placements.entrySet()) {
+            entry.getValue().forEachInWorld(worldName, location -> result.put(location, entry.getKey()));
+        }
+        return result;
+    }
+
+    /**
+     * Gets the total number of crate locations.
+     */
+    public int getTotalLocations() {
+        return locationIndex.size();
+    }
+
+    /**
+     * Gets a key by its ID, or null.
+     */
+    public CrateKey getKey(String keyId) {
+        return keys.get(keyId);
+    }
+
+    /**
+     * Gets the key that opens a crate, or null.
+     */
+    public CrateKey getKeyForCrate(String crateId) {
+        return keysByCrate.get(crateId);
+    }
+
+    /**
+     * Gets all keys, keyed by key ID (unmodifiable).
+     */
+    public Map<String, CrateKey> getKeys() {
+        return keys;
+    }
+
+    private Crate crateById(int crateId) {
+        return crateId >= 0 && crateId < cratesById.length ? cratesById[crateId] : null;
+    }
+
+    /**
+     * Builds a new snapshot, copying from a base snapshot only what is changed.
+     * Not thread-safe; a builder must not be used after {@link #build()}.
+     */
+    public static final class Builder {
+
+        private final IdInterner worldIds;
+        private final IdInterner crateIds;
+        private final Map<String, Crate> crates;
+        private Crate[] cratesById;
+        private final CrateLocationIndex locationIndex;
+        private final Map<String, PlacementSet> placements;
+        // Placement sets created by this builder, which may be mutated in place
+        private final Set<String> ownedPlacements;
+        private final Map<String, CrateKey> keys;
+        private final Map<String, CrateKey> keysByCrate;
+
+        private Builder(IdInterner worldIds, IdInterner crateIds, CrateLocationIndex locationIndex) {
+            this.worldIds = worldIds;
+            this.crateIds = crateIds;
+            this.crates = new LinkedHashMap<>();
+            this.cratesById = new Crate[Math.max(8, crateIds.size())];
+            this.locationIndex = locationIndex;
+            this.placements = new HashMap<>();
+            this.ownedPlacements = new HashSet<>();
+            this.keys = new HashMap<>();
+            this.keysByCrate = new HashMap<>();
+        }
+
+        private Builder(CrateRegistrySnapshot base) {
+            this.worldIds = base.worldIds;
+            this.crateIds = base.crateIds;
+            this.crates = new LinkedHashMap<>(base.crates);
+            this.cratesById = base.cratesById.clone();
+            this.locationIndex = new CrateLocationIndex(base.locationIndex);
+            this.placements = new HashMap<>(base.placements);
+            this.ownedPlacements = new HashSet<>();
+            this.keys = new HashMap<>(base.keys);
+            this.keysByCrate = new HashMap<>(base.keysByCrate);
+        }
+
+        /**
+         * Gets the number of crate locations in this builder.
+         */
+        public int locationCount() {
+            return locationIndex.size();
+        }
+
+        /**
+         * Checks if a crate ID is registered in this builder.
+         */
+        public boolean hasCrate(String crateId) {
+            return crates.containsKey(crateId);
+        }
+
+        /**
+         * Adds or replaces a crate and its key. Existing placements of the crate are kept.
+         */
+        public Builder putCrate(Crate crate) {
+            Crate previous = crates.put(crate.getId(), crate);
+            if (previous != null) {
+                keys.remove(previous.getKeyId());
+            }
+
+            int crateId = crateIds.intern(crate.getId());
+            if (crateId >= cratesById.length) {
+                cratesById = Arrays.copyOf(cratesById, Math.max(cratesById.length << 1, crateId + 1));
+            }
+            cratesById[crateId] = crate;
+
+            CrateKey key = new CrateKey(crate.getKeyId(), crate.getId(), crate.getConfig().getKeyItem());
+            keys.put(key.getKeyId(), key);
+            keysByCrate.put(crate.getId(), key);
+            return this;
+        }
+
+        /**
+         * Removes a crate, its key and all of its placements.
+         *
+         * @return The removed crate, or null
+         */
+        public Crate removeCrate(String crateId) {
+            Crate crate = crates.remove(crateId);
+            if (crate == null) {
+                return null;
+            }
+            cratesById[crateIds.intern(crateId)] = null;
+            keys.remove(crate.getKeyId());
+            keysByCrate.remove(crateId);
+
+            PlacementSet locations = placements.remove(crateId);
+            ownedPlacements.remove(crateId);
+            if (locations != null) {
+                locations.forEachKey((worldId, key) -> locationIndex.remove(worldId,
+                        BlockKey.unpackX(key), BlockKey.unpackY(key), BlockKey.unpackZ(key)));
+            }
+            return crate;
+        }
+
+        /**
+         * Places a registered crate at a location, replacing whatever crate was there.
+         *
+         * @return The ID of the crate previously at the location, or null
+         */
+        public String putLocation(String crateId, CrateLocation location) {
+            int worldId = worldIds.intern(location.getWorldName());
+            long key = BlockKey.pack(location.getX(), location.getY(), location.getZ());
+            int previous = locationIndex.put(worldId,
+                    location.getX(), location.getY(), location.getZ(), crateIds.intern(crateId));
+            String previousCrateId = null;
+            if (previous != CrateLocationIndex.NONE) {
+                previousCrateId = crateIds.name(previous);
+                writablePlacements(previousCrateId).remove(worldId, key);
+            }
+            writablePlacements(crateId).add(worldId, key);
+            return previousCrateId;
+        }
+
+        /**
+         * Removes the crate at a location.
+         *
+         * @return The ID of the removed crate, or null
+         */
+        public String removeLocation(CrateLocation location) {
+            int worldId = worldIds.find(location.getWorldName());
+            int removed = locationIndex.remove(worldId, location.getX(), location.getY(), location.getZ());
+            if (removed == CrateLocationIndex.NONE) {
+                return null;
+            }
+            String crateId = crateIds.name(removed);
+            writablePlacements(crateId).remove(worldId, BlockKey.pack(location.getX(), location.getY(), location.getZ()));
+            return crateId;
+        }
+
+        /**
+         * Removes every placement in a world.
+         *
+         * @return The number of placements removed
+         */
+        public int removeWorld(String worldName) {
+            int worldId = worldIds.find(worldName);
+            int removed = locationIndex.removeWorld(worldId);
+            if (removed == 0) {
+                return 0;
+            }
+            for (String crateId : new ArrayList<>(placements.keySet())) {
+                if (placements.get(crateId).sizeInWorld(worldName) > 0) {
+                    writablePlacements(crateId).removeWorld(worldId);
+                }
+            }
+            return removed;
+        }
+
+        /**
+         * Publishes the builder's contents as an immutable snapshot.
+         */
+        public CrateRegistrySnapshot build() {
+            for (String crateId : ownedPlacements) {
+                if (placements.get(crateId).isEmpty()) {
+                    placements.remove(crateId);
+                }
+            }
+            ownedPlacements.clear();
+            return new CrateRegistrySnapshot(this);
+        }
+
+        private PlacementSet writablePlacements(String crateId) {
+            if (ownedPlacements.add(crateId)) {
+                PlacementSet current = placements.get(crateId);
+                PlacementSet copy = current != null ? new PlacementSet(current) : new PlacementSet(worldIds);
+                placements.put(crateId, copy);
+                return copy;
+            }
+            return placements.get(crateId);
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.hytalecrates.crate;
+
+import com.hytalecrates.util.IdInterner;
+import com.hytalecrates.util.LongHashSet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * The placements of one crate, as one {@link LongHashSet} of {@link BlockKey} packed
+ * coordinates per world.
+ *
+ * <p>Adding, removing and membership tests are O(1) and allocation-free, so a crate with
+ * thousands of placements loads in linear time. {@link CrateLocation}s are created only while
+ * iterating, and {@link #page(int, int)} builds only the requested page.</p>
+ *
+ * <p>Instances published in a {@link CrateRegistrySnapshot} are never modified. Builders copy
+ * one with {@link #PlacementSet(PlacementSet)}, which shares every world set with its source
+ * and clones one only on its first write.</p>
+ */
+public final class PlacementSet {
+
+    private final IdInterner worldIds;
+    private LongHashSet[] worlds;
+    // World sets this instance created or cloned, and may therefore mutate in place
+    private boolean[] owned;
+    private int size;
+
+    PlacementSet(IdInterner worldIds) {
+        this.worldIds = worldIds;
+        this.worlds = new LongHashSet[4];
+        this.owned = new boolean[4];
+    }
+
+    /**
+     * Creates a copy-on-write copy of another set. The source is never modified through it.
+     */
+    PlacementSet(PlacementSet base) {
+        this.worldIds = base.worldIds;
+        this.worlds = base.worlds.clone();
+        this.owned = new boolean[worlds.length];
+        this.size = base.size;
+    }
+
+    /**
+     * Gets the number of placements.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks if the crate has no placements.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Checks if the crate is placed at a location.
+     */
+    public boolean contains(CrateLocation location) {
+        LongHashSet world = world(worldIds.find(location.getWorldName()));
+        return world != null && world.contains(BlockKey.pack(location.getX(), location.getY(), location.getZ()));
+    }
+
+    /**
+     * Gets the number of placements in one world.
+     */
+    public int sizeInWorld(String worldName) {
+        LongHashSet world = world(worldIds.find(worldName));
+        return world != null ? world.size() : 0;
+    }
+
+    /**
+     * Visits every placement, creating each location as it is visited.
+     */
+    public void forEach(Consumer<CrateLocation> action) {
+        for (int worldId = 0; worldId < worlds.length; worldId++) {
+            visit(worldId, 0, Integer.MAX_VALUE, action);
+        }
+    }
+
+    /**
+     * Visits every placement in one world.
+     */
+    public void forEachInWorld(String worldName, Consumer<CrateLocation> action) {
+        visit(worldIds.find(worldName), 0, Integer.MAX_VALUE, action);
+    }
+
+    /**
+     * Gets one page of placements, grouped by world. Only the page is materialized; whole
+     * worlds before it are skipped by their size. Pages are stable while the set is unchanged.
+     *
+     * @param offset The number of placements to skip
+     * @param limit The page size
+     */
+    public List<CrateLocation> page(int offset, int limit) {
+        List<CrateLocation> page = new ArrayList<>(Math.max(0, Math.min(limit, size - offset)));
+        int skip = Math.max(0, offset);
+        for (int worldId = 0; worldId < worlds.length && page.size() < limit; worldId++) {
+            LongHashSet world = worlds[worldId];
+            if (world == null) {
+                continue;
+            }
+            if (skip >= world.size()) {
+                skip -= world.size();
+                continue;
+            }
+            visit(worldId, skip, limit - page.size(), page::add);
+            skip = 0;
+        }
+        return page;
+    }
+
+    /**
+     * Adds a placement.
+     *
+     * @return true if it was not already present
+     */
+    boolean add(int worldId, long key) {
+        if (worldId >= worlds.length) {
+            int length = Math.max(worlds.length << 1, worldId + 1);
+            worlds = Arrays.copyOf(worlds, length);
+            owned = Arrays.copyOf(owned, length);
+        }
+        LongHashSet world = worlds[worldId];
+        if (world != null && world.contains(key)) {
+            return false;
+        }
+        writable(worldId).add(key);
+        size++;
+        return true;
+    }
+
+    /**
+     * Removes a placement.
+     *
+     * @return true if it was present
+     */
+    boolean remove(int worldId, long key) {
+        LongHashSet world = world(worldId);
+        if (world == null || !world.contains(key)) {
+            return false;
+        }
+        writable(worldId).remove(key);
+        size--;
+        return true;
+    }
+
+    /**
+     * Removes every placement in a world by dropping its set, without copying it.
+     *
+     * @return The number of placements removed
+     */
+    int removeWorld(int worldId) {
+        LongHashSet world = world(worldId);
+        if (world == null) {
+            return 0;
+        }
+        worlds[worldId] = null;
+        owned[worldId] = false;
+        size -= world.size();
+        return world.size();
+    }
+
+    /**
+     * Visits every packed placement without creating locations.
+     */
+    void forEachKey(KeyConsumer consumer) {
+        for (int worldId = 0; worldId < worlds.length; worldId++) {
+            LongHashSet world = worlds[worldId];
+            if (world != null) {
+                int id = worldId;
+                world.forEach(key -> consumer.accept(id, key));
+            }
+        }
+    }
+
+    /**
+     * Callback for {@link #forEachKey(KeyConsumer)}.
+     */
+    @FunctionalInterface
+    interface KeyConsumer {
+        void accept(int worldId, long key);
+    }
+
+    private void visit(int worldId, int skip, int limit, Consumer<CrateLocation> action) {
+        LongHashSet world = world(worldId);
+        if (world == null) {
+            return;
+        }
+        String worldName = worldIds.name(worldId);
+        world.forEach(skip, limit, key -> action.accept(new CrateLocation(worldName,
+                BlockKey.unpackX(key), BlockKey.unpackY(key), BlockKey.unpackZ(key))));
+    }
+
+    private LongHashSet writable(int worldId) {
+        LongHashSet world = worlds[worldId];
+        if (!owned[worldId]) {
+            world = world != null ? new LongHashSet(world) : new LongHashSet();
+            worlds[worldId] = world;
+            owned[worldId] = true;
+        }
+        return world;
+    }
+
+    private LongHashSet world(int worldId) {
+        return worldId >= 0 && worldId < worlds.length ? worlds[worldId] : null;
+    }
+}
@@ -76,15 +76,14 @@ public class CratePreviewGUI {
                 break;
             }
 
-            Reward reward = rewards.get(rewardIndex);
-            ItemBuilder.ItemRepresentation rewardItem = createRewardItem(reward);
+            ItemBuilder.ItemRepresentation rewardItem = createRewardItem(rewards.get(rewardIndex), rewardIndex);
             items.set(slot, rewardItem);
             rewardIndex++;
         }
 
         // Add info item in center of border
         ItemBuilder.ItemRepresentation infoItem = new ItemBuilder("BOOK")
-                .displayName("&e" + MessageUtil.stripColors(crate.getDisplayName()))
+                .displayName("&e" + crate.getStrippedDisplayName())
                 .addLoreLine("")
                 .addLoreLine("&7Total Rewards: &e" + rewards.size())
                 .addLoreLine("&7Use a &b" + crate.getConfig().getKeyItem().getDisplayName())
@@ -99,9 +98,7 @@ public class CratePreviewGUI {
     /**
      * Creates an item representation for a reward.
      */
-    private ItemBuilder.ItemRepresentation createRewardItem(Reward reward) {
-        double chance = plugin.getRewardManager().calculateChance(reward, crate);
-
+    private ItemBuilder.ItemRepresentation createRewardItem(Reward reward, int rewardIndex) {
         ItemBuilder builder = ItemBuilder.fromConfig(reward.getItem())
                 .displayName(reward.getRarity().getColorCode() + reward.getItem().getDisplayName());
 
@@ -109,7 +106,7 @@ public class CratePreviewGUI {
         List<String> lore = new ArrayList<>();
         lore.add("");
         lore.add("&7Rarity: " + reward.getRarity().getColorCode() + reward.getRarity().name());
-        lore.add("&7Chance: &e" + MessageUtil.formatChance(chance));
+        lore.add("&7Chance: &e" + crate.getFormattedChance(rewardIndex));
 
         if (reward.getAmount() > 1) {
             lore.add("&7Amount: &e" + reward.getAmount());
@@ -3,9 +3,9 @@ package com.hytalecrates.gui;
 import com.hytalecrates.CratesPlugin;
 import com.hytalecrates.crate.Crate;
 
-import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 
 /**
@@ -18,7 +18,7 @@ public class GUIManager {
 
     public GUIManager(CratesPlugin plugin) {
         this.plugin = plugin;
-        this.activeGuis = new HashMap<>();
+        this.activeGuis = new ConcurrentHashMap<>();
     }
 
     /**
@@ -1,6 +1,12 @@
 package com.hytalecrates.key;
 
 import com.hytalecrates.config.ItemConfig;
+import com.hytalecrates.util.ItemIdUtil;
+import com.hypixel.hytale.server.core.inventory.ItemStack;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonInt64;
+import org.bson.BsonString;
 
 import java.util.List;
 
@@ -12,10 +18,17 @@ public class CrateKey {
     private final String keyId;
     private final String crateId;
     private final ItemConfig itemConfig;
+    // Resolved asset id; cached once the item asset map is loaded
+    private volatile String itemId;
+    // Single key item with the resolved id and tags; cached together with the item id
+    private volatile ItemStack prototype;
 
     // NBT tag key used to identify crate keys
     public static final String NBT_KEY_TAG = "HytaleCratesKey";
     public static final String NBT_CRATE_TAG = "HytaleCratesCrate";
+    // First serial and size of the serial range a key stack was issued with
+    public static final String NBT_SERIAL_TAG = "HytaleCratesSerial";
+    public static final String NBT_SERIAL_COUNT_TAG = "HytaleCratesSerialCount";
 
     public CrateKey(String keyId, String crateId, ItemConfig itemConfig) {
         this.keyId = keyId;
@@ -51,6 +64,58 @@ public class CrateKey {
         return itemConfig.getMaterial();
     }
 
+    /**
+     * Gets the Hytale item asset id for the key material.
+     * Resolution scans the asset map, so the result is cached once assets are loaded.
+     */
+    public String getItemId() {
+        String resolved = itemId;
+        if (resolved == null) {
+            resolved = ItemIdUtil.resolveItemId(getMaterial());
+            if (ItemIdUtil.isAssetMapLoaded()) {
+                itemId = resolved;
+            }
+        }
+        return resolved;
+    }
+
+    /**
+     * Gets the key item prototype: one key with the resolved item id and the key's tags.
+     * Item stacks are immutable, so a grant only sets the quantity with
+     * {@link ItemStack#withQuantity(int)}. Cached once the item id is.
+     */
+    public ItemStack getItemPrototype() {
+        ItemStack built = prototype;
+        if (built == null) {
+            built = new ItemStack(getItemId(), 1, createMetadata());
+            if (itemId != null) {
+                prototype = built;
+            }
+        }
+        return built;
+    }
+
+    /**
+     * Creates the tags identifying a key item. Always built here, key tag first, so every
+     * key of a type issued without serials carries identical metadata and stacks with the
+     * others. Keys issued with serials only stack within their own range.
+     */
+    public BsonDocument createMetadata() {
+        return new BsonDocument()
+                .append(NBT_KEY_TAG, new BsonString(keyId))
+                .append(NBT_CRATE_TAG, new BsonString(crateId));
+    }
+
+    /**
+     * Creates the tags of a key stack issued with a range of serials: the key tags, then the
+     * range.
+     */
+    public BsonDocument createMetadata(long serial, int count) {
+        return createMetadata()
+                .append(NBT_SERIAL_TAG, new BsonInt64(serial))
+                .append(NBT_SERIAL_COUNT_TAG, new BsonInt32(count));
+    }
+
     /**
      * Gets the display name of the key.
      */
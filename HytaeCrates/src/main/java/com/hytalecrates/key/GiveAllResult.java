@@ -0,0 +1,66 @@
+package com.hytalecrates.key;
+
+/**
+ * Totals of a key distribution to every online player.
+ */
+public class GiveAllResult {
+
+    private final int worlds;
+    private final int players;
+    private final int given;
+    private final int banked;
+    private final int skipped;
+    private final long elapsedNanos;
+
+    public GiveAllResult(int worlds, int players, int given, int banked, int skipped, long elapsedNanos) {
+        this.worlds = worlds;
+        this.players = players;
+        this.given = given;
+        this.banked = banked;
+        this.skipped = skipped;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Gets the number of worlds that had players when the distribution started.
+     */
+    public int getWorlds() {
+        return worlds;
+    }
+
+    /**
+     * Gets the number of players the distribution was started for.
+     */
+    public int getPlayers() {
+        return players;
+    }
+
+    /**
+     * Gets the number of players who received every key as items.
+     */
+    public int getGiven() {
+        return given;
+    }
+
+    /**
+     * Gets the number of players whose keys, or part of them, went to their virtual balance
+     * because their inventory was full.
+     */
+    public int getBanked() {
+        return banked;
+    }
+
+    /**
+     * Gets the number of players who left before their batch ran.
+     */
+    public int getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * Gets the wall time from start until the last world finished.
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+}
@@ -0,0 +1,144 @@
+package com.hytalecrates.key;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+/**
+ * Virtual key balances: per-player, per-key counters that never touch an inventory.
+ *
+ * <p>Balances live in a {@link ConcurrentHashMap} of per-player maps. Every update is one
+ * atomic {@code compute} on the player's map, which locks only the bin holding that key, so
+ * deposits and withdrawals for different players (or keys) never contend. A balance that
+ * reaches zero is removed.</p>
+ *
+ * <p>Each change is reported to a listener with the player and key, never the amount; the
+ * persistent store reads the current balance when it writes, so bursts of changes collapse
+ * into one record.</p>
+ */
+public class KeyBalances {
+
+    private final Map<UUID, Map<String, Integer>> balances = new ConcurrentHashMap<>();
+    private volatile BiConsumer<UUID, String> listener = (playerId, keyId) -> {};
+
+    /**
+     * Sets the listener told about every changed balance.
+     */
+    public void setListener(BiConsumer<UUID, String> listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Gets a player's balance of one key.
+     */
+    public int get(UUID playerId, String keyId) {
+        Map<String, Integer> keys = balances.get(playerId);
+        if (keys == null) {
+            return 0;
+        }
+        Integer amount = keys.get(keyId);
+        return amount != null ? amount : 0;
+    }
+
+    /**
+     * Gets every non-zero balance of a player, sorted by key ID.
+     */
+    public Map<String, Integer> getAll(UUID playerId) {
+        Map<String, Integer> keys = balances.get(playerId);
+        return keys != null ? new TreeMap<>(keys) : new TreeMap<>();
+    }
+
+    /**
+     * Adds keys to a player's balance.
+     *
+     * @return The new balance
+     * @throws IllegalArgumentException If the amount is not positive
+     * @throws ArithmeticException If the balance would overflow; it is left unchanged
+     */
+    public int deposit(UUID playerId, String keyId, int amount) {
+        if (amount <= 0) {
+            throw new IllegalArgumentException("Deposit must be positive: " + amount);
+        }
+        int balance = balances.computeIfAbsent(playerId, id -> new ConcurrentHashMap<>())
+                .merge(keyId, amount, Math::addExact);
+        listener.accept(playerId, keyId);
+        return balance;
+    }
+
+    /**
+     * Takes keys from a player's balance, only if the whole amount is available.
+     *
+     * @return true if the keys were taken
+     * @throws IllegalArgumentException If the amount is not positive
+     */
+    public boolean withdraw(UUID playerId, String keyId, int amount) {
+        if (amount <= 0) {
+            throw new IllegalArgumentException("Withdrawal must be positive: " + amount);
+        }
+        Map<String, Integer> keys = balances.get(playerId);
+        if (keys == null) {
+            return false;
+        }
+        boolean[] taken = new boolean[1];
+        keys.computeIfPresent(keyId, (id, balance) -> {
+            if (balance < amount) {
+                return balance;
+            }
+            taken[0] = true;
+            return balance == amount ? null : balance - amount;
+        });
+        if (taken[0]) {
+            listener.accept(playerId, keyId);
+        }
+        return taken[0];
+    }
+
+    /**
+     * Sets a balance without telling the listener, for loading persisted balances.
+     * An amount of zero or less removes it.
+     */
+    public void restore(UUID playerId, String keyId, int amount) {
+        if (amount > 0) {
+            balances.computeIfAbsent(playerId, id -> new ConcurrentHashMap<>()).put(keyId, amount);
+            return;
+        }
+        Map<String, Integer> keys = balances.get(playerId);
+        if (keys != null) {
+            keys.remove(keyId);
+        }
+    }
+
+    /**
+     * Visits every non-zero balance. Concurrent changes may or may not be seen.
+     */
+    public void forEach(BalanceConsumer consumer) {
+        for (Map.Entry<UUID, Map<String, Integer>> player : balances.entrySet()) {
+            for (Map.Entry<String, Integer> key : player.getValue().entrySet()) {
+                consumer.accept(player.getKey(), key.getKey(), key.getValue());
+            }
+        }
+    }
+
+    /**
+     * Gets the number of players holding at least one virtual key.
+     */
+    public int getPlayerCount() {
+        int count = 0;
+        for (Map<String, Integer> keys : balances.values()) {
+            if (!keys.isEmpty()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Callback for {@link #forEach(BalanceConsumer)}.
+     */
+    @FunctionalInterface
+    public interface BalanceConsumer {
+        void accept(UUID playerId, String keyId, int amount);
+    }
+}
@@ -0,0 +1,141 @@
+package com.hytalecrates.key;
+
+import com.hytalecrates.CratesPlugin;
+import com.hypixel.hytale.component.Ref;
+import com.hypixel.hytale.server.core.entity.entities.Player;
+import com.hypixel.hytale.server.core.universe.PlayerRef;
+import com.hypixel.hytale.server.core.universe.Universe;
+import com.hypixel.hytale.server.core.universe.world.World;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.logging.Level;
+
+/**
+ * One distribution of a key to every online player, fanned out per world.
+ *
+ * <p>Each world's players are read and given keys on that world's own thread, in batches of
+ * at most {@code batchSize} players per world task; the next batch is queued behind whatever
+ * else the world has to do, so a large run never stalls a tick. Every player gets their own
+ * key item, issued with its own serials. Keys that do not fit in an inventory go to the
+ * player's virtual balance instead of being lost.</p>
+ */
+public class KeyDistribution {
+
+    /** Players given keys per world task. */
+    public static final int DEFAULT_BATCH_SIZE = 50;
+
+    private final CratesPlugin plugin;
+    private final CrateKey key;
+    private final int amount;
+    private final int batchSize;
+
+    private final AtomicInteger worlds = new AtomicInteger();
+    private final AtomicInteger players = new AtomicInteger();
+    private final AtomicInteger given = new AtomicInteger();
+    private final AtomicInteger banked = new AtomicInteger();
+    private final AtomicInteger skipped = new AtomicInteger();
+
+    /**
+     * @param amount Keys per player, clamped to 1-64
+     * @param batchSize Players per world task
+     */
+    public KeyDistribution(CratesPlugin plugin, CrateKey key, int amount, int batchSize) {
+        this.plugin = plugin;
+        this.key = key;
+        this.amount = Math.max(1, Math.min(64, amount));
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Starts giving keys in every world.
+     *
+     * @param onWorldDone Called with the world name and its player count as each world
+     *                    finishes, on that world's thread
+     * @return A future completed with the totals once every world has finished
+     */
+    public CompletableFuture<GiveAllResult> start(BiConsumer<String, Integer> onWorldDone) {
+        long start = System.nanoTime();
+        List<CompletableFuture<Void>> runs = new ArrayList<>();
+        for (World world : Universe.get().getWorlds().values()) {
+            CompletableFuture<Void> done = new CompletableFuture<>();
+            runs.add(done);
+            schedule(world, done, () -> {
+                // Read on the world thread, which owns its player list
+                List<PlayerRef> worldPlayers = new ArrayList<>(world.getPlayerRefs());
+                if (!worldPlayers.isEmpty()) {
+                    worlds.incrementAndGet();
+                    players.addAndGet(worldPlayers.size());
+                }
+                runBatch(world, worldPlayers, 0, done, onWorldDone);
+            });
+        }
+
+        return CompletableFuture.allOf(runs.toArray(new CompletableFuture<?>[0]))
+                .thenApply(ignored -> new GiveAllResult(worlds.get(), players.get(), given.get(),
+                        banked.get(), skipped.get(), System.nanoTime() - start));
+    }
+
+    private void runBatch(World world, List<PlayerRef> worldPlayers, int from, CompletableFuture<Void> done,
+                          BiConsumer<String, Integer> onWorldDone) {
+        int to = Math.min(from + batchSize, worldPlayers.size());
+        for (int i = from; i < to; i++) {
+            giveTo(worldPlayers.get(i));
+        }
+
+        if (to < worldPlayers.size()) {
+            schedule(world, done, () -> runBatch(world, worldPlayers, to, done, onWorldDone));
+            return;
+        }
+        if (!worldPlayers.isEmpty()) {
+            onWorldDone.accept(world.getName(), worldPlayers.size());
+        }
+        done.complete(null);
+    }
+
+    private void giveTo(PlayerRef playerRef) {
+        try {
+            Ref<EntityStore> ref = playerRef.getReference();
+            Player player = ref != null && ref.isValid() ? ref.getStore().getComponent(ref, Player.getComponentType()) : null;
+            if (player == null) {
+                // Left the world since the run started
+                skipped.incrementAndGet();
+                return;
+            }
+
+            int remainder = plugin.getKeyManager().giveKeyItem(player, plugin.getKeyManager().createKeyItem(key, amount));
+            if (remainder > 0) {
+                plugin.getKeyManager().getBalances().deposit(playerRef.getUuid(), key.getKeyId(), remainder);
+                banked.incrementAndGet();
+            } else {
+                given.incrementAndGet();
+            }
+        } catch (RuntimeException e) {
+            skipped.incrementAndGet();
+            plugin.getLogger().at(Level.WARNING).withCause(e).log("Failed to give %s to %s", key.getKeyId(), playerRef.getUsername());
+        }
+    }
+
+    /**
+     * Queues a task on a world thread. A world that no longer accepts tasks is finished as is.
+     */
+    private void schedule(World world, CompletableFuture<Void> done, Runnable task) {
+        try {
+            world.execute(() -> {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    plugin.getLogger().at(Level.WARNING).withCause(e).log("Key distribution failed in world %s", world.getName());
+                    done.complete(null);
+                }
+            });
+        } catch (RuntimeException e) {
+            plugin.getLogger().at(Level.WARNING).withCause(e).log("Could not schedule key distribution in world %s", world.getName());
+            done.complete(null);
+        }
+    }
+}
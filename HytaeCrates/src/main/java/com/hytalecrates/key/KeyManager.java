@@ -1,9 +1,10 @@
 package com.hytalecrates.key;
 
 import com.hytalecrates.CratesPlugin;
-import com.hytalecrates.config.CrateConfig;
-import com.hytalecrates.crate.Crate;
-import com.hytalecrates.util.ItemIdUtil;
+import com.hytalecrates.crate.CrateRegistrySnapshot;
+import com.hytalecrates.mail.MailItem;
+import com.hytalecrates.storage.KeyBalanceLog;
+import com.hytalecrates.storage.KeySerialLedger;
 import com.hypixel.hytale.component.Ref;
 import com.hypixel.hytale.component.Store;
 import com.hypixel.hytale.server.core.entity.entities.Player;
@@ -11,62 +12,215 @@ import com.hypixel.hytale.server.core.inventory.ItemStack;
 import com.hypixel.hytale.server.core.inventory.transaction.ItemStackTransaction;
 import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
 import org.bson.BsonDocument;
-import org.bson.BsonString;
 import org.bson.BsonValue;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
 import java.util.logging.Level;
 
 /**
  * Manages crate keys - creation, validation, and distribution.
+ *
+ * <p>Keys are registered together with their crates in the crate registry snapshot.</p>
+ *
+ * <p>Besides key items, players can hold virtual keys: balances persisted by a
+ * {@link KeyBalanceLog}, which open crates without any inventory transaction.</p>
+ *
+ * <p>Each issued stack of key items carries a range of serials from the
+ * {@link KeySerialLedger}; opening a crate spends one, so a duplicated stack is rejected once
+ * its range is used up.</p>
  */
 public class KeyManager {
 
+    /** Returned by {@link #claimSerial} for a key item issued without serials. */
+    public static final long NO_SERIAL = -1;
+    /** Returned by {@link #claimSerial} when every serial of the key item's range is spent. */
+    public static final long DUPLICATE = -2;
+    /** Returned by {@link #claimSerial} for a key item with serials while the ledger is not open. */
+    public static final long UNAVAILABLE = -3;
+
     private final CratesPlugin plugin;
-    private final Map<String, CrateKey> keys;
+    private final KeyBalances balances;
+    private KeyBalanceLog balanceLog;
+    private volatile KeySerialLedger serialLedger;
 
     public KeyManager(CratesPlugin plugin) {
         this.plugin = plugin;
-        this.keys = new HashMap<>();
+        this.balances = new KeyBalances();
+    }
+
+    /**
+     * Loads persisted virtual key balances and starts writing changes behind.
+     */
+    public void loadBalances() {
+        if (balanceLog != null) {
+            return;
+        }
+        balanceLog = new KeyBalanceLog(plugin.getStorageLog(), plugin.getIoExecutor(), balances,
+                plugin.getDataDirectory().resolve("key-balances.log"),
+                plugin.getDataDirectory().resolve("key-balances.dat"));
+        int records = balanceLog.start();
+        plugin.getLogger().at(Level.INFO).log("Loaded virtual keys for %d player(s) from %d record(s)",
+                balances.getPlayerCount(), records);
+    }
+
+    /**
+     * Writes pending balance changes, compacts the balance log and writes the serial ledger
+     * to disk. Called on shutdown. The ledger stays mapped until the server exits, because
+     * world threads may still be opening crates with it.
+     */
+    public void close() {
+        if (balanceLog != null) {
+            balanceLog.close();
+            balanceLog = null;
+        }
+        KeySerialLedger ledger = serialLedger;
+        if (ledger != null) {
+            ledger.force();
+        }
+    }
+
+    /**
+     * Opens the key serial ledger. Without it, keys are issued without serials and keys
+     * issued with serials are rejected, since they could not be checked for copies.
+     */
+    public void loadSerialLedger() {
+        if (serialLedger != null) {
+            return;
+        }
+        try {
+            KeySerialLedger ledger = KeySerialLedger.open(plugin.getDataDirectory().resolve("key-serials.bin"),
+                    KeySerialLedger.DEFAULT_CAPACITY);
+            plugin.getLogger().at(Level.INFO).log("Opened key serial ledger: %d of %d serial(s) issued, %d spent",
+                    ledger.getIssued(), ledger.getCapacity(), ledger.getSpent());
+            serialLedger = ledger;
+        } catch (IOException | RuntimeException e) {
+            plugin.getLogger().at(Level.SEVERE).withCause(e).log("Failed to open key serial ledger; keys will be issued without serials"
+                    + " and keys issued with serials cannot be used until it opens");
+        }
+    }
+
+    /**
+     * Gets the key serial ledger, if it is open.
+     */
+    public Optional<KeySerialLedger> getSerialLedger() {
+        return Optional.ofNullable(serialLedger);
+    }
+
+    /**
+     * Spends one serial of a key stack about to be used. Copies of a stack share its range,
+     * so together they can be used at most as many times as keys were issued. The first
+     * keys of a stack are spent first, so the serial to try follows from how many are left,
+     * and an honest stack costs a single bit test.
+     *
+     * @return The serial spent, {@link #NO_SERIAL} if the stack has no serials,
+     *         {@link #DUPLICATE} if its range is used up, or {@link #UNAVAILABLE} if it has
+     *         serials but the ledger is not open
+     */
+    public long claimSerial(ItemStack keyItem) {
+        KeySerialLedger ledger = serialLedger;
+        BsonDocument meta = keyItem != null ? keyItem.getMetadata() : null;
+        long start = serialStart(meta);
+        if (start < 0) {
+            return NO_SERIAL;
+        }
+        if (ledger == null) {
+            return UNAVAILABLE;
+        }
+        int count = serialCount(meta);
+        long serial = ledger.claim(start, count, start + count - keyItem.getQuantity());
+        return serial >= 0 ? serial : DUPLICATE;
+    }
+
+    /**
+     * Returns a serial spent by {@link #claimSerial} when the open it was spent for failed.
+     */
+    public void releaseSerial(long serial) {
+        KeySerialLedger ledger = serialLedger;
+        if (ledger != null && serial >= 0) {
+            ledger.release(serial);
+        }
+    }
+
+    /**
+     * Retires the first {@code count} serials of a key stack's range, for keys of an issued
+     * stack that never reached an inventory. {@link #claimSerial} spends a range from the
+     * front, so the keys that did arrive start their claims right after the retired ones.
+     */
+    public void retireSerials(ItemStack keyItem, int count) {
+        KeySerialLedger ledger = serialLedger;
+        BsonDocument meta = keyItem != null ? keyItem.getMetadata() : null;
+        long start = serialStart(meta);
+        if (ledger == null || start < 0) {
+            return;
+        }
+        long end = start + Math.min(count, serialCount(meta));
+        for (long serial = start; serial < end; serial++) {
+            ledger.retire(serial);
+        }
+    }
+
+    private static long serialStart(BsonDocument meta) {
+        BsonValue serial = meta != null ? meta.get(CrateKey.NBT_SERIAL_TAG) : null;
+        BsonValue count = meta != null ? meta.get(CrateKey.NBT_SERIAL_COUNT_TAG) : null;
+        if (serial == null || !serial.isInt64() || count == null || !count.isInt32() || count.asInt32().getValue() <= 0) {
+            return -1;
+        }
+        return serial.asInt64().getValue();
+    }
+
+    private static int serialCount(BsonDocument meta) {
+        return meta.get(CrateKey.NBT_SERIAL_COUNT_TAG).asInt32().getValue();
+    }
+
+    /**
+     * Gets the virtual key balances.
+     */
+    public KeyBalances getBalances() {
+        return balances;
     }
 
     /**
-     * Registers a key for a crate.
+     * Gets the size of the balance log since its last compaction, in bytes.
      */
-    public void registerKey(Crate crate) {
-        CrateConfig config = crate.getConfig();
-        CrateKey key = new CrateKey(
-                config.getKeyId(),
-                crate.getId(),
-                config.getKeyItem()
-        );
-        keys.put(key.getKeyId(), key);
-        plugin.getLogger().at(Level.INFO).log("Registered key: %s for crate: %s", key.getKeyId(), crate.getId());
+    public long getBalanceLogBytes() {
+        return balanceLog != null ? balanceLog.getLogBytes() : 0;
     }
 
     /**
-     * Unregisters a key.
+     * Takes one virtual key from a player's balance. No inventory is read or changed.
+     *
+     * @return true if the player had one
      */
-    public void unregisterKey(String keyId) {
-        keys.remove(keyId);
+    public boolean takeVirtualKey(UUID playerId, String keyId) {
+        return playerId != null && keyId != null && balances.withdraw(playerId, keyId, 1);
+    }
+
+    /**
+     * Returns a virtual key taken by {@link #takeVirtualKey(UUID, String)} that was not used.
+     */
+    public void refundVirtualKey(UUID playerId, String keyId) {
+        balances.deposit(playerId, keyId, 1);
     }
 
     /**
      * Gets a key by its ID.
+     * Keys are derived from crates and read from the current crate registry snapshot.
      */
     public Optional<CrateKey> getKey(String keyId) {
-        return Optional.ofNullable(keys.get(keyId));
+        return Optional.ofNullable(plugin.getCrateManager().getSnapshot().getKey(keyId));
     }
 
     /**
      * Gets the key for a specific crate.
      */
     public Optional<CrateKey> getKeyForCrate(String crateId) {
-        return keys.values().stream()
-                .filter(key -> key.getCrateId().equals(crateId))
-                .findFirst();
+        return Optional.ofNullable(plugin.getCrateManager().getSnapshot().getKeyForCrate(crateId));
     }
 
     /**
@@ -96,6 +250,14 @@ public class KeyManager {
      * Uses BSON metadata (as used by the server inventory API).
      */
     public Optional<CrateKey> validateKeyItem(ItemStack itemStack) {
+        return validateKeyItem(itemStack, plugin.getCrateManager().getSnapshot());
+    }
+
+    /**
+     * Validates whether an {@link ItemStack} is a crate key in a specific registry snapshot,
+     * so callers that already hold a snapshot see one consistent generation.
+     */
+    public Optional<CrateKey> validateKeyItem(ItemStack itemStack, CrateRegistrySnapshot registry) {
         if (itemStack == null || itemStack.isEmpty()) {
             return Optional.empty();
         }
@@ -110,7 +272,7 @@ public class KeyManager {
             return Optional.empty();
         }
 
-        return getKey(v.asString().getValue());
+        return Optional.ofNullable(registry.getKey(v.asString().getValue()));
     }
 
     /**
@@ -135,14 +297,7 @@ public class KeyManager {
      * Gets all registered keys.
      */
     public Map<String, CrateKey> getAllKeys() {
-        return new HashMap<>(keys);
-    }
-
-    /**
-     * Clears all registered keys.
-     */
-    public void clearKeys() {
-        keys.clear();
+        return new HashMap<>(plugin.getCrateManager().getSnapshot().getKeys());
     }
 
     /**
@@ -170,31 +325,87 @@ public class KeyManager {
         }
 
         int safeAmount = Math.max(1, Math.min(64, amount));
-
-        // Build metadata with our custom tags so we can validate keys later.
-        BsonDocument metadata = new BsonDocument()
-                .append(CrateKey.NBT_KEY_TAG, new BsonString(key.getKeyId()))
-                .append(CrateKey.NBT_CRATE_TAG, new BsonString(key.getCrateId()));
-
-        // NOTE: ItemStack expects an itemId string that matches an item asset id.
-        String itemId = ItemIdUtil.resolveItemId(key.getMaterial());
-        ItemStack itemStack = new ItemStack(itemId, safeAmount, metadata);
-        ItemStackTransaction tx = player.getInventory()
-                .getCombinedHotbarFirst()
-                .addItemStack(itemStack);
-
-        ItemStack remainder = tx.getRemainder();
-        boolean success = remainder == null || remainder.isEmpty();
+        int remainder = giveKeyItem(player, createKeyItem(key, safeAmount));
+        boolean success = remainder == 0;
 
         if (success) {
             plugin.getLogger().at(Level.INFO).log("Gave %dx %s to player %s", safeAmount, key.getDisplayName(), player.getUuid());
         } else {
-            plugin.getLogger().at(Level.INFO).log("Insufficient inventory space: remainder=%s", remainder);
+            plugin.getLogger().at(Level.INFO).log("Insufficient inventory space: remainder=%d", remainder);
         }
 
         return success;
     }
 
+    /**
+     * Gives a key to every online player, world by world on each world's thread, in batches
+     * of {@link KeyDistribution#DEFAULT_BATCH_SIZE}.
+     *
+     * @param amount Keys per player, clamped to 1-64
+     * @param onWorldDone Called with the world name and its player count as each world finishes
+     * @return A future completed with the totals
+     */
+    public CompletableFuture<GiveAllResult> giveKeyToAll(CrateKey key, int amount, BiConsumer<String, Integer> onWorldDone) {
+        return new KeyDistribution(plugin, key, amount, KeyDistribution.DEFAULT_BATCH_SIZE).start(onWorldDone);
+    }
+
+    /**
+     * Gives key items to a player, sending whatever does not fit to their mailbox.
+     *
+     * @return The number of keys mailed, or -1 if the key or player could not be resolved
+     */
+    public int giveKeyOrMail(Store<EntityStore> store, Ref<EntityStore> playerEntityRef, String keyId, int amount) {
+        Optional<CrateKey> keyOpt = getKey(keyId);
+        Player player = store.getComponent(playerEntityRef, Player.getComponentType());
+        if (keyOpt.isEmpty() || player == null) {
+            return -1;
+        }
+
+        int remainder = giveKeyItem(player, createKeyItem(keyOpt.get(), amount));
+        if (remainder > 0) {
+            plugin.getMailbox().send(player.getUuid(), MailItem.key(keyId, remainder));
+        }
+        return remainder;
+    }
+
+    /**
+     * Creates a key item stack, issued with a new range of serials. The stack must therefore
+     * go to one player only; once the serial ledger is full, keys are issued from the key's
+     * prototype without serials.
+     *
+     * @param amount The stack size, clamped to 1-64
+     */
+    public ItemStack createKeyItem(CrateKey key, int amount) {
+        int quantity = Math.max(1, Math.min(64, amount));
+        KeySerialLedger ledger = serialLedger;
+        long serial = ledger != null ? ledger.allocate(quantity) : -1;
+        if (serial < 0) {
+            if (ledger != null) {
+                plugin.getLogger().at(Level.WARNING).log("Key serial ledger is full; issuing %s without serials", key.getKeyId());
+            }
+            return key.getItemPrototype().withQuantity(quantity);
+        }
+        return new ItemStack(key.getItemId(), quantity, key.createMetadata(serial, quantity));
+    }
+
+    /**
+     * Adds a key item stack to a player's inventory, hotbar first. Serials of keys that do
+     * not fit are retired. Must run on the player's world thread.
+     *
+     * @return The number of keys that did not fit
+     */
+    public int giveKeyItem(Player player, ItemStack keyItem) {
+        ItemStackTransaction tx = player.getInventory()
+                .getCombinedHotbarFirst()
+                .addItemStack(keyItem);
+        ItemStack remainder = tx.getRemainder();
+        int left = remainder == null || remainder.isEmpty() ? 0 : remainder.getQuantity();
+        if (left > 0) {
+            retireSerials(keyItem, left);
+        }
+        return left;
+    }
+
     /**
      * Consumes (removes) a key from a player's hand.
      *
@@ -2,7 +2,9 @@ package com.hytalecrates.listeners;
 
 import com.hytalecrates.CratesPlugin;
 import com.hytalecrates.crate.Crate;
+import com.hytalecrates.crate.CrateRegistrySnapshot;
 import com.hytalecrates.key.CrateKey;
+import com.hytalecrates.key.KeyManager;
 import com.hytalecrates.reward.Reward;
 import com.hytalecrates.util.MessageUtil;
 import com.hypixel.hytale.protocol.InteractionType;
@@ -18,6 +20,7 @@ import com.hypixel.hytale.server.core.asset.type.item.config.Item;
 import com.hypixel.hytale.math.vector.Vector3i;
 
 import java.util.Optional;
+import java.util.UUID;
 import java.util.logging.Level;
 
 /**
@@ -36,7 +39,7 @@ public final class CrateInteractListener {
     }
 
     public void onPlayerInteract(PlayerInteractEvent event) {
-        if (event == null) {
+        if (event == null || !mightTargetCrate(event.getTargetBlock())) {
             return;
         }
 
@@ -100,7 +103,7 @@ public final class CrateInteractListener {
      * We listen for RIGHT-CLICK on crate blocks.
      */
     public void onMouseButton(PlayerMouseButtonEvent event) {
-        if (event == null) {
+        if (event == null || !mightTargetCrate(event.getTargetBlock())) {
             return;
         }
 
@@ -179,7 +182,7 @@ public final class CrateInteractListener {
      * This is a common hook for opening crates placed as containers (chests, etc).
      */
     public void onUseBlock(UseBlockEvent.Pre event) {
-        if (event == null) {
+        if (event == null || !mightTargetCrate(event.getTargetBlock())) {
             return;
         }
 
@@ -187,10 +190,6 @@ public final class CrateInteractListener {
         plugin.getLogger().at(Level.INFO).log("[DIAG] onUseBlock called from ECS system");
 
         Vector3i target = event.getTargetBlock();
-        if (target == null) {
-            plugin.getLogger().at(Level.INFO).log("[DIAG] onUseBlock: target is null, returning");
-            return;
-        }
 
         var ctx = event.getContext();
         if (ctx == null) {
@@ -228,6 +227,14 @@ public final class CrateInteractListener {
         }
     }
 
+    /**
+     * Negative fast path: almost no interactions target a crate, so reject anything outside a
+     * crate-bearing chunk column before resolving the world, building items or logging.
+     */
+    private boolean mightTargetCrate(Vector3i target) {
+        return target != null && plugin.getCrateManager().mightHaveCrateNear(target.x, target.z);
+    }
+
     /**
      * Returns true if the targeted block was a crate location (i.e. we handled it).
      */
@@ -236,19 +243,15 @@ public final class CrateInteractListener {
             return false;
         }
 
+        // One registry read per event: the crate and key lookups below see the same generation.
+        CrateRegistrySnapshot registry = plugin.getCrateManager().getSnapshot();
+
         // Some interactions report the target block slightly offset (e.g., container top/bottom).
-        Optional<Crate> crateOpt = plugin.getCrateManager().getCrateAt(worldName, targetBlock.x, targetBlock.y, targetBlock.z);
-        if (crateOpt.isEmpty()) {
-            crateOpt = plugin.getCrateManager().getCrateAt(worldName, targetBlock.x, targetBlock.y + 1, targetBlock.z);
-        }
-        if (crateOpt.isEmpty()) {
-            crateOpt = plugin.getCrateManager().getCrateAt(worldName, targetBlock.x, targetBlock.y - 1, targetBlock.z);
-        }
-        if (crateOpt.isEmpty()) {
+        Crate crate = registry.findCrateNear(worldName, targetBlock.x, targetBlock.y, targetBlock.z);
+        if (crate == null) {
             return false;
         }
 
-        Crate crate = crateOpt.get();
         plugin.getLogger().at(Level.INFO).log("Crate interaction detected: crate=%s world=%s pos=%d,%d,%d player=%s",
                 crate.getId(), worldName, targetBlock.x, targetBlock.y, targetBlock.z, player.getDisplayName());
         var settings = plugin.getConfigManager().getMainConfig().getSettings();
@@ -258,12 +261,19 @@ public final class CrateInteractListener {
             return true;
         }
 
+        // Virtual keys first: one map lookup, no held item to validate and no hotbar slot to consume
+        UUID playerId = player.getUuid();
+        if (playerId != null && plugin.getKeyManager().getBalances().get(playerId, crate.getKeyId()) > 0) {
+            openWithVirtualKey(player, playerId, crate);
+            return true;
+        }
+
         if (heldItem == null || heldItem.isEmpty()) {
             player.sendMessage(MessageUtil.legacyToMessage("&cYou need a key to open this crate!"));
             return true;
         }
 
-        Optional<CrateKey> keyOpt = plugin.getKeyManager().validateKeyItem(heldItem);
+        Optional<CrateKey> keyOpt = plugin.getKeyManager().validateKeyItem(heldItem, registry);
         if (keyOpt.isEmpty()) {
             player.sendMessage(MessageUtil.legacyToMessage("&cYou need a key to open this crate!"));
             return true;
@@ -281,8 +291,26 @@ public final class CrateInteractListener {
             return true;
         }
 
+        // A copy of a key stack shares its serials; once they are spent the copy is rejected
+        long serial = KeyManager.NO_SERIAL;
+        if (settings.isConsumeKeyOnUse()) {
+            serial = plugin.getKeyManager().claimSerial(heldItem);
+            if (serial == KeyManager.DUPLICATE) {
+                plugin.getLogger().at(Level.WARNING).log("Rejected duplicated %s key from player %s", key.getKeyId(), player.getUuid());
+                player.sendMessage(MessageUtil.legacyToMessage("&cThis key has already been used."));
+                return true;
+            }
+            if (serial == KeyManager.UNAVAILABLE) {
+                plugin.getLogger().at(Level.SEVERE).log("Rejected %s key from player %s: the key serial ledger is not open",
+                        key.getKeyId(), player.getUuid());
+                player.sendMessage(MessageUtil.legacyToMessage("&cKeys can't be used right now. Please tell an admin."));
+                return true;
+            }
+        }
+
         boolean granted = plugin.getRewardManager().giveReward(player, reward);
         if (!granted) {
+            plugin.getKeyManager().releaseSerial(serial);
             player.sendMessage(MessageUtil.legacyToMessage("&cYour inventory is full!"));
             return true;
         }
@@ -297,6 +325,36 @@ public final class CrateInteractListener {
 
         return true;
     }
+
+    /**
+     * Opens a crate with a key from the player's virtual balance. The key is only spent if
+     * the reward was granted.
+     */
+    private void openWithVirtualKey(Player player, UUID playerId, Crate crate) {
+        Reward reward = plugin.getRewardManager().selectReward(crate);
+        if (reward == null) {
+            player.sendMessage(MessageUtil.legacyToMessage("&cThis crate has no rewards configured."));
+            return;
+        }
+
+        if (!plugin.getKeyManager().takeVirtualKey(playerId, crate.getKeyId())) {
+            // Spent concurrently since the balance check
+            player.sendMessage(MessageUtil.legacyToMessage("&cYou need a key to open this crate!"));
+            return;
+        }
+
+        boolean granted = plugin.getRewardManager().giveReward(player, reward);
+        if (!granted) {
+            plugin.getKeyManager().refundVirtualKey(playerId, crate.getKeyId());
+            player.sendMessage(MessageUtil.legacyToMessage("&cYour inventory is full!"));
+            return;
+        }
+
+        player.sendMessage(MessageUtil.legacyToMessage(
+                "&aYou opened " + crate.getDisplayName() + "&a and won &e" + reward.getItem().getAmount() + "x &f" + reward.getItem().getMaterial()
+                        + " &7(" + plugin.getKeyManager().getBalances().get(playerId, crate.getKeyId()) + " virtual key(s) left)"
+        ));
+    }
 }
 
 
@@ -42,16 +42,12 @@ public class PlayerInteractListener {
                                     int blockX, int blockY, int blockZ,
                                     Map<String, Object> heldItemNbt) {
 
-        CrateLocation location = new CrateLocation(worldName, blockX, blockY, blockZ);
-
         // Check if this location is a crate
-        Optional<Crate> crateOpt = plugin.getCrateManager().getCrateAt(location);
-        if (crateOpt.isEmpty()) {
+        Crate crate = plugin.getCrateManager().findCrateAt(worldName, blockX, blockY, blockZ);
+        if (crate == null) {
             return false; // Not a crate, don't cancel
         }
 
-        Crate crate = crateOpt.get();
-
         // Check cooldown
         if (isOnCooldown(playerUuid)) {
             int remaining = getRemainingCooldown(playerUuid);
@@ -110,14 +106,13 @@ public class PlayerInteractListener {
             return false;
         }
 
-        CrateLocation location = new CrateLocation(worldName, blockX, blockY, blockZ);
-        if (plugin.getCrateManager().isCrateLocation(location)) {
+        if (plugin.getCrateManager().isCrateLocation(worldName, blockX, blockY, blockZ)) {
             if (!hasAdminPermission) {
                 sendMessage(playerUuid, plugin.getMessageUtil().format("&cYou cannot break a crate!"));
                 return true; // Cancel break
             }
             // Admin breaking crate - remove the crate location
-            plugin.getCrateManager().removeCrateLocation(location);
+            plugin.getCrateManager().removeCrateLocation(new CrateLocation(worldName, blockX, blockY, blockZ));
         }
 
         return false;
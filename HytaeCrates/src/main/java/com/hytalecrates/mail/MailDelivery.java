@@ -0,0 +1,31 @@
+package com.hytalecrates.mail;
+
+import java.util.List;
+
+/**
+ * Outcome of delivering a player's mailbox into their inventory.
+ */
+public class MailDelivery {
+
+    private final int delivered;
+    private final List<MailItem> remaining;
+
+    public MailDelivery(int delivered, List<MailItem> remaining) {
+        this.delivered = delivered;
+        this.remaining = List.copyOf(remaining);
+    }
+
+    /**
+     * Gets the number of keys and items added to the inventory.
+     */
+    public int getDelivered() {
+        return delivered;
+    }
+
+    /**
+     * Gets what did not fit and is still in the mailbox.
+     */
+    public List<MailItem> getRemaining() {
+        return remaining;
+    }
+}
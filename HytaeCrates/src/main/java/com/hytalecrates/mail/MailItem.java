@@ -0,0 +1,78 @@
+package com.hytalecrates.mail;
+
+/**
+ * Something waiting in a player's mailbox: a number of crate keys, or of a reward item.
+ */
+public final class MailItem {
+
+    /**
+     * What a mail item delivers.
+     */
+    public enum Kind {
+        /** Crate keys, by key ID; the key item is built when delivered. */
+        KEY,
+        /** Plain items, by item asset ID. */
+        ITEM
+    }
+
+    private final Kind kind;
+    private final String id;
+    private final int amount;
+
+    private MailItem(Kind kind, String id, int amount) {
+        this.kind = kind;
+        this.id = id;
+        this.amount = amount;
+    }
+
+    /**
+     * Creates mail for a number of crate keys.
+     */
+    public static MailItem key(String keyId, int amount) {
+        return new MailItem(Kind.KEY, keyId, amount);
+    }
+
+    /**
+     * Creates mail for a number of items.
+     */
+    public static MailItem item(String itemId, int amount) {
+        return new MailItem(Kind.ITEM, itemId, amount);
+    }
+
+    static MailItem of(Kind kind, String id, int amount) {
+        return new MailItem(kind, id, amount);
+    }
+
+    /**
+     * Gets whether this is keys or items.
+     */
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Gets the key ID or item asset ID.
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Gets the number of keys or items.
+     */
+    public int getAmount() {
+        return amount;
+    }
+
+    /**
+     * Gets the identity under which amounts are merged.
+     */
+    String slot() {
+        return kind.name() + ':' + id;
+    }
+
+    @Override
+    public String toString() {
+        return amount + "x " + id + (kind == Kind.KEY ? " (key)" : "");
+    }
+}
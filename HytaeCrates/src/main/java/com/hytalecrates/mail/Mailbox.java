@@ -0,0 +1,334 @@
+package com.hytalecrates.mail;
+
+import com.hytalecrates.key.CrateKey;
+import com.hytalecrates.key.KeyManager;
+import com.hytalecrates.storage.IoExecutor;
+import com.hytalecrates.storage.RecordFile;
+import com.hytalecrates.storage.StorageLog;
+import com.hypixel.hytale.server.core.entity.entities.Player;
+import com.hypixel.hytale.server.core.inventory.ItemStack;
+import com.hypixel.hytale.server.core.inventory.transaction.ItemStackTransaction;
+import com.hypixel.hytale.server.core.inventory.transaction.ListTransaction;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+
+/**
+ * Durable per-player mailbox for keys and rewards that could not be given, because the
+ * player was offline or their inventory was full.
+ *
+ * <p>Each player with mail has an append-only file, {@code mailbox/<uuid>.mail}. Sending
+ * appends one record through the plugin's {@link IoExecutor};
+ * delivering rewrites the file with what is left, or deletes it. Every mailbox is read at
+ * startup and kept in memory, merged by key or item, so delivery needs no disk read. All
+ * changes to one mailbox, and the file operations they queue, happen under that mailbox's
+ * lock, so the file always replays to the in-memory state.</p>
+ *
+ * <p>Records are framed by {@link RecordFile}. The payload is byte kind, str id, int amount.
+ * Reading stops at the first torn or corrupt record, and a file with a torn tail is
+ * rewritten at startup.</p>
+ */
+public class Mailbox {
+
+    /** Largest stack a delivery puts in one inventory slot. */
+    public static final int MAX_STACK = 64;
+    /** Most stacks offered in one delivery; more could never fit in an inventory. */
+    public static final int MAX_STACKS = 64;
+
+    private static final int MAGIC = 0x48434d42; // "HCMB"
+    private static final int VERSION = 1;
+    private static final String EXTENSION = ".mail";
+
+    private final StorageLog log;
+    private final IoExecutor ioExecutor;
+    private final KeyManager keyManager;
+    private final Path folder;
+    private final Map<UUID, Box> boxes = new ConcurrentHashMap<>();
+
+    /**
+     * @param ioExecutor Writes the mailbox files
+     * @param keyManager Creates the key items mail is delivered as
+     * @param folder The folder holding one file per player with mail
+     */
+    public Mailbox(StorageLog log, IoExecutor ioExecutor, KeyManager keyManager, Path folder) {
+        this.log = log;
+        this.ioExecutor = ioExecutor;
+        this.keyManager = keyManager;
+        this.folder = folder;
+    }
+
+    /**
+     * Reads every mailbox file. Call once, before anything is sent.
+     *
+     * @return The number of players with mail
+     */
+    public int load() {
+        if (!Files.isDirectory(folder)) {
+            return 0;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(folder, "*" + EXTENSION)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                UUID playerId;
+                try {
+                    playerId = UUID.fromString(name.substring(0, name.length() - EXTENSION.length()));
+                } catch (IllegalArgumentException e) {
+                    log.log(Level.WARNING, "Ignoring mailbox file with unexpected name: %s", name);
+                    continue;
+                }
+                Box box = new Box();
+                boolean torn = read(file, box);
+                if (!box.items.isEmpty()) {
+                    boxes.put(playerId, box);
+                    if (torn) {
+                        // Rewritten before anything is appended, so new mail does not follow the torn record
+                        submit(ioExecutor.write(file, encode(box.items.values())), file);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            log.log(Level.SEVERE, e, "Failed to read mailboxes");
+        }
+        return getPlayerCount();
+    }
+
+    /**
+     * Adds mail to a player's mailbox. The mail is in memory at once and on disk shortly after.
+     */
+    public void send(UUID playerId, MailItem mail) {
+        if (playerId == null || mail.getAmount() <= 0) {
+            return;
+        }
+        Box box = boxes.computeIfAbsent(playerId, id -> new Box());
+        synchronized (box) {
+            boolean created = box.items.isEmpty();
+            box.add(mail);
+            Path path = fileFor(playerId);
+            if (created) {
+                // A new file starts with its header; a queued delete of the old one is replaced
+                submit(ioExecutor.write(path, encode(box.items.values())), path);
+            } else {
+                submit(ioExecutor.append(path, encodeRecords(List.of(mail))), path);
+            }
+        }
+        log.log(Level.INFO, "Mailed %s to %s", mail, playerId);
+    }
+
+    /**
+     * Checks if a player has mail waiting.
+     */
+    public boolean hasMail(UUID playerId) {
+        Box box = boxes.get(playerId);
+        if (box == null) {
+            return false;
+        }
+        synchronized (box) {
+            return !box.items.isEmpty();
+        }
+    }
+
+    /**
+     * Gets a player's waiting mail, merged by key or item.
+     */
+    public List<MailItem> getMail(UUID playerId) {
+        Box box = boxes.get(playerId);
+        if (box == null) {
+            return List.of();
+        }
+        synchronized (box) {
+            return new ArrayList<>(box.items.values());
+        }
+    }
+
+    /**
+     * Gets the number of players with mail waiting.
+     */
+    public int getPlayerCount() {
+        int count = 0;
+        for (UUID playerId : boxes.keySet()) {
+            if (hasMail(playerId)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Moves as much of a player's mail as fits into their inventory, hotbar first, as one
+     * inventory transaction. Must run on the player's world thread.
+     */
+    public MailDelivery deliver(UUID playerId, Player player) {
+        Box box = boxes.get(playerId);
+        if (box == null || player == null) {
+            return new MailDelivery(0, List.of());
+        }
+
+        synchronized (box) {
+            if (box.items.isEmpty()) {
+                return new MailDelivery(0, List.of());
+            }
+
+            // Merged amounts split into full stacks; keys whose crate is gone, and any excess, stay in the mailbox
+            List<MailItem> parts = new ArrayList<>();
+            List<ItemStack> stacks = new ArrayList<>();
+            List<MailItem> kept = new ArrayList<>();
+            for (MailItem mail : box.items.values()) {
+                Optional<CrateKey> key = mail.getKind() == MailItem.Kind.KEY
+                        ? keyManager.getKey(mail.getId())
+                        : Optional.empty();
+                if (mail.getKind() == MailItem.Kind.KEY && key.isEmpty()) {
+                    kept.add(mail);
+                    continue;
+                }
+                int left = mail.getAmount();
+                while (left > 0 && stacks.size() < MAX_STACKS) {
+                    int amount = Math.min(MAX_STACK, left);
+                    parts.add(MailItem.of(mail.getKind(), mail.getId(), amount));
+                    stacks.add(key.isPresent()
+                            ? keyManager.createKeyItem(key.get(), amount)
+                            : new ItemStack(mail.getId(), amount));
+                    left -= amount;
+                }
+                if (left > 0) {
+                    kept.add(MailItem.of(mail.getKind(), mail.getId(), left));
+                }
+            }
+            if (stacks.isEmpty()) {
+                return new MailDelivery(0, kept);
+            }
+
+            ListTransaction<ItemStackTransaction> tx = player.getInventory()
+                    .getCombinedHotbarFirst()
+                    .addItemStacks(stacks);
+            List<ItemStackTransaction> results = tx != null ? tx.getList() : null;
+
+            int delivered = 0;
+            Box remaining = new Box();
+            kept.forEach(remaining::add);
+            for (int i = 0; i < parts.size(); i++) {
+                MailItem part = parts.get(i);
+                int left = part.getAmount();
+                if (results != null && i < results.size()) {
+                    ItemStack remainder = results.get(i).getRemainder();
+                    left = remainder == null || remainder.isEmpty() ? 0 : remainder.getQuantity();
+                }
+                delivered += part.getAmount() - left;
+                if (left > 0) {
+                    remaining.add(MailItem.of(part.getKind(), part.getId(), left));
+                    if (part.getKind() == MailItem.Kind.KEY) {
+                        // Issued again on the next delivery
+                        keyManager.retireSerials(stacks.get(i), left);
+                    }
+                }
+            }
+
+            if (delivered > 0) {
+                box.items.clear();
+                box.items.putAll(remaining.items);
+                Path path = fileFor(playerId);
+                submit(box.items.isEmpty()
+                        ? ioExecutor.delete(path)
+                        : ioExecutor.write(path, encode(box.items.values())), path);
+                log.log(Level.INFO, "Delivered %d mailed key(s)/item(s) to %s, %d stack(s) left",
+                        delivered, playerId, box.items.size());
+            }
+            return new MailDelivery(delivered, new ArrayList<>(box.items.values()));
+        }
+    }
+
+    /**
+     * Gets the file holding a player's mailbox.
+     */
+    public Path fileFor(UUID playerId) {
+        return folder.resolve(playerId + EXTENSION);
+    }
+
+    private void submit(CompletableFuture<Void> write, Path path) {
+        write.whenComplete((ignored, error) -> {
+            if (error != null) {
+                log.log(Level.SEVERE, error, "Failed to write mailbox %s", path.getFileName());
+            }
+        });
+    }
+
+    /**
+     * Reads one mailbox file into a box.
+     *
+     * @return true if torn or corrupt bytes were discarded
+     */
+    private boolean read(Path file, Box box) {
+        ByteBuffer buffer;
+        try {
+            buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        } catch (IOException e) {
+            log.log(Level.SEVERE, e, "Failed to read mailbox %s", file.getFileName());
+            return false;
+        }
+        RecordFile.Scan scan = RecordFile.scan(buffer, MAGIC, VERSION, payload -> {
+            MailItem.Kind kind = MailItem.Kind.values()[payload.get()];
+            box.add(MailItem.of(kind, RecordFile.readString(payload), payload.getInt()));
+        });
+        if (scan == null) {
+            log.log(Level.WARNING, "Ignoring mailbox %s with unknown format", file.getFileName());
+            return false;
+        }
+        if (scan.getDiscardedBytes() > 0) {
+            log.log(Level.WARNING, "Discarding %d byte(s) of torn mailbox %s",
+                    scan.getDiscardedBytes(), file.getFileName());
+            return true;
+        }
+        return false;
+    }
+
+    private static byte[] encode(Iterable<MailItem> items) {
+        byte[] records = encodeRecords(items);
+        return ByteBuffer.allocate(RecordFile.HEADER_BYTES + records.length)
+                .put(RecordFile.header(MAGIC, VERSION)).put(records).array();
+    }
+
+    private static byte[] encodeRecords(Iterable<MailItem> items) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        DataOutputStream record = new DataOutputStream(payload);
+        for (MailItem mail : items) {
+            try {
+                payload.reset();
+                record.writeByte(mail.getKind().ordinal());
+                RecordFile.writeString(record, mail.getId());
+                record.writeInt(mail.getAmount());
+                RecordFile.writeRecord(out, payload);
+            } catch (IOException e) {
+                // In-memory streams only fail on an ID too long to store
+                throw new IllegalArgumentException("ID too long for a mailbox: " + mail.getId(), e);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * One player's waiting mail, merged by key or item in order of first arrival.
+     */
+    private static final class Box {
+        private final Map<String, MailItem> items = new LinkedHashMap<>();
+
+        private void add(MailItem mail) {
+            items.merge(mail.slot(), mail, (a, b) ->
+                    MailItem.of(a.getKind(), a.getId(), (int) Math.min(Integer.MAX_VALUE, (long) a.getAmount() + b.getAmount())));
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.hytalecrates.reward;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Walker/Vose alias table for O(1) weighted index sampling.
+ *
+ * <p>Built once from a weight array; each {@link #sample(RandomGenerator)} call costs one
+ * bounded int, one double and a single comparison, with no allocation. Non-positive weights
+ * are treated as zero. If every weight is zero the table degrades to a uniform pick, which
+ * matches the legacy cumulative sampler's fallback.</p>
+ */
+public final class AliasTable {
+
+    private final double[] probability;
+    private final int[] alias;
+
+    private AliasTable(double[] probability, int[] alias) {
+        this.probability = probability;
+        this.alias = alias;
+    }
+
+    /**
+     * Restores a table from columns previously read with {@link #getColumnProbability(int)}
+     * and {@link #getAlias(int)}, e.g. from the compiled config snapshot.
+     *
+     * @throws IllegalArgumentException If the columns are empty, mismatched or out of range
+     */
+    public static AliasTable of(double[] probability, int[] alias) {
+        int n = probability.length;
+        if (n == 0 || alias.length != n) {
+            throw new IllegalArgumentException("Alias table columns must be non-empty and the same length");
+        }
+        for (int i = 0; i < n; i++) {
+            if (alias[i] < 0 || alias[i] >= n || !(probability[i] >= 0.0 && probability[i] <= 1.0)) {
+                throw new IllegalArgumentException("Invalid alias table column " + i);
+            }
+        }
+        return new AliasTable(probability.clone(), alias.clone());
+    }
+
+    /**
+     * Builds an alias table for the given weights using Vose's algorithm.
+     *
+     * @param weights Selection weights, one per outcome (must not be empty)
+     * @return The compiled table
+     */
+    public static AliasTable build(int[] weights) {
+        int n = weights.length;
+        if (n == 0) {
+            throw new IllegalArgumentException("Cannot build an alias table without outcomes");
+        }
+
+        long total = 0;
+        for (int w : weights) {
+            if (w > 0) {
+                total += w;
+            }
+        }
+
+        double[] probability = new double[n];
+        int[] alias = new int[n];
+
+        if (total <= 0) {
+            // Uniform fallback: every column keeps itself.
+            for (int i = 0; i < n; i++) {
+                probability[i] = 1.0;
+                alias[i] = i;
+            }
+            return new AliasTable(probability, alias);
+        }
+
+        // Scale weights so the average column height is exactly 1.
+        double[] scaled = new double[n];
+        int[] small = new int[n];
+        int[] large = new int[n];
+        int smallCount = 0;
+        int largeCount = 0;
+
+        for (int i = 0; i < n; i++) {
+            scaled[i] = (Math.max(0, weights[i]) * (double) n) / total;
+            if (scaled[i] < 1.0) {
+                small[smallCount++] = i;
+            } else {
+                large[largeCount++] = i;
+            }
+        }
+
+        while (smallCount > 0 && largeCount > 0) {
+            int less = small[--smallCount];
+            int more = large[--largeCount];
+
+            probability[less] = scaled[less];
+            alias[less] = more;
+
+            scaled[more] = (scaled[more] + scaled[less]) - 1.0;
+            if (scaled[more] < 1.0) {
+                small[smallCount++] = more;
+            } else {
+                large[largeCount++] = more;
+            }
+        }
+
+        // Whatever remains is (up to rounding error) exactly full.
+        while (largeCount > 0) {
+            int i = large[--largeCount];
+            probability[i] = 1.0;
+            alias[i] = i;
+        }
+        while (smallCount > 0) {
+            int i = small[--smallCount];
+            probability[i] = 1.0;
+            alias[i] = i;
+        }
+
+        return new AliasTable(probability, alias);
+    }
+
+    /**
+     * Draws an outcome index in O(1).
+     *
+     * @param random The random source to draw from
+     * @return An index into the original weight array
+     */
+    public int sample(RandomGenerator random) {
+        int column = random.nextInt(probability.length);
+        return random.nextDouble() < probability[column] ? column : alias[column];
+    }
+
+    /**
+     * Gets the number of outcomes in this table.
+     */
+    public int size() {
+        return probability.length;
+    }
+
+    /**
+     * Gets the probability of keeping a column's own outcome rather than its alias.
+     */
+    public double getColumnProbability(int column) {
+        return probability[column];
+    }
+
+    /**
+     * Gets the outcome a column falls back to.
+     */
+    public int getAlias(int column) {
+        return alias[column];
+    }
+
+    /**
+     * Reconstructs the exact probability this table assigns to an outcome.
+     * Intended for diagnostics and tests; O(n).
+     */
+    public double outcomeProbability(int index) {
+        int n = probability.length;
+        double p = probability[index];
+        for (int i = 0; i < n; i++) {
+            if (i != index && alias[i] == index) {
+                p += 1.0 - probability[i];
+            }
+        }
+        return p / n;
+    }
+}
@@ -0,0 +1,63 @@
+package com.hytalecrates.reward;
+
+import com.hytalecrates.crate.Crate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Computes exact crate odds from reward weights, without sampling.
+ *
+ * <p>Each open is an independent categorical draw, so every figure here is closed form:
+ * per-open probability is the crate's precomputed {@link Crate#getProbability(int)}, which
+ * matches what its sampler rolls, keys-to-first-hit follows a geometric distribution, and
+ * hits in N opens follow a binomial distribution whose 95% interval is approximated by the
+ * normal bound {@code Np ± 1.96·sqrt(Np(1-p))}.</p>
+ */
+public final class OddsCalculator {
+
+    /**
+     * Largest allowed gap, in percentage points, between a configured and a derived chance.
+     */
+    public static final double CHANCE_TOLERANCE = 0.05;
+
+    private OddsCalculator() {}
+
+    /**
+     * Builds an odds report for a crate.
+     *
+     * @param crate The crate to analyse
+     * @param opens The number of opens to compute intervals for
+     * @return The report
+     */
+    public static OddsReport calculate(Crate crate, long opens) {
+        List<Reward> rewards = crate.getRewards();
+        long safeOpens = Math.max(1, opens);
+
+        List<OddsReport.Entry> entries = new ArrayList<>(rewards.size());
+        EnumMap<Rarity, Double> rarityProbabilities = new EnumMap<>(Rarity.class);
+
+        for (int i = 0; i < rewards.size(); i++) {
+            Reward reward = rewards.get(i);
+            double probability = crate.getProbability(i);
+            double derivedChance = probability * 100;
+            boolean mismatch = Math.abs(reward.getChance() - derivedChance) > CHANCE_TOLERANCE;
+
+            entries.add(new OddsReport.Entry(reward.getItem().getDisplayName(), reward.getRarity(),
+                    probability, safeOpens, reward.getChance(), mismatch));
+            rarityProbabilities.merge(reward.getRarity(), probability, Double::sum);
+        }
+
+        EnumMap<Rarity, OddsReport.Entry> rarities = new EnumMap<>(Rarity.class);
+        for (Map.Entry<Rarity, Double> entry : rarityProbabilities.entrySet()) {
+            rarities.put(entry.getKey(), new OddsReport.Entry(entry.getKey().name(), entry.getKey(),
+                    entry.getValue(), safeOpens, Double.NaN, false));
+        }
+
+        return new OddsReport(crate.getId(), safeOpens,
+                Collections.unmodifiableList(entries), Collections.unmodifiableMap(rarities));
+    }
+}
@@ -0,0 +1,159 @@
+package com.hytalecrates.reward;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Exact odds for a crate, derived in closed form from its reward weights.
+ * Produced by {@link OddsCalculator}.
+ */
+public class OddsReport {
+
+    private final String crateId;
+    private final long opens;
+    private final List<Entry> rewards;
+    private final Map<Rarity, Entry> rarities;
+
+    OddsReport(String crateId, long opens, List<Entry> rewards, Map<Rarity, Entry> rarities) {
+        this.crateId = crateId;
+        this.opens = opens;
+        this.rewards = rewards;
+        this.rarities = rarities;
+    }
+
+    /**
+     * Gets the crate ID this report describes.
+     */
+    public String getCrateId() {
+        return crateId;
+    }
+
+    /**
+     * Gets the number of opens the intervals were computed for.
+     */
+    public long getOpens() {
+        return opens;
+    }
+
+    /**
+     * Gets per-reward odds, in crate reward order.
+     */
+    public List<Entry> getRewards() {
+        return rewards;
+    }
+
+    /**
+     * Gets per-rarity odds. Only rarities present in the crate are included.
+     */
+    public Map<Rarity, Entry> getRarities() {
+        return rarities;
+    }
+
+    /**
+     * Gets the rewards whose configured chance disagrees with their weight-derived chance.
+     */
+    public List<Entry> getChanceMismatches() {
+        return rewards.stream().filter(Entry::isChanceMismatch).toList();
+    }
+
+    /**
+     * Odds for a single reward or rarity tier.
+     */
+    public static class Entry {
+
+        private final String label;
+        private final Rarity rarity;
+        private final double probability;
+        private final long opens;
+        private final double configuredChance;
+        private final boolean chanceMismatch;
+
+        Entry(String label, Rarity rarity, double probability, long opens,
+              double configuredChance, boolean chanceMismatch) {
+            this.label = label;
+            this.rarity = rarity;
+            this.probability = probability;
+            this.opens = opens;
+            this.configuredChance = configuredChance;
+            this.chanceMismatch = chanceMismatch;
+        }
+
+        /**
+         * Gets the display label (reward display name or rarity name).
+         */
+        public String getLabel() {
+            return label;
+        }
+
+        public Rarity getRarity() {
+            return rarity;
+        }
+
+        /**
+         * Gets the exact per-open probability (0-1).
+         */
+        public double getProbability() {
+            return probability;
+        }
+
+        /**
+         * Gets the exact per-open chance as a percentage (0-100).
+         */
+        public double getChance() {
+            return probability * 100;
+        }
+
+        /**
+         * Gets the expected number of keys until the first hit (mean of the geometric distribution).
+         */
+        public double getExpectedKeys() {
+            return probability > 0 ? 1.0 / probability : Double.POSITIVE_INFINITY;
+        }
+
+        /**
+         * Gets the expected number of hits in {@link #getOpens()} opens.
+         */
+        public double getExpectedHits() {
+            return opens * probability;
+        }
+
+        /**
+         * Gets the lower bound of the 95% interval for hits in N opens.
+         */
+        public long getIntervalLow() {
+            return Math.max(0, (long) Math.floor(getExpectedHits() - 1.96 * stdDev()));
+        }
+
+        /**
+         * Gets the upper bound of the 95% interval for hits in N opens.
+         */
+        public long getIntervalHigh() {
+            return Math.min(opens, (long) Math.ceil(getExpectedHits() + 1.96 * stdDev()));
+        }
+
+        /**
+         * Gets the probability of at least one hit in N opens.
+         */
+        public double getChanceOfAtLeastOne() {
+            return -Math.expm1(opens * Math.log1p(-probability));
+        }
+
+        /**
+         * Gets the chance stored in the reward config, or NaN for rarity tiers.
+         */
+        public double getConfiguredChance() {
+            return configuredChance;
+        }
+
+        /**
+         * Checks if the configured chance disagrees with the weight-derived chance.
+         */
+        public boolean isChanceMismatch() {
+            return chanceMismatch;
+        }
+
+        private double stdDev() {
+            return Math.sqrt(opens * probability * (1 - probability));
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.hytalecrates.reward;
+
+import java.util.Objects;
+import java.util.random.RandomGenerator;
+import java.util.random.RandomGeneratorFactory;
+
+/**
+ * Contention-free random source for reward rolls.
+ *
+ * <p>Each thread lazily receives its own generator, split from a root
+ * {@link RandomGenerator.SplittableGenerator}, so world threads and command threads never
+ * share generator state. Splittable algorithms (e.g. {@code L64X128MixRandom}) are split
+ * directly; other algorithms (e.g. {@code Xoshiro256PlusPlus}) are seeded from a split
+ * {@code L64X128MixRandom} root instead.</p>
+ *
+ * <p>With a fixed seed, the sequence of streams handed out is reproducible, which makes
+ * single-threaded test runs and sharded simulations deterministic.</p>
+ */
+public final class RandomSource {
+
+    public static final String DEFAULT_ALGORITHM = "L64X128MixRandom";
+
+    private final String algorithm;
+    private final Long seed;
+    private final RandomGeneratorFactory<RandomGenerator> factory;
+    private final RandomGenerator.SplittableGenerator root;
+    private final boolean splittable;
+    private final ThreadLocal<RandomGenerator> perThread;
+
+    private RandomSource(String algorithm, Long seed) {
+        this.algorithm = algorithm;
+        this.seed = seed;
+        this.factory = RandomGeneratorFactory.of(algorithm);
+        this.splittable = factory.isSplittable();
+
+        RandomGeneratorFactory<RandomGenerator> rootFactory = splittable
+                ? factory
+                : RandomGeneratorFactory.of(DEFAULT_ALGORITHM);
+        RandomGenerator created = seed != null ? rootFactory.create(seed) : rootFactory.create();
+        this.root = (RandomGenerator.SplittableGenerator) created;
+        this.perThread = ThreadLocal.withInitial(this::newStream);
+    }
+
+    /**
+     * Creates a random source for the given algorithm.
+     *
+     * @param algorithm A {@link RandomGeneratorFactory} algorithm name, or null for the default
+     * @param seed A fixed root seed, or null for a randomly seeded root
+     * @return The random source
+     * @throws IllegalArgumentException if the algorithm is unknown
+     */
+    public static RandomSource create(String algorithm, Long seed) {
+        String name = algorithm == null || algorithm.isBlank() ? DEFAULT_ALGORITHM : algorithm.trim();
+        return new RandomSource(name, seed);
+    }
+
+    /**
+     * Gets the calling thread's generator. Never shared between threads.
+     */
+    public RandomGenerator current() {
+        return perThread.get();
+    }
+
+    /**
+     * Creates a new, statistically independent generator split from the root.
+     * Intended for one-off consumers such as simulation shards.
+     */
+    public RandomGenerator newStream() {
+        // Splitting advances the root, so it must not race; this only runs once per thread/shard.
+        synchronized (root) {
+            return splittable ? root.split() : factory.create(root.nextLong());
+        }
+    }
+
+    /**
+     * Checks if this source was created with the same algorithm and seed.
+     */
+    public boolean matches(String algorithm, Long seed) {
+        String name = algorithm == null || algorithm.isBlank() ? DEFAULT_ALGORITHM : algorithm.trim();
+        return this.algorithm.equals(name) && Objects.equals(this.seed, seed);
+    }
+
+    /**
+     * Gets the algorithm name.
+     */
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * Gets the fixed seed, or null if randomly seeded.
+     */
+    public Long getSeed() {
+        return seed;
+    }
+}
@@ -1,6 +1,8 @@
 package com.hytalecrates.reward;
 
 import com.hytalecrates.config.ItemConfig;
+import com.hytalecrates.util.ItemIdUtil;
+import com.hypixel.hytale.server.core.inventory.ItemStack;
 
 /**
  * Represents a reward that can be won from a crate.
@@ -11,6 +13,10 @@ public class Reward {
     private final Rarity rarity;
     private final int weight;
     private final double chance;
+    // Resolved asset id; cached once the item asset map is loaded
+    private volatile String itemId;
+    // Reward item with the resolved id and stack size; cached together with the item id
+    private volatile ItemStack prototype;
 
     public Reward(ItemConfig item, Rarity rarity, int weight, double chance) {
         this.item = item;
@@ -61,6 +67,21 @@ public class Reward {
         return item.getMaterial();
     }
 
+    /**
+     * Gets the Hytale item asset id for this reward's material.
+     * Resolution scans the asset map, so the result is cached once assets are loaded.
+     */
+    public String getItemId() {
+        String resolved = itemId;
+        if (resolved == null) {
+            resolved = ItemIdUtil.resolveItemId(item.getMaterial());
+            if (ItemIdUtil.isAssetMapLoaded()) {
+                itemId = resolved;
+            }
+        }
+        return resolved;
+    }
+
     /**
      * Gets the amount of items in this reward.
      */
@@ -68,6 +89,28 @@ public class Reward {
         return item.getAmount();
     }
 
+    /**
+     * Gets the amount given per grant, clamped to one stack of 1-64.
+     */
+    public int getStackSize() {
+        return Math.max(1, Math.min(64, item.getAmount()));
+    }
+
+    /**
+     * Gets the reward item as given to a player. Item stacks are immutable, so the same
+     * stack is given on every grant. Cached once the item id is.
+     */
+    public ItemStack getItemPrototype() {
+        ItemStack built = prototype;
+        if (built == null) {
+            built = new ItemStack(getItemId(), getStackSize());
+            if (itemId != null) {
+                prototype = built;
+            }
+        }
+        return built;
+    }
+
     @Override
     public String toString() {
         return "Reward{" +
@@ -1,8 +1,10 @@
 package com.hytalecrates.reward;
 
 import com.hytalecrates.CratesPlugin;
+import com.hytalecrates.config.MainConfig;
 import com.hytalecrates.crate.Crate;
-import com.hytalecrates.util.ItemIdUtil;
+import com.hytalecrates.mail.MailItem;
+import com.hytalecrates.util.MessageUtil;
 import com.hypixel.hytale.server.core.entity.entities.Player;
 import com.hypixel.hytale.server.core.inventory.ItemStack;
 import com.hypixel.hytale.server.core.inventory.transaction.ItemStackTransaction;
@@ -10,7 +12,9 @@ import com.hypixel.hytale.server.core.inventory.transaction.ItemStackTransaction
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.random.RandomGenerator;
 import java.util.logging.Level;
 
 /**
@@ -19,11 +23,44 @@ import java.util.logging.Level;
 public class RewardManager {
 
     private final CratesPlugin plugin;
-    private final Random random;
+    private volatile RandomSource randomSource;
+    private volatile boolean cumulativeSampler;
+    private final SimulationEngine simulationEngine;
 
     public RewardManager(CratesPlugin plugin) {
         this.plugin = plugin;
-        this.random = new Random();
+        this.randomSource = RandomSource.create(RandomSource.DEFAULT_ALGORITHM, null);
+        this.simulationEngine = new SimulationEngine(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Applies reward-related settings. Called after configs are (re)loaded.
+     */
+    public void applySettings(MainConfig.SettingsConfig settings) {
+        this.cumulativeSampler = settings != null && settings.isCumulativeSampler();
+
+        String algorithm = settings != null ? settings.getRngAlgorithm() : null;
+        Long seed = settings != null ? settings.getRngSeed() : null;
+        if (!randomSource.matches(algorithm, seed)) {
+            try {
+                this.randomSource = RandomSource.create(algorithm, seed);
+            } catch (IllegalArgumentException e) {
+                plugin.getLogger().at(Level.WARNING).log("Unknown RNG algorithm '%s', using %s", algorithm, RandomSource.DEFAULT_ALGORITHM);
+                this.randomSource = RandomSource.create(RandomSource.DEFAULT_ALGORITHM, seed);
+            }
+        }
+
+        plugin.getLogger().at(Level.INFO).log("Reward sampler: %s, RNG: %s%s",
+                cumulativeSampler ? "CUMULATIVE" : "ALIAS",
+                randomSource.getAlgorithm(),
+                randomSource.getSeed() != null ? " (seed " + randomSource.getSeed() + ")" : "");
+    }
+
+    /**
+     * Gets the random source used for reward rolls.
+     */
+    public RandomSource getRandomSource() {
+        return randomSource;
     }
 
     /**
@@ -39,24 +76,37 @@ public class RewardManager {
             return null;
         }
 
-        int totalWeight = crate.getTotalWeight();
+        RandomGenerator random = randomSource.current();
+        int index = cumulativeSampler
+                ? selectCumulativeIndex(crate, random)
+                : crate.getSampler().sample(random);
+        return rewards.get(index);
+    }
+
+    /**
+     * Legacy sampler: draws against the total weight and walks the reward list linearly.
+     * Kept behind the "CUMULATIVE" setting so it can be benchmarked against the alias table.
+     */
+    static int selectCumulativeIndex(Crate crate, RandomGenerator random) {
+        List<Reward> rewards = crate.getRewards();
+        long totalWeight = crate.getTotalWeight();
         if (totalWeight <= 0) {
             // Fallback to equal probability if weights are invalid
-            return rewards.get(random.nextInt(rewards.size()));
+            return random.nextInt(rewards.size());
         }
 
-        int randomValue = random.nextInt(totalWeight);
-        int currentWeight = 0;
+        long randomValue = random.nextLong(totalWeight);
+        long currentWeight = 0;
 
-        for (Reward reward : rewards) {
-            currentWeight += reward.getWeight();
+        for (int i = 0; i < rewards.size(); i++) {
+            currentWeight += Math.max(0, rewards.get(i).getWeight());
             if (randomValue < currentWeight) {
-                return reward;
+                return i;
             }
         }
 
         // Fallback to last reward (shouldn't happen with valid weights)
-        return rewards.get(rewards.size() - 1);
+        return rewards.size() - 1;
     }
 
     /**
@@ -82,19 +132,20 @@ public class RewardManager {
      * @return The chance as a percentage (0-100)
      */
     public double calculateChance(Reward reward, Crate crate) {
-        int totalWeight = crate.getTotalWeight();
+        long totalWeight = crate.getTotalWeight();
         if (totalWeight <= 0) {
-            return 0;
+            return 100.0 / crate.getRewardCount();
         }
-        return (reward.getWeight() / (double) totalWeight) * 100;
+        return (Math.max(0, reward.getWeight()) / (double) totalWeight) * 100;
     }
 
     /**
-     * Gives a reward to a player.
+     * Gives a reward to a player. Whatever does not fit in the inventory is sent to the
+     * player's mailbox.
      *
      * @param player The player entity
      * @param reward The reward to give
-     * @return true if successful
+     * @return true if the reward was given or mailed
      */
     public boolean giveReward(Player player, Reward reward) {
         if (reward == null) {
@@ -105,16 +156,22 @@ public class RewardManager {
             return false;
         }
 
-        String itemId = ItemIdUtil.resolveItemId(reward.getItem().getMaterial());
-        int quantity = Math.max(1, Math.min(64, reward.getItem().getAmount()));
-        ItemStack stack = new ItemStack(itemId, quantity);
+        String itemId = reward.getItemId();
+        int quantity = reward.getStackSize();
 
         ItemStackTransaction tx = player.getInventory()
                 .getCombinedHotbarFirst()
-                .addItemStack(stack);
+                .addItemStack(reward.getItemPrototype());
 
         ItemStack remainder = tx.getRemainder();
         boolean success = remainder == null || remainder.isEmpty();
+        if (!success && player.getUuid() != null) {
+            int left = remainder.getQuantity();
+            plugin.getMailbox().send(player.getUuid(), MailItem.item(itemId, left));
+            player.sendMessage(MessageUtil.legacyToMessage("&eYour inventory is full; &f" + left + "x " + itemId
+                    + " &ewas sent to your mailbox. Use &f/crate claim&e."));
+            success = true;
+        }
 
         plugin.getLogger().at(Level.INFO).log("Reward grant result=%s itemId=%s qty=%d player=%s",
                 success, itemId, quantity, player.getUuid());
@@ -139,16 +196,32 @@ public class RewardManager {
      * @return Map of reward display names to occurrence counts
      */
     public Map<String, Integer> simulateOpens(Crate crate, int iterations) {
+        SimulationResult result = simulate(crate, iterations);
         Map<String, Integer> results = new HashMap<>();
-
-        for (int i = 0; i < iterations; i++) {
-            Reward reward = selectReward(crate);
-            if (reward != null) {
-                String name = reward.getItem().getDisplayName();
-                results.put(name, results.getOrDefault(name, 0) + 1);
+        for (int i = 0; i < result.getRewardCount(); i++) {
+            if (result.getCount(i) > 0) {
+                results.merge(result.getReward(i).getItem().getDisplayName(), (int) result.getCount(i), Integer::sum);
             }
         }
-
         return results;
     }
+
+    /**
+     * Runs a parallel Monte-Carlo simulation of crate opens.
+     * Blocks until all shards finish; use {@link #simulateAsync(Crate, long)} from game threads.
+     *
+     * @param crate The crate to simulate
+     * @param iterations Number of opens
+     * @return Per-reward and per-rarity counts plus throughput
+     */
+    public SimulationResult simulate(Crate crate, long iterations) {
+        return simulationEngine.simulate(crate, iterations, randomSource, cumulativeSampler);
+    }
+
+    /**
+     * Runs {@link #simulate(Crate, long)} off the calling thread.
+     */
+    public CompletableFuture<SimulationResult> simulateAsync(Crate crate, long iterations) {
+        return CompletableFuture.supplyAsync(() -> simulate(crate, iterations), ForkJoinPool.commonPool());
+    }
 }
@@ -0,0 +1,107 @@
+package com.hytalecrates.reward;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of a Monte-Carlo crate simulation.
+ * Reward counts are indexed by position in the crate's reward list.
+ */
+public class SimulationResult {
+
+    private final String crateId;
+    private final List<Reward> rewards;
+    private final long iterations;
+    private final long[] counts;
+    private final Map<Rarity, Long> rarityCounts;
+    private final long elapsedNanos;
+    private final int shards;
+
+    public SimulationResult(String crateId, List<Reward> rewards, long iterations, long[] counts,
+                            long elapsedNanos, int shards) {
+        this.crateId = crateId;
+        this.rewards = rewards;
+        this.iterations = iterations;
+        this.counts = counts;
+        this.elapsedNanos = elapsedNanos;
+        this.shards = shards;
+
+        EnumMap<Rarity, Long> byRarity = new EnumMap<>(Rarity.class);
+        for (int i = 0; i < counts.length; i++) {
+            byRarity.merge(rewards.get(i).getRarity(), counts[i], Long::sum);
+        }
+        this.rarityCounts = Collections.unmodifiableMap(byRarity);
+    }
+
+    /**
+     * Gets the simulated crate ID.
+     */
+    public String getCrateId() {
+        return crateId;
+    }
+
+    /**
+     * Gets the number of simulated opens.
+     */
+    public long getIterations() {
+        return iterations;
+    }
+
+    /**
+     * Gets the number of rewards in the simulated crate.
+     */
+    public int getRewardCount() {
+        return counts.length;
+    }
+
+    /**
+     * Gets the reward at an index.
+     */
+    public Reward getReward(int index) {
+        return rewards.get(index);
+    }
+
+    /**
+     * Gets how often the reward at an index was rolled.
+     */
+    public long getCount(int index) {
+        return counts[index];
+    }
+
+    /**
+     * Gets the observed frequency of the reward at an index as a percentage (0-100).
+     */
+    public double getPercentage(int index) {
+        return iterations > 0 ? (counts[index] / (double) iterations) * 100 : 0;
+    }
+
+    /**
+     * Gets the total rolls per rarity.
+     */
+    public Map<Rarity, Long> getRarityCounts() {
+        return rarityCounts;
+    }
+
+    /**
+     * Gets the wall-clock duration of the simulation in nanoseconds.
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Gets the number of parallel shards the work was split into.
+     */
+    public int getShards() {
+        return shards;
+    }
+
+    /**
+     * Gets the simulation throughput.
+     */
+    public double getOpensPerSecond() {
+        return elapsedNanos > 0 ? iterations / (elapsedNanos / 1_000_000_000.0) : 0;
+    }
+}
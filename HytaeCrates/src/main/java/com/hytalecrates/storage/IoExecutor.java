@@ -0,0 +1,372 @@
+package com.hytalecrates.storage;
+
+import com.hytalecrates.util.ContentHash;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-writer queue for every file the plugin persists, so disk I/O never runs on the
+ * world or command thread that asked for it.
+ *
+ * <p>Callers serialize on their own thread and hand over finished bytes. One daemon thread
+ * writes them in submission order, each through a temp file that is forced to disk and then
+ * renamed over the target, so a crash leaves either the old or the new file. A write or
+ * delete for a file that is still queued replaces the queued one; every caller of the
+ * replaced request gets the same future, completed when the final content is on disk.
+ * Appends are the exception: they are written in place without a temp file, for record
+ * logs that tolerate a torn tail, and a queued append extends rather than replaces. A failed
+ * append is truncated away again.</p>
+ *
+ * <p>Writes are skipped when the bytes hash to what this executor last wrote to the file and
+ * the file's size and modification time show it has not been touched since, so saving an
+ * unchanged file costs a hash and a stat rather than a write, fsync and rename. A file this
+ * executor has not written yet, e.g. one written before a restart, is read and compared
+ * once when its size matches.</p>
+ *
+ * <p>After {@link #shutdown(long, TimeUnit)} requests run on the calling thread, so late saves
+ * are never lost.</p>
+ */
+public class IoExecutor {
+
+    private final Object lock = new Object();
+    // Queued requests by target file, in order of first submission
+    private final Map<Path, Request> queue = new LinkedHashMap<>();
+    // What each file held after our last write to it; inline requests may run concurrently
+    private final Map<Path, Written> written = new ConcurrentHashMap<>();
+    private final Thread thread;
+    private boolean closed;
+    private long completed;
+    private long skipped;
+    private long coalesced;
+
+    public IoExecutor() {
+        this.thread = new Thread(this::run, "HytaleCrates-IO");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Queues an atomic replacement of a file's content. Parent directories are created.
+     *
+     * @return A future completed once the content is durable, or completed exceptionally
+     */
+    public CompletableFuture<Void> write(Path path, byte[] content) {
+        return submit(path, content, false);
+    }
+
+    /**
+     * Queues bytes to be appended to a file, which is created if missing. Appends to a file
+     * with a queued request are merged into it, so the file ends up as if each had run in order.
+     *
+     * @return A future completed once the bytes are durable, or completed exceptionally
+     */
+    public CompletableFuture<Void> append(Path path, byte[] content) {
+        return submit(path, content, true);
+    }
+
+    /**
+     * Queues deletion of a file. Deleting a missing file succeeds.
+     *
+     * @return A future completed once the file is gone
+     */
+    public CompletableFuture<Void> delete(Path path) {
+        return submit(path, null, false);
+    }
+
+    /**
+     * Gets the number of requests written or deleted so far.
+     */
+    public long getCompletedCount() {
+        synchronized (lock) {
+            return completed;
+        }
+    }
+
+    /**
+     * Gets the number of requests skipped because the file already had their content, or
+     * was already gone.
+     */
+    public long getSkippedCount() {
+        synchronized (lock) {
+            return skipped;
+        }
+    }
+
+    /**
+     * Gets the number of requests replaced by a newer one before they were written.
+     */
+    public long getCoalescedCount() {
+        synchronized (lock) {
+            return coalesced;
+        }
+    }
+
+    /**
+     * Stops accepting queued work, writes everything already queued and stops the writer
+     * thread, waiting at most the given time.
+     *
+     * @return true if the queue was drained in time
+     */
+    public boolean shutdown(long timeout, TimeUnit unit) {
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+        }
+        try {
+            thread.join(Math.max(1, unit.toMillis(timeout)));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return !thread.isAlive();
+    }
+
+    /**
+     * Waits for a queued request, turning its failure back into the {@link IOException} it was.
+     */
+    public static void await(CompletableFuture<?> future) throws IOException {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a write", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private CompletableFuture<Void> submit(Path path, byte[] content, boolean append) {
+        Request request;
+        synchronized (lock) {
+            request = queue.get(path);
+            if (request != null) {
+                // Still queued, even after shutdown: merging into it keeps per-file order
+                request.merge(content, append);
+                coalesced++;
+                return request.future;
+            }
+            request = new Request(path, content, append);
+            if (!closed) {
+                queue.put(path, request);
+                lock.notifyAll();
+                return request.future;
+            }
+        }
+        perform(request);
+        return request.future;
+    }
+
+    private void run() {
+        while (true) {
+            Request request;
+            synchronized (lock) {
+                while (queue.isEmpty() && !closed) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        // Only shutdown stops the writer
+                    }
+                }
+                if (queue.isEmpty()) {
+                    return;
+                }
+                Iterator<Request> it = queue.values().iterator();
+                request = it.next();
+                it.remove();
+            }
+            perform(request);
+        }
+    }
+
+    private void perform(Request request) {
+        try {
+            boolean performed;
+            if (request.append) {
+                written.remove(request.path);
+                appendDurably(request.path, request.content);
+                performed = true;
+            } else if (request.content != null) {
+                performed = writeIfChanged(request.path, request.content);
+            } else {
+                written.remove(request.path);
+                performed = Files.deleteIfExists(request.path);
+            }
+            synchronized (lock) {
+                if (performed) {
+                    completed++;
+                } else {
+                    skipped++;
+                }
+            }
+            request.future.complete(null);
+        } catch (IOException | RuntimeException e) {
+            request.future.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Writes a file unless it still holds exactly what we last wrote to it, or already holds
+     * the content on disk.
+     *
+     * @return true if the file was written
+     */
+    private boolean writeIfChanged(Path path, byte[] content) throws IOException {
+        String hash = ContentHash.sha256(content);
+        Written last = written.get(path);
+        BasicFileAttributes current = attributes(path);
+        if (last != null && last.hash.equals(hash) && last.matches(current)) {
+            return false;
+        }
+        if (holds(path, current, content)) {
+            written.put(path, new Written(hash, current.size(), current.lastModifiedTime()));
+            return false;
+        }
+
+        // Forgotten first, so a failed write is never mistaken for the old content
+        written.remove(path);
+        writeAtomically(path, content);
+        BasicFileAttributes attributes = attributes(path);
+        if (attributes != null) {
+            written.put(path, new Written(hash, attributes.size(), attributes.lastModifiedTime()));
+        }
+        return true;
+    }
+
+    /**
+     * Checks if a file's bytes on disk are exactly the given content.
+     */
+    private static boolean holds(Path path, BasicFileAttributes attributes, byte[] content) throws IOException {
+        if (attributes == null || !attributes.isRegularFile() || attributes.size() != content.length) {
+            return false;
+        }
+        try {
+            return Arrays.equals(Files.readAllBytes(path), content);
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    private static BasicFileAttributes attributes(Path path) throws IOException {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    private static void appendDurably(Path path, byte[] content) throws IOException {
+        Path parent = path.getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            long start = channel.size();
+            try {
+                ByteBuffer buffer = ByteBuffer.wrap(content);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+            } catch (IOException e) {
+                try {
+                    // Cut off a partial append, so the next one does not follow a torn record
+                    channel.truncate(start);
+                } catch (IOException rollback) {
+                    e.addSuppressed(rollback);
+                }
+                throw e;
+            }
+        }
+    }
+
+    private static void writeAtomically(Path path, byte[] content) throws IOException {
+        Path parent = path.getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.wrap(content);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        try {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * A file as we left it. Size and modification time catch edits made by anyone else.
+     */
+    private static final class Written {
+        private final String hash;
+        private final long size;
+        private final FileTime modified;
+
+        private Written(String hash, long size, FileTime modified) {
+            this.hash = hash;
+            this.size = size;
+            this.modified = modified;
+        }
+
+        private boolean matches(BasicFileAttributes attributes) {
+            return attributes != null && attributes.size() == size && attributes.lastModifiedTime().equals(modified);
+        }
+    }
+
+    private static final class Request {
+        private final Path path;
+        // Null to delete; replaced or extended while queued when a newer request merges into this one
+        private byte[] content;
+        private boolean append;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private Request(Path path, byte[] content, boolean append) {
+            this.path = path;
+            this.content = content;
+            this.append = append;
+        }
+
+        private void merge(byte[] newer, boolean newerAppends) {
+            if (!newerAppends) {
+                content = newer;
+                append = false;
+            } else if (content == null) {
+                // Appending to a file queued for deletion leaves only the appended bytes
+                content = newer;
+                append = false;
+            } else {
+                byte[] merged = Arrays.copyOf(content, content.length + newer.length);
+                System.arraycopy(newer, 0, merged, content.length, newer.length);
+                content = merged;
+            }
+        }
+    }
+}
@@ -0,0 +1,359 @@
+package com.hytalecrates.storage;
+
+import com.hytalecrates.key.KeyBalances;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.logging.Level;
+
+/**
+ * Write-behind persistence for {@link KeyBalances}: an append-only log of balance records
+ * plus a snapshot of every balance.
+ *
+ * <p>Balance changes are only noted as (player, key) pairs. A dedicated I/O thread collects
+ * them for {@link #FLUSH_MILLIS}, then appends the <em>current</em> balance of each as one
+ * batch with one fsync, so a player opening crates in quick succession costs one record per
+ * batch rather than one write per open.</p>
+ *
+ * <p>Past {@link #COMPACT_BYTES}, and on {@link #close()} if it is not empty, the log is
+ * compacted: every balance is written to the snapshot through the {@link IoExecutor}, then
+ * the log is truncated. Loading replays the snapshot, then the log. Records carry absolute
+ * balances, so replaying one twice is harmless and a crash between the two compaction steps
+ * loses nothing.</p>
+ *
+ * <p>Both files hold records framed by {@link RecordFile}, with the same payload: long and
+ * long for the player UUID, str key ID and int balance, where zero removes the balance.
+ * Reading stops at the first torn or corrupt record, and a batch that fails partway is cut
+ * off before it is retried.</p>
+ */
+public class KeyBalanceLog {
+
+    /** How long the I/O thread collects changes before writing a batch. */
+    public static final long FLUSH_MILLIS = 200;
+    /** Log size that triggers compaction. */
+    public static final long COMPACT_BYTES = 1024 * 1024;
+
+    private static final int MAGIC = 0x48434b42; // "HCKB"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = RecordFile.HEADER_BYTES;
+
+    private final StorageLog log;
+    private final IoExecutor ioExecutor;
+    private final KeyBalances balances;
+    private final Path path;
+    private final Path snapshotPath;
+
+    private final Object lock = new Object();
+    // Serializes file writes between the I/O thread and close()
+    private final Object ioLock = new Object();
+    private Set<Change> pending = new LinkedHashSet<>();
+    private boolean closing;
+
+    private FileChannel channel;
+    private long validLength = HEADER_BYTES;
+    private volatile long logBytes;
+    private Thread thread;
+
+    /**
+     * @param ioExecutor Writes the snapshot
+     * @param balances The balances to persist; this log becomes their listener
+     * @param path The append-only log file
+     * @param snapshotPath The snapshot file written by compaction
+     */
+    public KeyBalanceLog(StorageLog log, IoExecutor ioExecutor, KeyBalances balances, Path path, Path snapshotPath) {
+        this.log = log;
+        this.ioExecutor = ioExecutor;
+        this.balances = balances;
+        this.path = path;
+        this.snapshotPath = snapshotPath;
+    }
+
+    /**
+     * Loads the snapshot and the log into the balances, opens the log for appending and
+     * starts the I/O thread. Does nothing if already running.
+     *
+     * @return The number of records read
+     */
+    public synchronized int start() {
+        if (thread != null) {
+            return 0;
+        }
+
+        int records = read(snapshotPath);
+        int logRecords = read(path);
+        records += logRecords;
+
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            if (logRecords == 0) {
+                channel.truncate(0);
+                channel.write(ByteBuffer.wrap(RecordFile.header(MAGIC, VERSION)), 0);
+                validLength = HEADER_BYTES;
+            } else {
+                channel.truncate(validLength);
+            }
+            channel.position(validLength);
+            channel.force(true);
+        } catch (IOException e) {
+            log.log(Level.SEVERE, e, "Failed to open key balance log; balances will only be saved on shutdown");
+            closeChannel();
+            return records;
+        }
+
+        logBytes = validLength - HEADER_BYTES;
+        balances.setListener(this::record);
+        closing = false;
+        thread = new Thread(this::run, "HytaleCrates-KeyBalances");
+        thread.setDaemon(true);
+        thread.start();
+        return records;
+    }
+
+    /**
+     * Notes that a balance changed. Never blocks on I/O.
+     */
+    public void record(UUID playerId, String keyId) {
+        synchronized (lock) {
+            pending.add(new Change(playerId, keyId));
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Gets the log size in bytes since the last compaction.
+     */
+    public long getLogBytes() {
+        return logBytes;
+    }
+
+    /**
+     * Stops the I/O thread, writes pending changes and compacts, unless the log is empty
+     * and the snapshot therefore already holds every balance.
+     */
+    public synchronized void close() {
+        Thread running = thread;
+        if (running != null) {
+            synchronized (lock) {
+                closing = true;
+                lock.notifyAll();
+            }
+            try {
+                running.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            thread = null;
+        }
+
+        try {
+            synchronized (ioLock) {
+                if (channel != null) {
+                    writePending();
+                }
+                // Without a channel changes were never logged, so only the snapshot has them
+                if (channel == null || logBytes > 0) {
+                    compact();
+                }
+            }
+        } catch (IOException e) {
+            log.log(Level.SEVERE, e, "Failed to compact key balance log on shutdown");
+        } finally {
+            closeChannel();
+        }
+    }
+
+    private void run() {
+        while (true) {
+            synchronized (lock) {
+                while (pending.isEmpty() && !closing) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (closing) {
+                    return;
+                }
+            }
+
+            try {
+                // Let a burst accumulate so it becomes one write and one fsync
+                Thread.sleep(FLUSH_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            try {
+                synchronized (ioLock) {
+                    writePending();
+                    if (logBytes >= COMPACT_BYTES) {
+                        compact();
+                    }
+                }
+            } catch (IOException e) {
+                log.log(Level.SEVERE, e, "Failed to write key balance log");
+            }
+        }
+    }
+
+    /**
+     * Appends the current balance of every pending change as one batch and fsyncs it.
+     */
+    private void writePending() throws IOException {
+        Set<Change> batch;
+        synchronized (lock) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = pending;
+            pending = new LinkedHashSet<>();
+        }
+
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(batch.size() * 48);
+            DataOutputStream out = new DataOutputStream(bytes);
+            for (Change change : batch) {
+                writeRecord(out, change.playerId, change.keyId, balances.get(change.playerId, change.keyId));
+            }
+            out.flush();
+
+            RecordFile.append(channel, bytes.toByteArray(), this::append);
+            logBytes += bytes.size();
+        } catch (IOException e) {
+            // Keep the changes so the next batch retries them
+            synchronized (lock) {
+                batch.addAll(pending);
+                pending = batch;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Writes a batch at the log channel's position.
+     */
+    void append(FileChannel channel, ByteBuffer buffer) throws IOException {
+        RecordFile.WRITE_FULLY.write(channel, buffer);
+    }
+
+    /**
+     * Writes every balance to the snapshot, then truncates the log. If the snapshot fails the
+     * log is kept, so no change is lost.
+     */
+    private void compact() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.write(RecordFile.header(MAGIC, VERSION));
+        IOException[] failure = new IOException[1];
+        balances.forEach((playerId, keyId, amount) -> {
+            try {
+                writeRecord(out, playerId, keyId, amount);
+            } catch (IOException e) {
+                failure[0] = e;
+            }
+        });
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+        out.flush();
+        IoExecutor.await(ioExecutor.write(snapshotPath, bytes.toByteArray()));
+
+        if (channel != null) {
+            channel.truncate(HEADER_BYTES);
+            channel.position(HEADER_BYTES);
+            channel.force(true);
+        }
+        logBytes = 0;
+    }
+
+    /**
+     * Reads one file's records into the balances, remembering where the valid part ends.
+     *
+     * @return The number of records read
+     */
+    private int read(Path file) {
+        validLength = HEADER_BYTES;
+        if (!Files.exists(file)) {
+            return 0;
+        }
+
+        ByteBuffer buffer;
+        try {
+            buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        } catch (IOException e) {
+            log.log(Level.SEVERE, e, "Failed to read %s", file.getFileName());
+            return 0;
+        }
+        RecordFile.Scan scan = RecordFile.scan(buffer, MAGIC, VERSION, payload -> balances.restore(
+                new UUID(payload.getLong(), payload.getLong()), RecordFile.readString(payload), payload.getInt()));
+        if (scan == null) {
+            log.log(Level.WARNING, "Ignoring %s with unknown format", file.getFileName());
+            return 0;
+        }
+
+        validLength = scan.getValidLength();
+        if (scan.getDiscardedBytes() > 0) {
+            log.log(Level.WARNING, "Discarding %d byte(s) of torn %s tail",
+                    scan.getDiscardedBytes(), file.getFileName());
+        }
+        return scan.getRecords();
+    }
+
+    private void closeChannel() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // Already closed
+            }
+            channel = null;
+        }
+    }
+
+    private static void writeRecord(DataOutputStream out, UUID playerId, String keyId, int amount) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(32 + keyId.length());
+        DataOutputStream payload = new DataOutputStream(bytes);
+        payload.writeLong(playerId.getMostSignificantBits());
+        payload.writeLong(playerId.getLeastSignificantBits());
+        RecordFile.writeString(payload, keyId);
+        payload.writeInt(amount);
+        RecordFile.writeRecord(out, bytes);
+    }
+
+    /**
+     * A balance that changed and is not yet in the log.
+     */
+    private static final class Change {
+        private final UUID playerId;
+        private final String keyId;
+
+        private Change(UUID playerId, String keyId) {
+            this.playerId = playerId;
+            this.keyId = keyId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Change that = (Change) o;
+            return playerId.equals(that.playerId) && keyId.equals(that.keyId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(playerId, keyId);
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.hytalecrates.storage;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Ledger of key serials, a memory-mapped file with one bit per serial that is set once the
+ * serial has been spent.
+ *
+ * <p>Every issued stack of keys is given a range of serials, allocated from a counter in the
+ * file header. Opening a crate claims one serial of the held stack's range with a single
+ * compare-and-set on the word holding its bit, so a copied stack can be spent at most as
+ * many times as keys were issued. The file has a fixed size, set by its capacity when it is
+ * created; the operating system pages it in and writes it back as needed, so the heap
+ * footprint does not grow with the number of serials. All operations are thread-safe.</p>
+ *
+ * <p>File layout: int magic, int version, long capacity, long next serial, long spent count,
+ * padding to 64 bytes, then {@code capacity / 64} longs of bits, all in native byte order.</p>
+ */
+public class KeySerialLedger implements AutoCloseable {
+
+    /** Default capacity: 2^27 serials in a 16 MiB file. */
+    public static final long DEFAULT_CAPACITY = 1L << 27;
+
+    private static final int MAGIC = 0x48434b53; // "HCKS"
+    private static final int VERSION = 1;
+    private static final long CAPACITY_OFFSET = 8;
+    private static final long NEXT_OFFSET = 16;
+    private static final long SPENT_OFFSET = 24;
+    private static final long BITS_OFFSET = 64;
+    private static final VarHandle LONG = ValueLayout.JAVA_LONG.varHandle();
+
+    private final Arena arena;
+    private final MemorySegment segment;
+    private final long capacity;
+
+    private KeySerialLedger(Arena arena, MemorySegment segment, long capacity) {
+        this.arena = arena;
+        this.segment = segment;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Opens a ledger file, creating it with the given capacity if it does not exist. An
+     * existing ledger keeps the capacity it was created with.
+     *
+     * @param capacity Serials a new ledger can hold, rounded up to a multiple of 64
+     * @throws IOException If the file cannot be mapped or is not a ledger
+     */
+    public static KeySerialLedger open(Path file, long capacity) throws IOException {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            boolean created = channel.size() == 0;
+            long size;
+            if (created) {
+                capacity = (capacity + 63) & ~63L;
+                size = BITS_OFFSET + capacity / 8;
+            } else {
+                ByteBuffer header = ByteBuffer.allocate((int) BITS_OFFSET).order(ByteOrder.nativeOrder());
+                channel.read(header, 0);
+                header.flip();
+                if (header.remaining() < BITS_OFFSET || header.getInt() != MAGIC || header.getInt() != VERSION) {
+                    throw new IOException("Not a key serial ledger: " + file);
+                }
+                capacity = header.getLong((int) CAPACITY_OFFSET);
+                size = BITS_OFFSET + capacity / 8;
+                if (capacity <= 0 || (capacity & 63) != 0 || channel.size() < size) {
+                    throw new IOException("Truncated key serial ledger: " + file);
+                }
+            }
+
+            // Mapping beyond the end of a new file grows it; the bits start out zero
+            Arena arena = Arena.ofShared();
+            MemorySegment segment;
+            try {
+                segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, size, arena);
+            } catch (IOException | RuntimeException e) {
+                arena.close();
+                throw e;
+            }
+            if (created) {
+                segment.set(ValueLayout.JAVA_INT, 0, MAGIC);
+                segment.set(ValueLayout.JAVA_INT, 4, VERSION);
+                segment.set(ValueLayout.JAVA_LONG, CAPACITY_OFFSET, capacity);
+                segment.force();
+            }
+            return new KeySerialLedger(arena, segment, capacity);
+        }
+    }
+
+    /**
+     * Allocates a range of unspent serials for one issued stack.
+     *
+     * @return The first serial of the range, or -1 if the ledger is full
+     */
+    public long allocate(int count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("Count must be positive: " + count);
+        }
+        while (true) {
+            long next = (long) LONG.getVolatile(segment, NEXT_OFFSET);
+            if (next > capacity - count) {
+                return -1;
+            }
+            if (LONG.compareAndSet(segment, NEXT_OFFSET, next, next + count)) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * Spends one serial of a range, trying {@code hint} first and then the rest of the range
+     * in order. A range that was never allocated is treated as fully spent.
+     *
+     * @return The serial spent, or -1 if every serial of the range is spent
+     */
+    public long claim(long start, int count, long hint) {
+        if (start < 0 || count <= 0 || start > getIssued() - count) {
+            return -1;
+        }
+        long first = hint >= start && hint - start < count ? hint - start : 0;
+        for (int i = 0; i < count; i++) {
+            long serial = start + (first + i) % count;
+            if (set(serial)) {
+                return serial;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Marks a serial spent without claiming it, e.g. for keys of an issued range that were
+     * never handed out.
+     */
+    public void retire(long serial) {
+        if (serial >= 0 && serial < getIssued()) {
+            set(serial);
+        }
+    }
+
+    /**
+     * Returns a spent serial to its range, e.g. when the open it was claimed for failed.
+     */
+    public void release(long serial) {
+        if (serial < 0 || serial >= capacity) {
+            return;
+        }
+        long offset = wordOffset(serial);
+        long mask = 1L << (serial & 63);
+        while (true) {
+            long word = (long) LONG.getVolatile(segment, offset);
+            if ((word & mask) == 0) {
+                return;
+            }
+            if (LONG.compareAndSet(segment, offset, word, word & ~mask)) {
+                LONG.getAndAdd(segment, SPENT_OFFSET, -1L);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Checks if a serial has been spent.
+     */
+    public boolean isSpent(long serial) {
+        if (serial < 0 || serial >= capacity) {
+            return false;
+        }
+        return ((long) LONG.getVolatile(segment, wordOffset(serial)) & (1L << (serial & 63))) != 0;
+    }
+
+    /**
+     * Gets the number of serials the ledger can hold.
+     */
+    public long getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Gets the number of serials allocated so far.
+     */
+    public long getIssued() {
+        return (long) LONG.getVolatile(segment, NEXT_OFFSET);
+    }
+
+    /**
+     * Gets the number of serials spent or retired.
+     */
+    public long getSpent() {
+        return (long) LONG.getVolatile(segment, SPENT_OFFSET);
+    }
+
+    /**
+     * Writes changed pages of the ledger to disk.
+     */
+    public void force() {
+        segment.force();
+    }
+
+    /**
+     * Writes the ledger to disk and unmaps it. The ledger must not be used afterwards.
+     */
+    @Override
+    public void close() {
+        segment.force();
+        arena.close();
+    }
+
+    private boolean set(long serial) {
+        long offset = wordOffset(serial);
+        long mask = 1L << (serial & 63);
+        while (true) {
+            long word = (long) LONG.getVolatile(segment, offset);
+            if ((word & mask) != 0) {
+                return false;
+            }
+            if (LONG.compareAndSet(segment, offset, word, word | mask)) {
+                LONG.getAndAdd(segment, SPENT_OFFSET, 1L);
+                return true;
+            }
+        }
+    }
+
+    private static long wordOffset(long serial) {
+        return BITS_OFFSET + (serial >>> 6) * Long.BYTES;
+    }
+}
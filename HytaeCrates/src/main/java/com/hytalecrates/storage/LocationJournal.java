@@ -0,0 +1,387 @@
+package com.hytalecrates.storage;
+
+import com.hytalecrates.crate.CrateLocation;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+
+/**
+ * Append-only journal of crate placement changes, written behind by a dedicated I/O thread.
+ *
+ * <p>Callers only {@link #record(CrateLocation)} that a location changed. The I/O thread
+ * collects changes for a short interval, then writes the <em>current</em> state of each
+ * changed location (set to a crate, or removed) as one batch with one fsync. A location
+ * changed many times in a burst is written once, and the journal always converges on the
+ * live registry no matter in which order concurrent writers recorded their changes.</p>
+ *
+ * <p>Once the journal grows past {@link #COMPACT_BYTES}, every {@link #COMPACT_INTERVAL_MILLIS},
+ * and on {@link #close()}, it is compacted: the snapshot writer saves every placement and the
+ * journal is truncated. Loading replays the snapshot, then the journal tail; records are
+ * idempotent, so a crash between the two compaction steps loses nothing.</p>
+ *
+ * <p>Changes in worlds that are no longer loaded are skipped when writing; whoever unloaded
+ * the world saved its placements at that point.</p>
+ *
+ * <p>Records are framed by {@link RecordFile}. The payload is byte op, str world, int x,
+ * int y, int z and, for a set, str crate id. Replay stops at the first torn or corrupt
+ * record, and a batch that fails partway is cut off before it is retried.</p>
+ */
+public class LocationJournal {
+
+    /** How long the I/O thread collects changes before writing a batch. */
+    public static final long FLUSH_MILLIS = 50;
+    /** Journal size that triggers compaction. */
+    public static final long COMPACT_BYTES = 1024 * 1024;
+    /** Longest a non-empty journal goes without compaction. */
+    public static final long COMPACT_INTERVAL_MILLIS = 5 * 60 * 1000;
+
+    private static final int MAGIC = 0x48434c4a; // "HCLJ"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = RecordFile.HEADER_BYTES;
+    private static final byte OP_SET = 1;
+    private static final byte OP_REMOVE = 2;
+
+    /**
+     * Saves every current placement, replacing the previous snapshot.
+     */
+    @FunctionalInterface
+    public interface SnapshotWriter {
+        void write() throws IOException;
+    }
+
+    private final StorageLog log;
+    private final Path path;
+    private final Function<CrateLocation, String> currentCrate;
+    private final Predicate<String> worldLoaded;
+    private final SnapshotWriter snapshotWriter;
+
+    private final Object lock = new Object();
+    // Serializes file writes between the I/O thread and flush() callers
+    private final Object ioLock = new Object();
+    private Set<CrateLocation> pending = new LinkedHashSet<>();
+    private boolean compactRequested;
+    private boolean closing;
+
+    // Owned by the I/O thread while it runs, and by close() after it stops
+    private FileChannel channel;
+    private long validLength = -1;
+    private volatile long journalBytes;
+    private long lastCompactNanos;
+    private Thread thread;
+
+    /**
+     * @param log Where to report I/O failures
+     * @param path The journal file
+     * @param currentCrate Gets the ID of the crate currently at a location, or null
+     * @param worldLoaded Checks if a world's placements are loaded
+     * @param snapshotWriter Saves every placement; called by compaction
+     */
+    public LocationJournal(StorageLog log, Path path, Function<CrateLocation, String> currentCrate,
+                           Predicate<String> worldLoaded, SnapshotWriter snapshotWriter) {
+        this.log = log;
+        this.path = path;
+        this.currentCrate = currentCrate;
+        this.worldLoaded = worldLoaded;
+        this.snapshotWriter = snapshotWriter;
+    }
+
+    /**
+     * Replays the journal written since the last compaction. Call before {@link #start()}.
+     *
+     * @param onSet Receives the crate ID and location of each set record
+     * @param onRemove Receives the location of each remove record
+     * @return The number of records replayed
+     */
+    public int replay(BiConsumer<String, CrateLocation> onSet, Consumer<CrateLocation> onRemove) {
+        validLength = 0;
+        if (!Files.exists(path)) {
+            return 0;
+        }
+
+        ByteBuffer buffer;
+        try {
+            buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+        } catch (IOException e) {
+            log.log(Level.SEVERE, e, "Failed to read location journal");
+            return 0;
+        }
+        RecordFile.Scan scan = RecordFile.scan(buffer, MAGIC, VERSION, payload -> decode(payload, onSet, onRemove));
+        if (scan == null) {
+            log.log(Level.WARNING, "Ignoring location journal with unknown format");
+            return 0;
+        }
+
+        validLength = scan.getValidLength();
+        if (scan.getDiscardedBytes() > 0) {
+            log.log(Level.WARNING, "Discarding %d byte(s) of torn location journal tail", scan.getDiscardedBytes());
+        }
+        return scan.getRecords();
+    }
+
+    /**
+     * Opens the journal for appending and starts the I/O thread. Does nothing if already running.
+     */
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        if (validLength < 0) {
+            replay((crateId, location) -> {}, location -> {});
+        }
+
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            if (validLength < HEADER_BYTES) {
+                channel.truncate(0);
+                channel.write(ByteBuffer.wrap(RecordFile.header(MAGIC, VERSION)), 0);
+                validLength = HEADER_BYTES;
+            } else {
+                channel.truncate(validLength);
+            }
+            channel.position(validLength);
+            channel.force(true);
+        } catch (IOException e) {
+            log.log(Level.SEVERE, e, "Failed to open location journal; placements will only be saved on shutdown");
+            closeChannel();
+            return;
+        }
+
+        journalBytes = validLength - HEADER_BYTES;
+        lastCompactNanos = System.nanoTime();
+        closing = false;
+        thread = new Thread(this::run, "HytaleCrates-LocationJournal");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Records that the placement at a location changed. Never blocks on I/O.
+     */
+    public void record(CrateLocation location) {
+        synchronized (lock) {
+            pending.add(location);
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Asks the I/O thread to compact at its next opportunity.
+     */
+    public void requestCompaction() {
+        synchronized (lock) {
+            compactRequested = true;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Writes pending changes now, on the calling thread. Does nothing if not running.
+     */
+    public void flush() throws IOException {
+        synchronized (ioLock) {
+            if (channel != null) {
+                writePending();
+            }
+        }
+    }
+
+    /**
+     * Gets the journal size in bytes since the last compaction.
+     */
+    public long getJournalBytes() {
+        return journalBytes;
+    }
+
+    /**
+     * Stops the I/O thread, writes any pending changes and compacts.
+     */
+    public synchronized void close() {
+        Thread running = thread;
+        if (running != null) {
+            synchronized (lock) {
+                closing = true;
+                lock.notifyAll();
+            }
+            try {
+                running.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            thread = null;
+        }
+
+        try {
+            synchronized (ioLock) {
+                if (channel != null) {
+                    writePending();
+                }
+                compact();
+            }
+        } catch (IOException e) {
+            log.log(Level.SEVERE, e, "Failed to compact location journal on shutdown");
+        } finally {
+            closeChannel();
+        }
+    }
+
+    private void run() {
+        while (true) {
+            synchronized (lock) {
+                while (pending.isEmpty() && !compactRequested && !closing && !compactionDue()) {
+                    try {
+                        lock.wait(Math.max(1, COMPACT_INTERVAL_MILLIS / 10));
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (closing) {
+                    return;
+                }
+            }
+
+            try {
+                // Let a burst accumulate so it becomes one write and one fsync
+                Thread.sleep(FLUSH_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            try {
+                synchronized (ioLock) {
+                    writePending();
+                    boolean requested;
+                    synchronized (lock) {
+                        requested = compactRequested;
+                        compactRequested = false;
+                    }
+                    if (requested || compactionDue()) {
+                        compact();
+                    }
+                }
+            } catch (IOException e) {
+                log.log(Level.SEVERE, e, "Failed to write location journal");
+            }
+        }
+    }
+
+    private boolean compactionDue() {
+        return journalBytes >= COMPACT_BYTES
+                || (journalBytes > 0 && System.nanoTime() - lastCompactNanos >= COMPACT_INTERVAL_MILLIS * 1_000_000);
+    }
+
+    /**
+     * Appends the current state of every pending location as one batch and fsyncs it.
+     */
+    private void writePending() throws IOException {
+        Set<CrateLocation> batch;
+        synchronized (lock) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = pending;
+            pending = new LinkedHashSet<>();
+        }
+
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(batch.size() * 48);
+            DataOutputStream out = new DataOutputStream(bytes);
+            ByteArrayOutputStream payload = new ByteArrayOutputStream(48);
+            for (CrateLocation location : batch) {
+                if (!worldLoaded.test(location.getWorldName())) {
+                    continue;
+                }
+                payload.reset();
+                encode(new DataOutputStream(payload), location, currentCrate.apply(location));
+                RecordFile.writeRecord(out, payload);
+            }
+            out.flush();
+
+            if (bytes.size() == 0) {
+                return;
+            }
+            RecordFile.append(channel, bytes.toByteArray(), this::append);
+            journalBytes += bytes.size();
+        } catch (IOException e) {
+            // Keep the changes so the next batch retries them
+            synchronized (lock) {
+                batch.addAll(pending);
+                pending = batch;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Writes a batch at the journal channel's position.
+     */
+    void append(FileChannel channel, ByteBuffer buffer) throws IOException {
+        RecordFile.WRITE_FULLY.write(channel, buffer);
+    }
+
+    /**
+     * Saves a full snapshot, then truncates the journal. If the snapshot fails the journal
+     * is kept, so no change is lost.
+     */
+    private void compact() throws IOException {
+        long start = System.nanoTime();
+        snapshotWriter.write();
+        if (channel != null) {
+            channel.truncate(HEADER_BYTES);
+            channel.position(HEADER_BYTES);
+            channel.force(true);
+        }
+        long compacted = journalBytes;
+        journalBytes = 0;
+        lastCompactNanos = System.nanoTime();
+        log.log(Level.FINE, "Compacted location journal (%d bytes) in %.1f ms",
+                compacted, (System.nanoTime() - start) / 1_000_000.0);
+    }
+
+    private void closeChannel() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // Already closed
+            }
+            channel = null;
+        }
+    }
+
+    private static void encode(DataOutputStream out, CrateLocation location, String crateId) throws IOException {
+        out.writeByte(crateId != null ? OP_SET : OP_REMOVE);
+        RecordFile.writeString(out, location.getWorldName());
+        out.writeInt(location.getX());
+        out.writeInt(location.getY());
+        out.writeInt(location.getZ());
+        if (crateId != null) {
+            RecordFile.writeString(out, crateId);
+        }
+    }
+
+    private static void decode(ByteBuffer in, BiConsumer<String, CrateLocation> onSet, Consumer<CrateLocation> onRemove) {
+        byte op = in.get();
+        String world = RecordFile.readString(in);
+        CrateLocation location = new CrateLocation(world, in.getInt(), in.getInt(), in.getInt());
+        if (op == OP_SET) {
+            onSet.accept(RecordFile.readString(in), location);
+        } else if (op == OP_REMOVE) {
+            onRemove.accept(location);
+        } else {
+            throw new IllegalStateException("Unknown journal op " + op);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.hytalecrates.storage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Framing shared by the plugin's append-only record files: the location journal, the key
+ * balance log and snapshot, and mailboxes.
+ *
+ * <p>A file is a header of int magic and int version, then records of int payload length,
+ * int CRC32 of the payload and the payload. Strings in payloads are an unsigned short byte
+ * length followed by UTF-8. Reading stops at the first torn or corrupt record, and a failed
+ * append is cut off again, so a retried batch never follows a torn record.</p>
+ */
+public final class RecordFile {
+
+    /** Size of the magic and version header. */
+    public static final int HEADER_BYTES = 8;
+
+    /**
+     * Writes a buffer at a channel's position.
+     */
+    @FunctionalInterface
+    public interface ChannelWriter {
+        void write(FileChannel channel, ByteBuffer buffer) throws IOException;
+    }
+
+    /** Writes the whole buffer, as many calls as it takes. */
+    public static final ChannelWriter WRITE_FULLY = (channel, buffer) -> {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    };
+
+    private RecordFile() {
+    }
+
+    /**
+     * Creates a file header.
+     */
+    public static byte[] header(int magic, int version) {
+        return ByteBuffer.allocate(HEADER_BYTES).putInt(magic).putInt(version).array();
+    }
+
+    /**
+     * Writes one framed record.
+     */
+    public static void writeRecord(DataOutputStream out, ByteArrayOutputStream payload) throws IOException {
+        CRC32 crc = new CRC32();
+        byte[] bytes = payload.toByteArray();
+        crc.update(bytes);
+        out.writeInt(bytes.length);
+        out.writeInt((int) crc.getValue());
+        out.write(bytes);
+    }
+
+    /**
+     * Writes a string as an unsigned short byte length followed by UTF-8.
+     *
+     * @throws IOException If the string is longer than 65535 bytes
+     */
+    public static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IOException("String too long for a record: " + bytes.length + " bytes");
+        }
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a string written by {@link #writeString}.
+     */
+    public static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[Short.toUnsignedInt(in.getShort())];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Appends framed records at a channel's position and fsyncs them. If the write fails,
+     * the channel is truncated back to where it started, so the file ends with its last
+     * complete record.
+     *
+     * @param writer Writes the bytes; {@link #WRITE_FULLY} unless a caller needs another
+     */
+    public static void append(FileChannel channel, byte[] records, ChannelWriter writer) throws IOException {
+        long start = channel.position();
+        try {
+            writer.write(channel, ByteBuffer.wrap(records));
+            channel.force(false);
+        } catch (IOException e) {
+            try {
+                channel.truncate(start);
+                channel.position(start);
+            } catch (IOException rollback) {
+                // Readers still stop at the torn record, but whatever follows it is lost
+                e.addSuppressed(rollback);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Reads every valid record of a file's content, in order.
+     *
+     * @param onRecord Receives each payload; throwing a RuntimeException ends the read as if
+     *                 the record were corrupt
+     * @return Where the valid records end, or null if the header does not match
+     */
+    public static Scan scan(ByteBuffer file, int magic, int version, Consumer<ByteBuffer> onRecord) {
+        if (file.remaining() < HEADER_BYTES || file.getInt() != magic || file.getInt() != version) {
+            return null;
+        }
+
+        int records = 0;
+        int valid = file.position();
+        CRC32 crc = new CRC32();
+        while (file.remaining() >= 8) {
+            int length = file.getInt();
+            int checksum = file.getInt();
+            if (length <= 0 || length > file.remaining()) {
+                break;
+            }
+            ByteBuffer payload = file.slice(file.position(), length);
+            crc.reset();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            try {
+                onRecord.accept(payload);
+            } catch (RuntimeException e) {
+                break;
+            }
+            file.position(file.position() + length);
+            valid = file.position();
+            records++;
+        }
+        return new Scan(records, valid, file.limit());
+    }
+
+    /**
+     * The outcome of {@link #scan}.
+     */
+    public static final class Scan {
+        private final int records;
+        private final int validLength;
+        private final int length;
+
+        private Scan(int records, int validLength, int length) {
+            this.records = records;
+            this.validLength = validLength;
+            this.length = length;
+        }
+
+        /**
+         * Gets the number of valid records.
+         */
+        public int getRecords() {
+            return records;
+        }
+
+        /**
+         * Gets the length of the header and the valid records.
+         */
+        public int getValidLength() {
+            return validLength;
+        }
+
+        /**
+         * Gets the number of torn or corrupt bytes after the valid records.
+         */
+        public int getDiscardedBytes() {
+            return length - validLength;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.hytalecrates.storage;
+
+import java.util.logging.Level;
+
+/**
+ * Where the storage classes report problems. The plugin implements it over its logger (see
+ * {@code CratesPlugin#getStorageLog()}), so the storage classes run, and are tested,
+ * without a server.
+ */
+@FunctionalInterface
+public interface StorageLog {
+
+    /** Discards every message. */
+    StorageLog NONE = (level, cause, format, args) -> {};
+
+    /**
+     * Logs a printf-style message with the exception that caused it.
+     *
+     * @param cause The exception, or null
+     */
+    void log(Level level, Throwable cause, String format, Object... args);
+
+    /**
+     * Logs a printf-style message.
+     */
+    default void log(Level level, String format, Object... args) {
+        log(level, null, format, args);
+    }
+}
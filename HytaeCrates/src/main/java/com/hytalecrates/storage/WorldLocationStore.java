@@ -0,0 +1,141 @@
+package com.hytalecrates.storage;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.hytalecrates.CratesPlugin;
+import com.hytalecrates.crate.CrateLocation;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
+
+/**
+ * Crate placements stored as one JSON file per world, so worlds can be loaded and evicted
+ * independently.
+ *
+ * <p>Each file uses the layout locations.json always had, a map from crate ID to
+ * {@code "world:x:y:z"} strings, so files stay readable and hand-editable. File names are
+ * the URL-encoded world name.</p>
+ */
+public class WorldLocationStore {
+
+    private static final Type LOCATIONS_TYPE = new TypeToken<Map<String, List<String>>>() {}.getType();
+
+    private final CratesPlugin plugin;
+    private final Gson gson;
+    private final Path folder;
+
+    public WorldLocationStore(CratesPlugin plugin, Gson gson, Path folder) {
+        this.plugin = plugin;
+        this.gson = gson;
+        this.folder = folder;
+    }
+
+    /**
+     * Loads a world's placements as location to crate ID.
+     *
+     * @return The placements, empty if the world has none
+     * @throws IOException If the file exists but cannot be read
+     */
+    public Map<CrateLocation, String> load(String world) throws IOException {
+        Path path = fileFor(world);
+        if (!Files.exists(path)) {
+            return new LinkedHashMap<>();
+        }
+        return parse(Files.readString(path, StandardCharsets.UTF_8), world);
+    }
+
+    /**
+     * Replaces a world's placements atomically. An empty world's file is deleted. Serialized
+     * on the calling thread and written by the plugin's {@link IoExecutor}.
+     *
+     * @return A future completed once the file is on disk
+     */
+    public CompletableFuture<Void> save(String world, Map<CrateLocation, String> placements) {
+        Path path = fileFor(world);
+        if (placements.isEmpty()) {
+            return plugin.getIoExecutor().delete(path);
+        }
+
+        Map<String, List<String>> data = new LinkedHashMap<>();
+        for (Map.Entry<CrateLocation, String> entry : placements.entrySet()) {
+            data.computeIfAbsent(entry.getValue(), id -> new ArrayList<>()).add(entry.getKey().toString());
+        }
+        return plugin.getIoExecutor().write(path, gson.toJson(data).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Splits a legacy all-worlds locations file into per-world files, merging with any that
+     * already exist, then renames it so it is not migrated twice.
+     *
+     * @return The number of placements migrated
+     */
+    public int migrateLegacy(Path legacyFile) throws IOException {
+        if (!Files.exists(legacyFile)) {
+            return 0;
+        }
+
+        Map<String, Map<CrateLocation, String>> byWorld = new HashMap<>();
+        int count = 0;
+        for (Map.Entry<CrateLocation, String> entry : parse(Files.readString(legacyFile, StandardCharsets.UTF_8), null).entrySet()) {
+            byWorld.computeIfAbsent(entry.getKey().getWorldName(), w -> new LinkedHashMap<>())
+                    .put(entry.getKey(), entry.getValue());
+            count++;
+        }
+        for (Map.Entry<String, Map<CrateLocation, String>> entry : byWorld.entrySet()) {
+            Map<CrateLocation, String> merged = load(entry.getKey());
+            merged.putAll(entry.getValue());
+            // The legacy file is only renamed once every world file is on disk
+            IoExecutor.await(save(entry.getKey(), merged));
+        }
+
+        Files.move(legacyFile, legacyFile.resolveSibling(legacyFile.getFileName() + ".migrated"),
+                StandardCopyOption.REPLACE_EXISTING);
+        plugin.getLogger().at(Level.INFO).log("Migrated %d crate location(s) in %d world(s) to %s/",
+                count, byWorld.size(), folder.getFileName());
+        return count;
+    }
+
+    /**
+     * Gets the file holding a world's placements.
+     */
+    public Path fileFor(String world) {
+        String name = URLEncoder.encode(world, StandardCharsets.UTF_8).replace("*", "%2A");
+        return folder.resolve(name + ".json");
+    }
+
+    /**
+     * Parses a locations document, skipping entries that are malformed or, if {@code world}
+     * is given, belong to another world.
+     */
+    private Map<CrateLocation, String> parse(String json, String world) {
+        Map<String, List<String>> data = gson.fromJson(json, LOCATIONS_TYPE);
+        Map<CrateLocation, String> placements = new LinkedHashMap<>();
+        if (data == null) {
+            return placements;
+        }
+        for (Map.Entry<String, List<String>> entry : data.entrySet()) {
+            if (entry.getValue() == null) {
+                continue;
+            }
+            for (String locStr : entry.getValue()) {
+                CrateLocation location = CrateLocation.fromString(locStr);
+                if (location != null && (world == null || world.equals(location.getWorldName()))) {
+                    placements.put(location, entry.getKey());
+                }
+            }
+        }
+        return placements;
+    }
+}
@@ -0,0 +1,33 @@
+package com.hytalecrates.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * SHA-256 content hashes, used to tell whether a file's contents actually changed.
+ */
+public final class ContentHash {
+
+    private ContentHash() {}
+
+    /**
+     * Hashes bytes to a lowercase hex SHA-256 digest.
+     */
+    public static String sha256(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to provide SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Hashes a string's UTF-8 bytes to a lowercase hex SHA-256 digest.
+     */
+    public static String sha256(String text) {
+        return sha256(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
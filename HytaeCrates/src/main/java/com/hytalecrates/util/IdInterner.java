@@ -0,0 +1,70 @@
+package com.hytalecrates.util;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns strings (world names, crate IDs) to small, dense, never-reused int ids.
+ *
+ * <p>Lookups are lock-free; assigning a new id is synchronized. Ids are stable for the
+ * lifetime of the interner, so indexes keyed by them survive crate reloads.</p>
+ */
+public class IdInterner {
+
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] names = new String[8];
+    private int nextId;
+
+    /**
+     * Gets the id for a name, assigning a new one if needed.
+     */
+    public int intern(String name) {
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+        synchronized (this) {
+            id = ids.get(name);
+            if (id != null) {
+                return id;
+            }
+            int assigned = nextId++;
+            String[] current = names;
+            if (assigned >= current.length) {
+                current = Arrays.copyOf(current, current.length << 1);
+            }
+            current[assigned] = name;
+            names = current;
+            ids.put(name, assigned);
+            return assigned;
+        }
+    }
+
+    /**
+     * Gets the id for a name without assigning one.
+     *
+     * @return The id, or -1 if the name was never interned
+     */
+    public int find(String name) {
+        if (name == null) {
+            return -1;
+        }
+        Integer id = ids.get(name);
+        return id != null ? id : -1;
+    }
+
+    /**
+     * Gets the name for an id.
+     */
+    public String name(int id) {
+        String[] current = names;
+        return id >= 0 && id < current.length ? current[id] : null;
+    }
+
+    /**
+     * Gets the number of interned names (one past the highest id).
+     */
+    public int size() {
+        return ids.size();
+    }
+}
@@ -16,6 +16,20 @@ public final class ItemIdUtil {
 
     private ItemIdUtil() {}
 
+    /**
+     * Checks if the server item asset map is loaded, i.e. whether {@link #resolveItemId(String)}
+     * gives a final answer rather than a best-effort fallback.
+     */
+    public static boolean isAssetMapLoaded() {
+        try {
+            var assetMap = Item.getAssetMap();
+            var map = assetMap != null ? assetMap.getAssetMap() : null;
+            return map != null && !map.isEmpty();
+        } catch (Throwable ignored) {
+            return false;
+        }
+    }
+
     public static String resolveItemId(String configured) {
         if (configured == null) {
             return null;
@@ -0,0 +1,199 @@
+package com.hytalecrates.util;
+
+import java.util.function.LongConsumer;
+
+/**
+ * Open-addressing set of {@code long}s with linear probing.
+ *
+ * <p>Keys live in one primitive array, so membership tests never box or allocate. Slot value 0
+ * marks an empty slot; the key 0 itself is tracked by a flag. Removal uses backward-shift
+ * deletion like {@link LongIntHashMap}. Iteration order is the table order, which is stable
+ * while the set is not modified. Not thread-safe.</p>
+ */
+public class LongHashSet {
+
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private long[] keys;
+    private boolean containsZero;
+    private int size;
+    private int mask;
+    private int resizeAt;
+
+    public LongHashSet() {
+        allocate(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates an independent copy of another set.
+     */
+    public LongHashSet(LongHashSet other) {
+        this.keys = other.keys.clone();
+        this.containsZero = other.containsZero;
+        this.size = other.size;
+        this.mask = other.mask;
+        this.resizeAt = other.resizeAt;
+    }
+
+    /**
+     * Checks if a key is present.
+     */
+    public boolean contains(long key) {
+        if (key == 0) {
+            return containsZero;
+        }
+        int slot = LongIntHashMap.mix(key) & mask;
+        long stored;
+        while ((stored = keys[slot]) != 0) {
+            if (stored == key) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * Adds a key.
+     *
+     * @return true if the key was not already present
+     */
+    public boolean add(long key) {
+        if (key == 0) {
+            if (containsZero) {
+                return false;
+            }
+            containsZero = true;
+            size++;
+            return true;
+        }
+        int slot = LongIntHashMap.mix(key) & mask;
+        long stored;
+        while ((stored = keys[slot]) != 0) {
+            if (stored == key) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        if (++size >= resizeAt) {
+            rehash(keys.length << 1);
+        }
+        return true;
+    }
+
+    /**
+     * Removes a key.
+     *
+     * @return true if the key was present
+     */
+    public boolean remove(long key) {
+        if (key == 0) {
+            if (!containsZero) {
+                return false;
+            }
+            containsZero = false;
+            size--;
+            return true;
+        }
+        int slot = LongIntHashMap.mix(key) & mask;
+        long stored;
+        while ((stored = keys[slot]) != 0) {
+            if (stored == key) {
+                shiftBack(slot);
+                size--;
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * Gets the number of keys.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks if the set is empty.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Visits every key. The set must not be modified during iteration.
+     */
+    public void forEach(LongConsumer consumer) {
+        forEach(0, size, consumer);
+    }
+
+    /**
+     * Visits a range of keys in iteration order without copying them, for paging.
+     *
+     * @param skip The number of keys to skip first
+     * @param limit The maximum number of keys to visit
+     * @return The number of keys visited
+     */
+    public int forEach(int skip, int limit, LongConsumer consumer) {
+        int visited = 0;
+        if (containsZero && visited < limit) {
+            if (skip > 0) {
+                skip--;
+            } else {
+                consumer.accept(0);
+                visited++;
+            }
+        }
+        for (int i = 0; i < keys.length && visited < limit; i++) {
+            if (keys[i] != 0) {
+                if (skip > 0) {
+                    skip--;
+                } else {
+                    consumer.accept(keys[i]);
+                    visited++;
+                }
+            }
+        }
+        return visited;
+    }
+
+    private void shiftBack(int slot) {
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        long stored;
+        while ((stored = keys[next]) != 0) {
+            int ideal = LongIntHashMap.mix(stored) & mask;
+            // Move the key into the gap unless its ideal slot lies cyclically in (gap, next].
+            if (((next - ideal) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = stored;
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[gap] = 0;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        allocate(capacity);
+        for (long key : oldKeys) {
+            if (key != 0) {
+                int slot = LongIntHashMap.mix(key) & mask;
+                while (keys[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        this.keys = new long[capacity];
+        this.mask = capacity - 1;
+        this.resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+}
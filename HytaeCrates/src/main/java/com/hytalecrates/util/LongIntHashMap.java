@@ -0,0 +1,174 @@
+package com.hytalecrates.util;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing {@code long -> int} hash map with linear probing.
+ *
+ * <p>Keys and values live in two parallel primitive arrays, so lookups never box or allocate.
+ * Values must be non-negative; {@link #get(long)} returns {@code -1} for missing keys.
+ * Removal uses backward-shift deletion, so no tombstones accumulate. Not thread-safe.</p>
+ */
+public class LongIntHashMap implements LongIntMap {
+
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private long[] keys;
+    // Stored as value + 1 so that 0 marks an empty slot for any key, including 0L.
+    private int[] values;
+    private int size;
+    private int mask;
+    private int resizeAt;
+
+    public LongIntHashMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public LongIntHashMap(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    /**
+     * Creates an independent copy of another map.
+     */
+    public LongIntHashMap(LongIntHashMap other) {
+        this.keys = other.keys.clone();
+        this.values = other.values.clone();
+        this.size = other.size;
+        this.mask = other.mask;
+        this.resizeAt = other.resizeAt;
+    }
+
+    @Override
+    public int get(long key) {
+        int slot = mix(key) & mask;
+        while (true) {
+            int stored = values[slot];
+            if (stored == 0) {
+                return -1;
+            }
+            if (keys[slot] == key) {
+                return stored - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    @Override
+    public int put(long key, int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Values must be non-negative: " + value);
+        }
+        int slot = mix(key) & mask;
+        while (values[slot] != 0) {
+            if (keys[slot] == key) {
+                int previous = values[slot] - 1;
+                values[slot] = value + 1;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value + 1;
+        if (++size >= resizeAt) {
+            rehash(keys.length << 1);
+        }
+        return -1;
+    }
+
+    @Override
+    public int remove(long key) {
+        int slot = mix(key) & mask;
+        while (values[slot] != 0) {
+            if (keys[slot] == key) {
+                int previous = values[slot] - 1;
+                shiftBack(slot);
+                size--;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(values, 0);
+        size = 0;
+    }
+
+    @Override
+    public void forEach(EntryConsumer consumer) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != 0) {
+                consumer.accept(keys[i], values[i] - 1);
+            }
+        }
+    }
+
+    @Override
+    public LongIntHashMap copy() {
+        return new LongIntHashMap(this);
+    }
+
+    private void shiftBack(int slot) {
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (values[next] != 0) {
+            int ideal = mix(keys[next]) & mask;
+            // Move the entry into the gap unless its ideal slot lies cyclically in (gap, next].
+            if (((next - ideal) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        values[gap] = 0;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != 0) {
+                int slot = mix(oldKeys[i]) & mask;
+                while (values[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        this.keys = new long[capacity];
+        this.values = new int[capacity];
+        this.mask = capacity - 1;
+        this.resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        long needed = (long) Math.ceil(Math.max(expectedSize, 1) / LOAD_FACTOR) + 1;
+        return (int) Math.max(DEFAULT_CAPACITY, Long.highestOneBit(needed - 1) << 1);
+    }
+
+    static int mix(long key) {
+        // Murmur3 fmix64 finalizer: coordinates are highly regular, so spread every bit.
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+}
@@ -0,0 +1,70 @@
+package com.hytalecrates.util;
+
+/**
+ * Primitive {@code long -> int} map with non-negative values, where {@link #get(long)} returns
+ * {@code -1} for missing keys. Implemented on the heap by {@link LongIntHashMap} and off the
+ * heap by {@link OffHeapLongIntMap}.
+ */
+public interface LongIntMap {
+
+    /**
+     * Gets the value for a key, or -1 if absent.
+     */
+    int get(long key);
+
+    /**
+     * Checks if a key is present.
+     */
+    default boolean containsKey(long key) {
+        return get(key) >= 0;
+    }
+
+    /**
+     * Associates a value with a key.
+     *
+     * @return The previous value, or -1 if absent
+     */
+    int put(long key, int value);
+
+    /**
+     * Removes a key.
+     *
+     * @return The removed value, or -1 if absent
+     */
+    int remove(long key);
+
+    /**
+     * Gets the number of entries.
+     */
+    int size();
+
+    /**
+     * Checks if the map is empty.
+     */
+    default boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Removes all entries.
+     */
+    void clear();
+
+    /**
+     * Visits every entry. The map must not be modified during iteration.
+     */
+    void forEach(EntryConsumer consumer);
+
+    /**
+     * Creates an independent copy of the same kind.
+     */
+    LongIntMap copy();
+
+    /**
+     * Callback for {@link #forEach(EntryConsumer)}.
+     */
+    @FunctionalInterface
+    interface EntryConsumer {
+        void accept(long key, int value);
+    }
+}
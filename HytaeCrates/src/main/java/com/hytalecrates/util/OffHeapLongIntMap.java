@@ -0,0 +1,202 @@
+package com.hytalecrates.util;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+
+/**
+ * Open-addressing {@code long -> int} hash map with linear probing, stored in native memory.
+ *
+ * <p>Same contract and probing scheme as {@link LongIntHashMap}, but the table is a single
+ * {@link MemorySegment} of packed 12-byte slots (key, then value + 1 so that 0 marks an empty
+ * slot) rather than two Java arrays. The heap holds only this object and the segment handle,
+ * whatever the size, and the key and value of a slot share a cache line.</p>
+ *
+ * <p>Segments are allocated from an automatic arena and freed once the map and its segment
+ * are unreachable, so copies can be dropped like any other object. Not thread-safe.</p>
+ */
+public class OffHeapLongIntMap implements LongIntMap {
+
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.6f;
+    private static final long SLOT_BYTES = 12;
+    private static final long VALUE_OFFSET = 8;
+    private static final ValueLayout.OfLong KEY = ValueLayout.JAVA_LONG_UNALIGNED;
+    private static final ValueLayout.OfInt VALUE = ValueLayout.JAVA_INT_UNALIGNED;
+
+    private MemorySegment table;
+    private int size;
+    private int mask;
+    private int resizeAt;
+
+    public OffHeapLongIntMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public OffHeapLongIntMap(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    /**
+     * Creates an independent copy of another map with a bulk memory copy of its whole table.
+     * The old table's native memory is only freed once the GC collects it, so copying a large
+     * map on every edit holds native memory well beyond the live table until then.
+     */
+    public OffHeapLongIntMap(OffHeapLongIntMap other) {
+        this.table = Arena.ofAuto().allocate(other.table.byteSize(), Long.BYTES);
+        MemorySegment.copy(other.table, 0, table, 0, table.byteSize());
+        this.size = other.size;
+        this.mask = other.mask;
+        this.resizeAt = other.resizeAt;
+    }
+
+    @Override
+    public int get(long key) {
+        int slot = LongIntHashMap.mix(key) & mask;
+        while (true) {
+            int stored = value(slot);
+            if (stored == 0) {
+                return -1;
+            }
+            if (key(slot) == key) {
+                return stored - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    @Override
+    public int put(long key, int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Values must be non-negative: " + value);
+        }
+        int slot = LongIntHashMap.mix(key) & mask;
+        int stored;
+        while ((stored = value(slot)) != 0) {
+            if (key(slot) == key) {
+                setValue(slot, value + 1);
+                return stored - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        setKey(slot, key);
+        setValue(slot, value + 1);
+        if (++size >= resizeAt) {
+            rehash((mask + 1) << 1);
+        }
+        return -1;
+    }
+
+    @Override
+    public int remove(long key) {
+        int slot = LongIntHashMap.mix(key) & mask;
+        int stored;
+        while ((stored = value(slot)) != 0) {
+            if (key(slot) == key) {
+                shiftBack(slot);
+                size--;
+                return stored - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        table.fill((byte) 0);
+        size = 0;
+    }
+
+    @Override
+    public void forEach(EntryConsumer consumer) {
+        for (int i = 0; i <= mask; i++) {
+            int stored = value(i);
+            if (stored != 0) {
+                consumer.accept(key(i), stored - 1);
+            }
+        }
+    }
+
+    @Override
+    public OffHeapLongIntMap copy() {
+        return new OffHeapLongIntMap(this);
+    }
+
+    /**
+     * Gets the native memory held by the table, in bytes.
+     */
+    public long byteSize() {
+        return table.byteSize();
+    }
+
+    private void shiftBack(int slot) {
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        int stored;
+        while ((stored = value(next)) != 0) {
+            long key = key(next);
+            int ideal = LongIntHashMap.mix(key) & mask;
+            // Move the entry into the gap unless its ideal slot lies cyclically in (gap, next].
+            if (((next - ideal) & mask) >= ((next - gap) & mask)) {
+                setKey(gap, key);
+                setValue(gap, stored);
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        setValue(gap, 0);
+    }
+
+    private void rehash(int capacity) {
+        MemorySegment old = table;
+        int oldCapacity = mask + 1;
+        allocate(capacity);
+        for (int i = 0; i < oldCapacity; i++) {
+            long offset = i * SLOT_BYTES;
+            int stored = old.get(VALUE, offset + VALUE_OFFSET);
+            if (stored != 0) {
+                long key = old.get(KEY, offset);
+                int slot = LongIntHashMap.mix(key) & mask;
+                while (value(slot) != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                setKey(slot, key);
+                setValue(slot, stored);
+            }
+        }
+    }
+
+    private long key(int slot) {
+        return table.get(KEY, slot * SLOT_BYTES);
+    }
+
+    private int value(int slot) {
+        return table.get(VALUE, slot * SLOT_BYTES + VALUE_OFFSET);
+    }
+
+    private void setKey(int slot, long key) {
+        table.set(KEY, slot * SLOT_BYTES, key);
+    }
+
+    private void setValue(int slot, int value) {
+        table.set(VALUE, slot * SLOT_BYTES + VALUE_OFFSET, value);
+    }
+
+    private void allocate(int capacity) {
+        // Arena allocations are zeroed, so every slot starts empty
+        this.table = Arena.ofAuto().allocate(capacity * SLOT_BYTES, Long.BYTES);
+        this.mask = capacity - 1;
+        this.resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        long needed = (long) Math.ceil(Math.max(expectedSize, 1) / LOAD_FACTOR) + 1;
+        return (int) Math.max(DEFAULT_CAPACITY, Long.highestOneBit(needed - 1) << 1);
+    }
+}
@@ -0,0 +1,61 @@
+package com.hytalecrates.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Measures consecutive named phases of a longer operation, such as plugin startup.
+ *
+ * <p>Each call to {@link #mark(String)} closes the phase that started at the previous mark
+ * (or at construction). Marking the same name twice accumulates.</p>
+ */
+public class PhaseTimer {
+
+    private final long startNanos;
+    private final Map<String, Long> phases;
+    private long lastNanos;
+
+    public PhaseTimer() {
+        this.startNanos = System.nanoTime();
+        this.lastNanos = startNanos;
+        this.phases = new LinkedHashMap<>();
+    }
+
+    /**
+     * Ends the current phase and records it under a name.
+     */
+    public void mark(String phase) {
+        long now = System.nanoTime();
+        phases.merge(phase, now - lastNanos, Long::sum);
+        lastNanos = now;
+    }
+
+    /**
+     * Gets the recorded phases in order, in nanoseconds.
+     */
+    public Map<String, Long> getPhases() {
+        return phases;
+    }
+
+    /**
+     * Gets the time since construction, in nanoseconds.
+     */
+    public long getTotalNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    /**
+     * Formats the breakdown, e.g. {@code "config=12.3ms crates=4.1ms total=16.5ms"}.
+     */
+    public String format() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Long> entry : phases.entrySet()) {
+            sb.append(entry.getKey()).append('=').append(millis(entry.getValue())).append("ms ");
+        }
+        return sb.append("total=").append(millis(getTotalNanos())).append("ms").toString();
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.1f", nanos / 1_000_000.0);
+    }
+}
@@ -0,0 +1,127 @@
+package com.hytalecrates.config;
+
+import com.hytalecrates.crate.Crate;
+import com.hytalecrates.crate.CrateRegistrySnapshot;
+import com.hytalecrates.reward.AliasTable;
+import com.hytalecrates.util.IdInterner;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the compiled config snapshot encoding.
+ */
+class CompiledConfigCacheTest {
+
+    private static final Map<String, String> FILE_HASHES = Map.of("vote.json", "hash-vote", "rare.json", "hash-rare");
+    private static final Map<String, String> FILE_CRATE_IDS = Map.of("vote.json", "vote", "rare.json", "rare");
+
+    private static CrateConfig crateConfig(String id, int... weights) {
+        CrateConfig config = new CrateConfig();
+        config.setId(id);
+        config.setDisplayName("&b" + id);
+        config.setKeyId(id + "_key");
+        config.setKeyItem(new ItemConfig("STICK", 1, "&b" + id + " Key"));
+        List<RewardConfig> rewards = new ArrayList<>();
+        for (int weight : weights) {
+            rewards.add(new RewardConfig(new ItemConfig("ITEM_" + weight, 2, "Item " + weight), "RARE", weight, weight));
+        }
+        config.setRewards(rewards);
+        return config;
+    }
+
+    /**
+     * Encodes two crates: "vote" compiled in the registry, and "rare" missing from it, so
+     * only its config is written.
+     */
+    private static byte[] encodeSample(CrateConfig vote, CrateConfig rare) throws IOException {
+        CrateRegistrySnapshot.Builder builder = CrateRegistrySnapshot.builder(new IdInterner(), new IdInterner());
+        builder.putCrate(new Crate(vote));
+        return CompiledConfigCache.encode(FILE_HASHES, FILE_CRATE_IDS, List.of(vote, rare), builder.build());
+    }
+
+    @Test
+    void testRoundTripRestoresConfigsAndSamplers() throws IOException {
+        CrateConfig vote = crateConfig("vote", 70, 30);
+        byte[] bytes = encodeSample(vote, crateConfig("rare", 1, 2, 3));
+
+        String sourceHash = CompiledConfigCache.sourceHash(FILE_HASHES);
+        CompiledConfig compiled = CompiledConfigCache.decode(ByteBuffer.wrap(bytes), sourceHash);
+
+        assertNotNull(compiled);
+        assertEquals(sourceHash, compiled.getSourceHash());
+        assertEquals(List.of("vote", "rare"), new ArrayList<>(compiled.getCrateConfigs().keySet()));
+        assertEquals(FILE_HASHES, compiled.getFileHashes());
+        assertEquals(FILE_CRATE_IDS, compiled.getFileCrateIds());
+
+        CrateConfig read = compiled.getCrateConfigs().get("vote");
+        assertEquals("vote_key", read.getKeyId());
+        assertEquals("&bvote Key", read.getKeyItem().getDisplayName());
+        assertEquals(2, read.getRewards().size());
+        assertEquals(30, read.getRewards().get(1).getWeight());
+        assertEquals(2, read.getRewards().get(1).getItem().getAmount());
+
+        AliasTable expected = new Crate(vote).getSampler();
+        AliasTable sampler = compiled.getSampler("vote");
+        assertNotNull(sampler);
+        assertEquals(expected.size(), sampler.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.getColumnProbability(i), sampler.getColumnProbability(i));
+            assertEquals(expected.getAlias(i), sampler.getAlias(i));
+        }
+
+        // Not in the registry: the config is kept, the sampler is rebuilt
+        assertEquals(3, compiled.getCrateConfigs().get("rare").getRewards().size());
+        assertNull(compiled.getSampler("rare"));
+    }
+
+    @Test
+    void testAbsentItemFieldsStayAbsent() throws IOException {
+        CrateConfig vote = crateConfig("vote", 70, 30);
+        ItemConfig bare = vote.getRewards().get(0).getItem();
+        bare.setDisplayName(null);
+        bare.setLore(null);
+        bare.setEnchantments(null);
+        byte[] bytes = encodeSample(vote, crateConfig("rare", 1));
+
+        String sourceHash = CompiledConfigCache.sourceHash(FILE_HASHES);
+        ItemConfig read = CompiledConfigCache.decode(ByteBuffer.wrap(bytes), sourceHash)
+                .getCrateConfigs().get("vote").getRewards().get(0).getItem();
+        assertNull(read.rawDisplayName());
+        assertNull(read.rawLore());
+        assertNull(read.rawEnchantments());
+    }
+
+    @Test
+    void testOtherSourceHashIsNotUsed() throws IOException {
+        byte[] bytes = encodeSample(crateConfig("vote", 70, 30), crateConfig("rare", 1));
+
+        String edited = CompiledConfigCache.sourceHash(Map.of("vote.json", "hash-vote", "rare.json", "edited"));
+        assertNull(CompiledConfigCache.decode(ByteBuffer.wrap(bytes), edited));
+    }
+
+    @Test
+    void testCorruptBytesAreNotUsed() throws IOException {
+        byte[] bytes = encodeSample(crateConfig("vote", 70, 30), crateConfig("rare", 1));
+        String sourceHash = CompiledConfigCache.sourceHash(FILE_HASHES);
+
+        assertNull(CompiledConfigCache.decode(ByteBuffer.wrap(Arrays.copyOf(bytes, bytes.length / 2)), sourceHash));
+
+        byte[] badMagic = bytes.clone();
+        badMagic[0] ^= 0x7f;
+        assertNull(CompiledConfigCache.decode(ByteBuffer.wrap(badMagic), sourceHash));
+
+        // A count in the body overwritten with a huge value
+        byte[] badCount = bytes.clone();
+        int filesCount = 8 + 4 + sourceHash.length();
+        badCount[filesCount] = 0x7f;
+        assertNull(CompiledConfigCache.decode(ByteBuffer.wrap(badCount), sourceHash));
+    }
+}
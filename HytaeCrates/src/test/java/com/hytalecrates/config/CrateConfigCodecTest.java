@@ -0,0 +1,136 @@
+package com.hytalecrates.config;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the streaming crate config codec.
+ */
+class CrateConfigCodecTest {
+
+    private final Gson gson = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create();
+
+    private static CrateConfig sampleCrate() {
+        CrateConfig config = new CrateConfig();
+        config.setId("vote_crate");
+        config.setDisplayName("&bVote <Crate>");
+        config.setKeyId("vote_key");
+
+        ItemConfig keyItem = new ItemConfig("STICK", 1, "&b&lVote Key");
+        keyItem.setEnchanted(true);
+        keyItem.setLore(new ArrayList<>(List.of("&7Right-click a Vote Crate", "&7to claim your reward!")));
+        config.setKeyItem(keyItem);
+
+        List<RewardConfig> rewards = new ArrayList<>();
+        ItemConfig sword = new ItemConfig("DIAMOND_SWORD", 1, "&cBlade");
+        Map<String, Integer> enchantments = new LinkedHashMap<>();
+        enchantments.put("sharpness", 5);
+        enchantments.put("unbreaking", 3);
+        sword.setEnchantments(enchantments);
+        rewards.add(new RewardConfig(sword, "LEGENDARY", 1, 0.5));
+        rewards.add(new RewardConfig(new ItemConfig("DIAMOND", 5, "&bDiamonds"), "RARE", 15, 15.0));
+        config.setRewards(rewards);
+
+        config.getHologram().setEnabled(true);
+        config.getHologram().setLines(new ArrayList<>(List.of("&bVote Crate", "&7Right-click to open")));
+        return config;
+    }
+
+    @Test
+    void testWritesSameTextAsReflectiveGson() {
+        CrateConfig config = sampleCrate();
+        assertEquals(gson.toJson(config), new CrateConfigCodec().toJson(config));
+    }
+
+    @Test
+    void testRoundTripPreservesFields() {
+        CrateConfigCodec codec = new CrateConfigCodec();
+        String json = codec.toJson(sampleCrate());
+
+        CrateConfig read = codec.fromJson(json.getBytes(StandardCharsets.UTF_8));
+        assertEquals(json, codec.toJson(read));
+        assertEquals(gson.toJson(gson.fromJson(json, CrateConfig.class)), codec.toJson(read));
+        assertEquals(2, read.getRewards().size());
+        assertEquals(5, read.getRewards().get(0).getItem().getEnchantments().get("sharpness"));
+    }
+
+    @Test
+    void testRoundTripKeepsAbsentItemFieldsAbsent() {
+        CrateConfig config = sampleCrate();
+        ItemConfig bare = config.getRewards().get(1).getItem();
+        bare.setDisplayName(null);
+        bare.setLore(null);
+        bare.setEnchantments(null);
+
+        CrateConfigCodec codec = new CrateConfigCodec();
+        String json = codec.toJson(config);
+        assertEquals(gson.toJson(config), json);
+
+        // Absent fields are not written as the material or as empty lists
+        JsonObject item = JsonParser.parseString(json).getAsJsonObject()
+                .getAsJsonArray("rewards").get(1).getAsJsonObject().getAsJsonObject("item");
+        assertFalse(item.has("displayName"));
+        assertFalse(item.has("lore"));
+        assertFalse(item.has("enchantments"));
+
+        CrateConfig read = codec.fromJson(json.getBytes(StandardCharsets.UTF_8));
+        assertEquals(gson.toJson(gson.fromJson(json, CrateConfig.class)), codec.toJson(read));
+    }
+
+    @Test
+    void testInternsRepeatedStrings() {
+        String json = "{\"id\":\"a\",\"rewards\":[{\"item\":{\"material\":\"STONE\",\"lore\":[\"&7Line\"]},\"rarity\":\"COMMON\"},"
+                + "{\"item\":{\"material\":\"STONE\",\"lore\":[\"&7Line\"]},\"rarity\":\"COMMON\"}]}";
+        CrateConfig config = new CrateConfigCodec().fromJson(json.getBytes(StandardCharsets.UTF_8));
+
+        RewardConfig first = config.getRewards().get(0);
+        RewardConfig second = config.getRewards().get(1);
+        assertSame(first.getItem().getMaterial(), second.getItem().getMaterial());
+        assertSame(first.getRarity(), second.getRarity());
+        assertSame(first.getItem().getLore().get(0), second.getItem().getLore().get(0));
+    }
+
+    @Test
+    void testNullsAndQuotedNumbersMatchGson() {
+        String json = "{\"id\":\"a\",\"rewards\":[{\"weight\":null,\"chance\":\"2.5\",\"item\":{\"amount\":\"3\"}}],\"hologram\":null}";
+        CrateConfig codec = new CrateConfigCodec().fromJson(json.getBytes(StandardCharsets.UTF_8));
+        CrateConfig reflective = gson.fromJson(json, CrateConfig.class);
+
+        assertEquals(gson.toJson(reflective), gson.toJson(codec));
+        assertEquals(50, codec.getRewards().get(0).getWeight());
+        assertNull(codec.getHologram());
+    }
+
+    @Test
+    void testEmptyDocumentReadsAsNull() {
+        CrateConfigCodec codec = new CrateConfigCodec();
+        assertNull(codec.fromJson(new byte[0]));
+        assertNull(codec.fromJson("null".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void testUnknownFieldIsReported() {
+        byte[] json = "{\"id\":\"a\",\"future\":1}".getBytes(StandardCharsets.UTF_8);
+        assertThrows(CrateConfigCodec.UnknownFieldException.class, () -> new CrateConfigCodec().fromJson(json));
+    }
+
+    @Test
+    void testMalformedDocumentThrows() {
+        CrateConfigCodec codec = new CrateConfigCodec();
+        assertThrows(JsonParseException.class, () -> codec.fromJson("{\"id\":".getBytes(StandardCharsets.UTF_8)));
+        assertThrows(JsonParseException.class, () -> codec.fromJson("[1]".getBytes(StandardCharsets.UTF_8)));
+        assertThrows(JsonParseException.class, () -> codec.fromJson("{} {}".getBytes(StandardCharsets.UTF_8)));
+    }
+}
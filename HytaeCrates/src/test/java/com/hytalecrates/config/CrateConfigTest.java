@@ -0,0 +1,63 @@
+package com.hytalecrates.config;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for crate config copies used by in-place crate edits.
+ */
+class CrateConfigTest {
+
+    private static CrateConfig sampleCrate() {
+        CrateConfig config = new CrateConfig();
+        config.setId("vote");
+        config.setDisplayName("&bVote");
+        config.setKeyId("vote_key");
+        ItemConfig keyItem = new ItemConfig("STICK", 1, "&bKey");
+        keyItem.setLore(new ArrayList<>(List.of("&7Line")));
+        keyItem.getEnchantments().put("unbreaking", 1);
+        config.setKeyItem(keyItem);
+        config.setRewards(new ArrayList<>(List.of(new RewardConfig(new ItemConfig("DIAMOND", 2, "&bGems"), "RARE", 10, 10.0))));
+        config.getHologram().setLines(new ArrayList<>(List.of("&bVote")));
+        return config;
+    }
+
+    @Test
+    void testCopyIsEqualButIndependent() {
+        Gson gson = new Gson();
+        CrateConfig original = sampleCrate();
+        String before = gson.toJson(original);
+
+        CrateConfig copy = original.copy();
+        assertEquals(before, gson.toJson(copy));
+
+        copy.setDisplayName("&cEdited");
+        copy.getKeyItem().setMaterial("BONE");
+        copy.getKeyItem().getLore().add("&7More");
+        copy.getKeyItem().getEnchantments().put("mending", 1);
+        copy.getRewards().get(0).setWeight(99);
+        copy.getRewards().get(0).getItem().setAmount(64);
+        copy.getRewards().add(new RewardConfig());
+        copy.getHologram().getLines().clear();
+
+        assertEquals(before, gson.toJson(original));
+    }
+
+    @Test
+    void testCopyKeepsNulls() {
+        CrateConfig config = new CrateConfig();
+        config.setKeyItem(null);
+        config.setRewards(null);
+        config.setHologram(null);
+
+        CrateConfig copy = config.copy();
+        assertNull(copy.getKeyItem());
+        assertNull(copy.getHologram());
+        assertTrue(copy.getRewards().isEmpty());
+    }
+}
@@ -0,0 +1,49 @@
+package com.hytalecrates.crate;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the crate chunk presence filter.
+ */
+class CrateChunkFilterTest {
+
+    @Test
+    void testWholeChunkColumnMatches() {
+        CrateChunkFilter filter = new CrateChunkFilter();
+        filter.add(40, -70);
+
+        // Chunk (1, -3) spans x 32..63 and z -96..-65
+        assertTrue(filter.mightContain(32, -96));
+        assertTrue(filter.mightContain(63, -65));
+        assertFalse(filter.mightContain(64, -70));
+        assertFalse(filter.mightContain(40, -64));
+    }
+
+    @Test
+    void testCountsSurviveSingleRemoval() {
+        CrateChunkFilter filter = new CrateChunkFilter();
+        filter.add(1, 1);
+        filter.add(2, 2);
+
+        filter.remove(1, 1);
+        assertTrue(filter.mightContain(0, 0));
+
+        filter.remove(2, 2);
+        assertFalse(filter.mightContain(0, 0));
+
+        // Extra removals never underflow into a stuck state
+        filter.remove(2, 2);
+        filter.add(3, 3);
+        assertTrue(filter.mightContain(0, 0));
+    }
+
+    @Test
+    void testClear() {
+        CrateChunkFilter filter = new CrateChunkFilter();
+        filter.add(100, 100);
+        filter.clear();
+        assertFalse(filter.mightContain(100, 100));
+    }
+}
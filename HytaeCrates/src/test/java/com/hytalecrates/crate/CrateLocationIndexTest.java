@@ -0,0 +1,137 @@
+package com.hytalecrates.crate;
+
+import com.hytalecrates.util.LongIntHashMap;
+import com.hytalecrates.util.LongIntMap;
+import com.hytalecrates.util.OffHeapLongIntMap;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the packed crate location index.
+ */
+class CrateLocationIndexTest {
+
+    @Test
+    void testBlockKeyRoundTrip() {
+        int[][] positions = {{0, 0, 0}, {-1, -1, -1}, {33554431, 2047, -33554432}, {-12345, 64, 98765}};
+        for (int[] pos : positions) {
+            long key = BlockKey.pack(pos[0], pos[1], pos[2]);
+            assertEquals(pos[0], BlockKey.unpackX(key));
+            assertEquals(pos[1], BlockKey.unpackY(key));
+            assertEquals(pos[2], BlockKey.unpackZ(key));
+        }
+    }
+
+    @Test
+    void testBlockKeyVerticalNeighbours() {
+        long key = BlockKey.pack(-5, 0, 7);
+        assertEquals(BlockKey.pack(-5, 1, 7), BlockKey.above(key));
+        assertEquals(BlockKey.pack(-5, -1, 7), BlockKey.below(key));
+    }
+
+    @Test
+    void testVerticalProbe() {
+        CrateLocationIndex index = new CrateLocationIndex();
+        index.put(0, 10, 64, -3, 2);
+
+        assertEquals(2, index.get(0, 10, 64, -3));
+        assertEquals(CrateLocationIndex.NONE, index.get(0, 10, 65, -3));
+        assertEquals(2, index.findVertical(0, 10, 65, -3));
+        assertEquals(2, index.findVertical(0, 10, 63, -3));
+        assertEquals(CrateLocationIndex.NONE, index.findVertical(0, 10, 66, -3));
+        assertEquals(CrateLocationIndex.NONE, index.findVertical(1, 10, 64, -3));
+        assertEquals(CrateLocationIndex.NONE, index.findVertical(-1, 10, 64, -3));
+    }
+
+    @Test
+    void testPutReplaceRemove() {
+        CrateLocationIndex index = new CrateLocationIndex();
+        assertEquals(CrateLocationIndex.NONE, index.put(3, 1, 2, 3, 0));
+        assertEquals(0, index.put(3, 1, 2, 3, 5));
+        assertEquals(1, index.size());
+
+        assertEquals(5, index.remove(3, 1, 2, 3));
+        assertEquals(CrateLocationIndex.NONE, index.remove(3, 1, 2, 3));
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void testRemoveWorldLeavesOthers() {
+        CrateLocationIndex index = new CrateLocationIndex();
+        index.put(0, 1, 2, 3, 0);
+        index.put(0, 4, 5, 6, 1);
+        index.put(1, 1, 2, 3, 2);
+
+        CrateLocationIndex copy = new CrateLocationIndex(index);
+        assertEquals(2, copy.removeWorld(0));
+        assertEquals(0, copy.removeWorld(0));
+        assertEquals(0, copy.removeWorld(7));
+        assertEquals(1, copy.size());
+        assertEquals(CrateLocationIndex.NONE, copy.get(0, 1, 2, 3));
+        assertEquals(2, copy.get(1, 1, 2, 3));
+
+        assertEquals(3, index.size());
+        assertEquals(1, index.get(0, 4, 5, 6));
+    }
+
+    @Test
+    void testOffHeapIndexCopiesOnWrite() {
+        CrateLocationIndex index = CrateLocationIndex.offHeap();
+        for (int i = 0; i < 1_000; i++) {
+            index.put(0, i, 64, -i, i % 7);
+        }
+
+        CrateLocationIndex copy = new CrateLocationIndex(index);
+        assertEquals(3, copy.remove(0, 10, 64, -10));
+        copy.put(1, 5, 5, 5, 2);
+
+        assertEquals(3, index.findVertical(0, 10, 65, -10));
+        assertEquals(CrateLocationIndex.NONE, copy.get(0, 10, 64, -10));
+        assertEquals(2, copy.get(1, 5, 5, 5));
+        assertEquals(1_000, index.size());
+        assertEquals(1_000, copy.size());
+    }
+
+    @Test
+    void testHashMapMatchesReference() {
+        assertMatchesReference(new LongIntHashMap());
+    }
+
+    @Test
+    void testOffHeapMapMatchesReference() {
+        OffHeapLongIntMap map = new OffHeapLongIntMap();
+        assertMatchesReference(map);
+
+        OffHeapLongIntMap copy = map.copy();
+        copy.clear();
+        assertTrue(copy.isEmpty());
+        assertFalse(map.isEmpty());
+    }
+
+    private static void assertMatchesReference(LongIntMap map) {
+        Map<Long, Integer> reference = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 50_000; i++) {
+            long key = random.nextInt(2_000) - 1_000;
+            if (random.nextInt(3) == 0) {
+                Integer expected = reference.remove(key);
+                assertEquals(expected == null ? -1 : expected, map.remove(key));
+            } else {
+                int value = random.nextInt(100);
+                Integer expected = reference.put(key, value);
+                assertEquals(expected == null ? -1 : expected, map.put(key, value));
+            }
+        }
+
+        assertEquals(reference.size(), map.size());
+        for (long key = -1_000; key < 1_000; key++) {
+            assertEquals(reference.getOrDefault(key, -1), map.get(key));
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.hytalecrates.crate;
+
+import com.hytalecrates.config.CrateConfig;
+import com.hytalecrates.util.IdInterner;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the copy-on-write crate registry snapshot.
+ */
+class CrateRegistrySnapshotTest {
+
+    private final IdInterner worldIds = new IdInterner();
+    private final IdInterner crateIds = new IdInterner();
+
+    private static Crate createCrate(String id) {
+        CrateConfig config = new CrateConfig();
+        config.setId(id);
+        config.setDisplayName(id);
+        config.setKeyId(id + "_key");
+        return new Crate(config);
+    }
+
+    private CrateRegistrySnapshot twoCrates() {
+        CrateRegistrySnapshot.Builder builder = CrateRegistrySnapshot.builder(worldIds, crateIds);
+        builder.putCrate(createCrate("vote"));
+        builder.putCrate(createCrate("rare"));
+        builder.putLocation("vote", new CrateLocation("world", 0, 64, 0));
+        builder.putLocation("rare", new CrateLocation("nether", 5, 10, 5));
+        return builder.build();
+    }
+
+    @Test
+    void testLookupsAndKeys() {
+        CrateRegistrySnapshot snapshot = twoCrates();
+
+        assertEquals("vote", snapshot.findCrateAt("world", 0, 64, 0).getId());
+        assertEquals("rare", snapshot.findCrateNear("nether", 5, 11, 5).getId());
+        assertNull(snapshot.findCrateAt("nether", 0, 64, 0));
+        assertNull(snapshot.findCrateAt("unknown", 0, 64, 0));
+        assertEquals("rare", snapshot.getKey("rare_key").getCrateId());
+        assertEquals("vote_key", snapshot.getKeyForCrate("vote").getKeyId());
+        assertEquals(2, snapshot.getTotalLocations());
+    }
+
+    @Test
+    void testEditsNeverTouchThePublishedSnapshot() {
+        CrateRegistrySnapshot base = twoCrates();
+
+        CrateRegistrySnapshot.Builder builder = base.toBuilder();
+        assertEquals("vote", builder.putLocation("rare", new CrateLocation("world", 0, 64, 0)));
+        builder.putLocation("rare", new CrateLocation("world", 1, 64, 1));
+        CrateRegistrySnapshot next = builder.build();
+
+        assertEquals("vote", base.findCrateAt("world", 0, 64, 0).getId());
+        assertNull(base.findCrateAt("world", 1, 64, 1));
+        assertEquals(1, base.getLocations("rare").size());
+
+        assertEquals("rare", next.findCrateAt("world", 0, 64, 0).getId());
+        assertTrue(next.getLocations("vote").isEmpty());
+        assertEquals(3, next.getLocations("rare").size());
+        assertTrue(next.getGeneration() > base.getGeneration());
+    }
+
+    @Test
+    void testRemoveCrateDropsLocationsAndKey() {
+        CrateRegistrySnapshot base = twoCrates();
+
+        CrateRegistrySnapshot.Builder builder = base.toBuilder();
+        assertNotNull(builder.removeCrate("rare"));
+        CrateRegistrySnapshot next = builder.build();
+
+        assertNull(next.getCrate("rare"));
+        assertNull(next.getKey("rare_key"));
+        assertNull(next.findCrateAt("nether", 5, 10, 5));
+        assertEquals(1, next.getTotalLocations());
+        assertNotNull(base.findCrateAt("nether", 5, 10, 5));
+    }
+
+    @Test
+    void testRemoveWorldEvictsOnlyItsPlacements() {
+        CrateRegistrySnapshot base = twoCrates();
+
+        CrateRegistrySnapshot.Builder builder = base.toBuilder();
+        assertEquals(1, builder.removeWorld("nether"));
+        assertEquals(0, builder.removeWorld("unknown"));
+        CrateRegistrySnapshot next = builder.build();
+
+        assertNotNull(next.getCrate("rare"));
+        assertTrue(next.getLocations("rare").isEmpty());
+        assertNull(next.findCrateAt("nether", 5, 10, 5));
+        assertEquals("vote", next.findCrateAt("world", 0, 64, 0).getId());
+        assertEquals(1, next.getPlacementsInWorld("world").size());
+        assertEquals("rare", base.getPlacementsInWorld("nether").get(new CrateLocation("nether", 5, 10, 5)));
+    }
+}
@@ -0,0 +1,79 @@
+package com.hytalecrates.crate;
+
+import com.hytalecrates.util.IdInterner;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for per-crate placement sets.
+ */
+class PlacementSetTest {
+
+    private final IdInterner worldIds = new IdInterner();
+
+    private PlacementSet placements(int perWorld, String... worlds) {
+        PlacementSet set = new PlacementSet(worldIds);
+        for (String world : worlds) {
+            int worldId = worldIds.intern(world);
+            for (int i = 0; i < perWorld; i++) {
+                set.add(worldId, BlockKey.pack(i, 64, -i));
+            }
+        }
+        return set;
+    }
+
+    @Test
+    void testAddRemoveContains() {
+        PlacementSet set = new PlacementSet(worldIds);
+        int world = worldIds.intern("world");
+
+        assertTrue(set.add(world, BlockKey.pack(0, 0, 0)));
+        assertFalse(set.add(world, BlockKey.pack(0, 0, 0)));
+        assertTrue(set.add(world, BlockKey.pack(1, 2, 3)));
+        assertTrue(set.contains(new CrateLocation("world", 0, 0, 0)));
+        assertFalse(set.contains(new CrateLocation("nether", 0, 0, 0)));
+        assertEquals(2, set.size());
+
+        assertTrue(set.remove(world, BlockKey.pack(0, 0, 0)));
+        assertFalse(set.remove(world, BlockKey.pack(0, 0, 0)));
+        assertFalse(set.contains(new CrateLocation("world", 0, 0, 0)));
+        assertEquals(1, set.size());
+    }
+
+    @Test
+    void testPagesCoverEveryPlacementOnce() {
+        PlacementSet set = placements(25, "world", "nether", "end");
+        Set<CrateLocation> seen = new HashSet<>();
+
+        for (int offset = 0; offset < set.size(); offset += 10) {
+            List<CrateLocation> page = set.page(offset, 10);
+            assertEquals(Math.min(10, set.size() - offset), page.size());
+            for (CrateLocation location : page) {
+                assertTrue(seen.add(location), "Duplicate " + location);
+                assertTrue(set.contains(location));
+            }
+        }
+        assertEquals(75, seen.size());
+        assertTrue(set.page(75, 10).isEmpty());
+    }
+
+    @Test
+    void testCopyOnWriteLeavesSourceUntouched() {
+        PlacementSet base = placements(5, "world", "nether");
+        PlacementSet copy = new PlacementSet(base);
+
+        copy.remove(worldIds.find("world"), BlockKey.pack(0, 64, 0));
+        assertEquals(5, copy.removeWorld(worldIds.find("nether")));
+
+        assertEquals(4, copy.size());
+        assertEquals(0, copy.sizeInWorld("nether"));
+        assertEquals(10, base.size());
+        assertEquals(5, base.sizeInWorld("nether"));
+        assertTrue(base.contains(new CrateLocation("world", 0, 64, 0)));
+    }
+}
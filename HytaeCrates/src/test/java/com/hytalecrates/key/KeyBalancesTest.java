@@ -0,0 +1,94 @@
+package com.hytalecrates.key;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for virtual key balances.
+ */
+class KeyBalancesTest {
+
+    private final KeyBalances balances = new KeyBalances();
+    private final UUID player = UUID.randomUUID();
+
+    @Test
+    void testDepositAndWithdraw() {
+        assertEquals(3, balances.deposit(player, "vote_key", 3));
+        assertTrue(balances.withdraw(player, "vote_key", 2));
+        assertEquals(1, balances.get(player, "vote_key"));
+        assertEquals(0, balances.get(player, "rare_key"));
+    }
+
+    @Test
+    void testWithdrawNeedsWholeAmount() {
+        balances.deposit(player, "vote_key", 2);
+
+        assertFalse(balances.withdraw(player, "vote_key", 3));
+        assertEquals(2, balances.get(player, "vote_key"));
+        assertFalse(balances.withdraw(UUID.randomUUID(), "vote_key", 1));
+    }
+
+    @Test
+    void testEmptyBalanceIsRemoved() {
+        balances.deposit(player, "vote_key", 1);
+        balances.deposit(player, "rare_key", 4);
+        balances.withdraw(player, "vote_key", 1);
+
+        assertEquals(List.of("rare_key"), new ArrayList<>(balances.getAll(player).keySet()));
+    }
+
+    @Test
+    void testOverflowLeavesBalanceUnchanged() {
+        balances.deposit(player, "vote_key", Integer.MAX_VALUE - 1);
+
+        assertThrows(ArithmeticException.class, () -> balances.deposit(player, "vote_key", 2));
+        assertEquals(Integer.MAX_VALUE - 1, balances.get(player, "vote_key"));
+    }
+
+    @Test
+    void testListenerSeesChangesButNotRestores() {
+        AtomicInteger changes = new AtomicInteger();
+        balances.setListener((playerId, keyId) -> changes.incrementAndGet());
+
+        balances.restore(player, "vote_key", 5);
+        balances.deposit(player, "vote_key", 1);
+        balances.withdraw(player, "vote_key", 10);
+        balances.withdraw(player, "vote_key", 6);
+
+        assertEquals(2, changes.get());
+        assertEquals(0, balances.get(player, "vote_key"));
+    }
+
+    @Test
+    void testConcurrentWithdrawalsNeverOverspend() throws Exception {
+        balances.deposit(player, "vote_key", 1000);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        AtomicInteger taken = new AtomicInteger();
+        List<Future<?>> tasks = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            tasks.add(pool.submit(() -> {
+                for (int i = 0; i < 200; i++) {
+                    if (balances.withdraw(player, "vote_key", 1)) {
+                        taken.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Future<?> task : tasks) {
+            task.get();
+        }
+        pool.shutdown();
+
+        assertEquals(1000, taken.get());
+        assertEquals(0, balances.get(player, "vote_key"));
+    }
+}
@@ -0,0 +1,108 @@
+package com.hytalecrates.mail;
+
+import com.hytalecrates.storage.IoExecutor;
+import com.hytalecrates.storage.StorageLog;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the durable per-player mailbox.
+ */
+class MailboxTest {
+
+    private static final UUID PLAYER = new UUID(7, 7);
+
+    @TempDir
+    Path dir;
+
+    /**
+     * Sends mail through a fresh executor and waits until every file is written.
+     */
+    private void sendAll(MailItem... mail) {
+        IoExecutor executor = new IoExecutor();
+        Mailbox mailbox = new Mailbox(StorageLog.NONE, executor, null, dir);
+        assertEquals(0, mailbox.load());
+        for (MailItem item : mail) {
+            mailbox.send(PLAYER, item);
+        }
+        assertTrue(executor.shutdown(5, TimeUnit.SECONDS));
+    }
+
+    private List<MailItem> reload() {
+        IoExecutor executor = new IoExecutor();
+        try {
+            Mailbox mailbox = new Mailbox(StorageLog.NONE, executor, null, dir);
+            mailbox.load();
+            return mailbox.getMail(PLAYER);
+        } finally {
+            executor.shutdown(5, TimeUnit.SECONDS);
+        }
+    }
+
+    private static void assertMail(MailItem.Kind kind, String id, int amount, MailItem mail) {
+        assertEquals(kind, mail.getKind());
+        assertEquals(id, mail.getId());
+        assertEquals(amount, mail.getAmount());
+    }
+
+    @Test
+    void testSentMailIsMergedOnReload() {
+        sendAll(MailItem.key("vote_key", 2),
+                MailItem.item("Ingredient_Bar_Gold", 5),
+                MailItem.key("vote_key", 3));
+
+        List<MailItem> mail = reload();
+        assertEquals(2, mail.size());
+        assertMail(MailItem.Kind.KEY, "vote_key", 5, mail.get(0));
+        assertMail(MailItem.Kind.ITEM, "Ingredient_Bar_Gold", 5, mail.get(1));
+    }
+
+    @Test
+    void testTornAndCorruptRecordsAreDiscarded() throws IOException {
+        sendAll(MailItem.key("vote_key", 2), MailItem.key("vote_key", 3));
+        Path file = dir.resolve(PLAYER + ".mail");
+        byte[] sent = Files.readAllBytes(file);
+
+        // A record cut off mid-append
+        Files.write(file, new byte[]{0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+        List<MailItem> mail = reload();
+        assertEquals(1, mail.size());
+        assertMail(MailItem.Kind.KEY, "vote_key", 5, mail.get(0));
+
+        // A flipped byte in the last record's payload fails its checksum
+        sent[sent.length - 1] ^= 0x55;
+        Files.write(file, sent);
+        mail = reload();
+        assertEquals(1, mail.size());
+        assertMail(MailItem.Kind.KEY, "vote_key", 2, mail.get(0));
+    }
+
+    @Test
+    void testMailSentAfterTornReloadSurvives() throws IOException {
+        sendAll(MailItem.key("vote_key", 2));
+        Files.write(dir.resolve(PLAYER + ".mail"), new byte[]{0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        // Loading rewrites the torn file, so the new mail is not appended after the garbage
+        IoExecutor executor = new IoExecutor();
+        Mailbox mailbox = new Mailbox(StorageLog.NONE, executor, null, dir);
+        assertEquals(1, mailbox.load());
+        mailbox.send(PLAYER, MailItem.item("Ingredient_Bar_Gold", 4));
+        mailbox.send(PLAYER, MailItem.key("vote_key", 1));
+        assertTrue(executor.shutdown(5, TimeUnit.SECONDS));
+
+        List<MailItem> mail = reload();
+        assertEquals(2, mail.size());
+        assertMail(MailItem.Kind.KEY, "vote_key", 3, mail.get(0));
+        assertMail(MailItem.Kind.ITEM, "Ingredient_Bar_Gold", 4, mail.get(1));
+    }
+}
@@ -0,0 +1,79 @@
+package com.hytalecrates.reward;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the AliasTable sampler.
+ */
+class AliasTableTest {
+
+    @Test
+    void testOutcomeProbabilitiesMatchWeights() {
+        int[] weights = {50, 25, 15, 7, 3};
+        AliasTable table = AliasTable.build(weights);
+
+        assertEquals(5, table.size());
+        for (int i = 0; i < weights.length; i++) {
+            assertEquals(weights[i] / 100.0, table.outcomeProbability(i), 1e-12);
+        }
+    }
+
+    @Test
+    void testZeroWeightIsNeverSampled() {
+        AliasTable table = AliasTable.build(new int[]{10, 0, 10});
+        assertEquals(0.0, table.outcomeProbability(1), 1e-12);
+
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < 10_000; i++) {
+            assertNotEquals(1, table.sample(random));
+        }
+    }
+
+    @Test
+    void testAllZeroWeightsFallBackToUniform() {
+        AliasTable table = AliasTable.build(new int[]{0, 0, 0, 0});
+        for (int i = 0; i < 4; i++) {
+            assertEquals(0.25, table.outcomeProbability(i), 1e-12);
+        }
+    }
+
+    @Test
+    void testSingleOutcome() {
+        AliasTable table = AliasTable.build(new int[]{7});
+        SplittableRandom random = new SplittableRandom(1);
+        assertEquals(0, table.sample(random));
+        assertEquals(1.0, table.outcomeProbability(0), 1e-12);
+    }
+
+    @Test
+    void testEmptyWeightsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> AliasTable.build(new int[0]));
+    }
+
+    @Test
+    void testRestoredTableMatchesOriginal() {
+        AliasTable original = AliasTable.build(new int[]{40, 30, 20, 9, 1});
+        double[] probability = new double[original.size()];
+        int[] alias = new int[original.size()];
+        for (int i = 0; i < original.size(); i++) {
+            probability[i] = original.getColumnProbability(i);
+            alias[i] = original.getAlias(i);
+        }
+
+        AliasTable restored = AliasTable.of(probability, alias);
+        for (int i = 0; i < original.size(); i++) {
+            assertEquals(original.outcomeProbability(i), restored.outcomeProbability(i), 1e-15);
+        }
+    }
+
+    @Test
+    void testRestoreRejectsInvalidColumns() {
+        assertThrows(IllegalArgumentException.class, () -> AliasTable.of(new double[0], new int[0]));
+        assertThrows(IllegalArgumentException.class, () -> AliasTable.of(new double[]{1.0}, new int[]{1}));
+        assertThrows(IllegalArgumentException.class, () -> AliasTable.of(new double[]{1.0, 0.5}, new int[]{0}));
+    }
+}
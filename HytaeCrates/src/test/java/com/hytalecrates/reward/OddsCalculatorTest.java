@@ -0,0 +1,63 @@
+package com.hytalecrates.reward;
+
+import com.hytalecrates.crate.Crate;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the OddsCalculator.
+ */
+class OddsCalculatorTest {
+
+    // The Diamond's configured chance (50%) disagrees with its weight (10%)
+    private static Crate createCrate() {
+        return TestCrates.ironGoldDiamond(60, 30, 10, 50.0);
+    }
+
+    @Test
+    void testPerRewardAndPerRarityProbabilities() {
+        OddsReport report = OddsCalculator.calculate(createCrate(), 100);
+
+        assertEquals(0.6, report.getRewards().get(0).getProbability(), 1e-12);
+        assertEquals(0.1, report.getRewards().get(2).getProbability(), 1e-12);
+        assertEquals(0.9, report.getRarities().get(Rarity.COMMON).getProbability(), 1e-12);
+        assertEquals(0.1, report.getRarities().get(Rarity.LEGENDARY).getProbability(), 1e-12);
+        assertFalse(report.getRarities().containsKey(Rarity.EPIC));
+    }
+
+    @Test
+    void testExpectedKeysAndIntervals() {
+        OddsReport.Entry diamond = OddsCalculator.calculate(createCrate(), 100).getRewards().get(2);
+
+        assertEquals(10.0, diamond.getExpectedKeys(), 1e-9);
+        assertEquals(10.0, diamond.getExpectedHits(), 1e-9);
+        // 10 ± 1.96 * 3
+        assertEquals(4, diamond.getIntervalLow());
+        assertEquals(16, diamond.getIntervalHigh());
+        assertEquals(1 - Math.pow(0.9, 100), diamond.getChanceOfAtLeastOne(), 1e-12);
+    }
+
+    @Test
+    void testChanceMismatchIsFlagged() {
+        OddsReport report = OddsCalculator.calculate(createCrate(), 1);
+
+        assertEquals(1, report.getChanceMismatches().size());
+        assertEquals("Diamond", report.getChanceMismatches().get(0).getLabel());
+    }
+
+    @Test
+    void testProbabilitiesMatchTheSampler() {
+        // A negative weight never hits, and an all-zero crate is uniform
+        for (Crate crate : new Crate[]{TestCrates.ironGoldDiamond(60, -30, 10), TestCrates.ironGoldDiamond(0, 0, 0)}) {
+            OddsReport report = OddsCalculator.calculate(crate, 1);
+            for (int i = 0; i < crate.getRewardCount(); i++) {
+                double sampled = crate.getSampler().outcomeProbability(i);
+                assertEquals(sampled, crate.getProbability(i), 1e-12);
+                assertEquals(sampled, report.getRewards().get(i).getProbability(), 1e-12);
+            }
+        }
+        assertEquals(70, TestCrates.ironGoldDiamond(60, -30, 10).getTotalWeight());
+        assertEquals(1.0 / 3, TestCrates.ironGoldDiamond(0, 0, 0).getProbability(0), 1e-12);
+    }
+}
@@ -0,0 +1,63 @@
+package com.hytalecrates.reward;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.random.RandomGenerator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the RandomSource.
+ */
+class RandomSourceTest {
+
+    @Test
+    void testFixedSeedIsReproducible() {
+        RandomGenerator a = RandomSource.create("L64X128MixRandom", 1234L).newStream();
+        RandomGenerator b = RandomSource.create("L64X128MixRandom", 1234L).newStream();
+        for (int i = 0; i < 100; i++) {
+            assertEquals(a.nextLong(), b.nextLong());
+        }
+    }
+
+    @Test
+    void testNonSplittableAlgorithmIsSeededFromRoot() {
+        RandomSource source = RandomSource.create("Xoshiro256PlusPlus", 99L);
+        RandomGenerator a = source.newStream();
+        RandomGenerator b = RandomSource.create("Xoshiro256PlusPlus", 99L).newStream();
+        assertEquals(a.nextLong(), b.nextLong());
+        assertEquals("Xoshiro256PlusPlus", source.getAlgorithm());
+    }
+
+    @Test
+    void testStreamsAreIndependent() {
+        RandomSource source = RandomSource.create(null, 7L);
+        assertNotEquals(source.newStream().nextLong(), source.newStream().nextLong());
+    }
+
+    @Test
+    void testCurrentIsPerThread() throws InterruptedException {
+        RandomSource source = RandomSource.create(null, null);
+        RandomGenerator mine = source.current();
+        assertSame(mine, source.current());
+
+        RandomGenerator[] other = new RandomGenerator[1];
+        Thread thread = new Thread(() -> other[0] = source.current());
+        thread.start();
+        thread.join();
+        assertNotSame(mine, other[0]);
+    }
+
+    @Test
+    void testMatches() {
+        RandomSource source = RandomSource.create(" ", 5L);
+        assertTrue(source.matches(null, 5L));
+        assertTrue(source.matches(RandomSource.DEFAULT_ALGORITHM, 5L));
+        assertFalse(source.matches(RandomSource.DEFAULT_ALGORITHM, null));
+    }
+
+    @Test
+    void testUnknownAlgorithmRejected() {
+        assertThrows(IllegalArgumentException.class, () -> RandomSource.create("NoSuchRandom", null));
+    }
+}
@@ -0,0 +1,53 @@
+package com.hytalecrates.reward;
+
+import com.hytalecrates.crate.Crate;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the parallel SimulationEngine.
+ */
+class SimulationEngineTest {
+
+    private static Crate createCrate() {
+        return TestCrates.ironGoldDiamond(75, 20, 5);
+    }
+
+    @Test
+    void testCountsAddUpAndMatchWeights() {
+        SimulationEngine engine = new SimulationEngine(new ForkJoinPool(4));
+        SimulationResult result = engine.simulate(createCrate(), 2_000_000, RandomSource.create(null, 42L), false);
+
+        long total = 0;
+        for (int i = 0; i < result.getRewardCount(); i++) {
+            total += result.getCount(i);
+        }
+        assertEquals(2_000_000, total);
+        assertTrue(result.getShards() > 1);
+        assertEquals(75.0, result.getPercentage(0), 0.5);
+        assertEquals(5.0, result.getPercentage(2), 0.5);
+        assertEquals(result.getCount(0) + result.getCount(1), result.getRarityCounts().get(Rarity.COMMON));
+        assertEquals(result.getCount(2), result.getRarityCounts().get(Rarity.LEGENDARY));
+    }
+
+    @Test
+    void testFixedSeedIsDeterministic() {
+        SimulationEngine engine = new SimulationEngine(new ForkJoinPool(4));
+        Crate crate = createCrate();
+        SimulationResult a = engine.simulate(crate, 500_000, RandomSource.create(null, 7L), false);
+        SimulationResult b = engine.simulate(crate, 500_000, RandomSource.create(null, 7L), false);
+        for (int i = 0; i < a.getRewardCount(); i++) {
+            assertEquals(a.getCount(i), b.getCount(i));
+        }
+    }
+
+    @Test
+    void testCumulativeSamplerMatchesWeights() {
+        SimulationEngine engine = new SimulationEngine(new ForkJoinPool(2));
+        SimulationResult result = engine.simulate(createCrate(), 1_000_000, RandomSource.create(null, 3L), true);
+        assertEquals(20.0, result.getPercentage(1), 0.5);
+    }
+}
@@ -0,0 +1,40 @@
+package com.hytalecrates.reward;
+
+import com.hytalecrates.config.CrateConfig;
+import com.hytalecrates.config.ItemConfig;
+import com.hytalecrates.config.RewardConfig;
+import com.hytalecrates.crate.Crate;
+
+import java.util.List;
+
+/**
+ * Crate fixtures shared by the reward tests.
+ */
+final class TestCrates {
+
+    private TestCrates() {}
+
+    /**
+     * Creates a crate of two common rewards (Iron, Gold) and one legendary (Diamond), each
+     * configured with a display chance equal to its weight.
+     */
+    static Crate ironGoldDiamond(int ironWeight, int goldWeight, int diamondWeight) {
+        return ironGoldDiamond(ironWeight, goldWeight, diamondWeight, diamondWeight);
+    }
+
+    /**
+     * Creates the Iron/Gold/Diamond crate with a separate display chance for Diamond.
+     */
+    static Crate ironGoldDiamond(int ironWeight, int goldWeight, int diamondWeight, double diamondChance) {
+        CrateConfig config = new CrateConfig();
+        config.setId("test_crate");
+        config.setDisplayName("&bTest Crate");
+        config.setKeyId("test_key");
+        config.setRewards(List.of(
+                new RewardConfig(new ItemConfig("IRON_INGOT", 1, "Iron"), "COMMON", ironWeight, ironWeight),
+                new RewardConfig(new ItemConfig("GOLD_INGOT", 1, "Gold"), "COMMON", goldWeight, goldWeight),
+                new RewardConfig(new ItemConfig("DIAMOND", 1, "Diamond"), "LEGENDARY", diamondWeight, diamondChance)
+        ));
+        return new Crate(config);
+    }
+}
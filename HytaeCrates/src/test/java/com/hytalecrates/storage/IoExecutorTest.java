@@ -0,0 +1,145 @@
+package com.hytalecrates.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the single-writer I/O executor.
+ */
+class IoExecutorTest {
+
+    @TempDir
+    Path dir;
+
+    private final IoExecutor executor = new IoExecutor();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown(5, TimeUnit.SECONDS);
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void testRepeatedWritesLandLastContent() throws IOException {
+        Path file = dir.resolve("nested/locations.json");
+        List<CompletableFuture<Void>> writes = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            writes.add(executor.write(file, bytes("v" + i)));
+        }
+        for (CompletableFuture<Void> write : writes) {
+            IoExecutor.await(write);
+        }
+
+        assertEquals("v199", Files.readString(file));
+        assertFalse(Files.exists(dir.resolve("nested/locations.json.tmp")));
+        assertEquals(200, executor.getCompletedCount() + executor.getCoalescedCount());
+    }
+
+    @Test
+    void testDeleteAfterWrite() throws IOException {
+        Path file = dir.resolve("crate.json");
+        executor.write(file, bytes("{}"));
+        IoExecutor.await(executor.delete(file));
+
+        assertFalse(Files.exists(file));
+        IoExecutor.await(executor.delete(file));
+    }
+
+    @Test
+    void testUnchangedContentIsNotRewritten() throws IOException {
+        Path file = dir.resolve("world.json");
+        IoExecutor.await(executor.write(file, bytes("{\"a\":1}")));
+        IoExecutor.await(executor.write(file, bytes("{\"a\":1}")));
+
+        assertEquals(1, executor.getCompletedCount());
+        assertEquals(1, executor.getSkippedCount());
+
+        IoExecutor.await(executor.write(file, bytes("{\"a\":2}")));
+        assertEquals(2, executor.getCompletedCount());
+        assertEquals("{\"a\":2}", Files.readString(file));
+    }
+
+    @Test
+    void testContentAlreadyOnDiskIsNotRewritten() throws IOException {
+        // Written by a previous run, which this executor knows nothing about
+        Path file = dir.resolve("world.json");
+        Files.writeString(file, "{\"a\":1}");
+        IoExecutor.await(executor.write(file, bytes("{\"a\":1}")));
+        IoExecutor.await(executor.write(file, bytes("{\"a\":1}")));
+
+        assertEquals(0, executor.getCompletedCount());
+        assertEquals(2, executor.getSkippedCount());
+
+        IoExecutor.await(executor.write(file, bytes("{\"a\":2}")));
+        assertEquals(1, executor.getCompletedCount());
+        assertEquals("{\"a\":2}", Files.readString(file));
+    }
+
+    @Test
+    void testOutsideEditIsOverwritten() throws IOException {
+        Path file = dir.resolve("crate.json");
+        IoExecutor.await(executor.write(file, bytes("ours")));
+        Files.writeString(file, "edited by hand");
+        IoExecutor.await(executor.write(file, bytes("ours")));
+
+        assertEquals("ours", Files.readString(file));
+        assertEquals(0, executor.getSkippedCount());
+
+        Files.delete(file);
+        IoExecutor.await(executor.write(file, bytes("ours")));
+        assertEquals("ours", Files.readString(file));
+    }
+
+    @Test
+    void testAppendsExtendTheFile() throws IOException {
+        Path file = dir.resolve("player.mail");
+        IoExecutor.await(executor.write(file, bytes("head")));
+        executor.append(file, bytes("-a"));
+        IoExecutor.await(executor.append(file, bytes("-b")));
+
+        assertEquals("head-a-b", Files.readString(file));
+
+        // An append queued behind a delete starts the file over
+        executor.delete(file);
+        IoExecutor.await(executor.append(file, bytes("new")));
+        assertEquals("new", Files.readString(file));
+    }
+
+    @Test
+    void testFailureSurfacesAsIOException() throws IOException {
+        Path blocker = dir.resolve("blocker");
+        Files.writeString(blocker, "not a directory");
+
+        assertThrows(IOException.class, () -> IoExecutor.await(executor.write(blocker.resolve("a.json"), bytes("{}"))));
+    }
+
+    @Test
+    void testShutdownDrainsThenRunsInline() throws IOException {
+        Path first = dir.resolve("first.json");
+        Path late = dir.resolve("late.json");
+        CompletableFuture<Void> queued = executor.write(first, bytes("1"));
+
+        assertTrue(executor.shutdown(5, TimeUnit.SECONDS));
+        assertTrue(queued.isDone());
+        assertEquals("1", Files.readString(first));
+
+        CompletableFuture<Void> inline = executor.write(late, bytes("2"));
+        assertTrue(inline.isDone());
+        assertEquals("2", Files.readString(late));
+    }
+}
@@ -0,0 +1,136 @@
+package com.hytalecrates.storage;
+
+import com.hytalecrates.key.KeyBalances;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the write-behind key balance log.
+ */
+class KeyBalanceLogTest {
+
+    private static final UUID ALICE = new UUID(1, 1);
+    private static final UUID BOB = new UUID(2, 2);
+
+    @TempDir
+    Path dir;
+
+    private final IoExecutor executor = new IoExecutor();
+    private final List<KeyBalanceLog> opened = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        opened.forEach(KeyBalanceLog::close);
+        executor.shutdown(5, TimeUnit.SECONDS);
+    }
+
+    private KeyBalanceLog open(KeyBalanceLog log) {
+        opened.add(log);
+        return log;
+    }
+
+    private KeyBalanceLog log(KeyBalances balances) {
+        return open(new KeyBalanceLog(StorageLog.NONE, executor, balances,
+                dir.resolve("key-balances.log"), dir.resolve("key-balances.dat")));
+    }
+
+    private static void awaitLogged(KeyBalanceLog log) throws InterruptedException {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (log.getLogBytes() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(log.getLogBytes() > 0, "batch was not logged");
+    }
+
+    @Test
+    void testStartReplaysSnapshotThenLog() throws InterruptedException {
+        KeyBalances first = new KeyBalances();
+        KeyBalanceLog writer = log(first);
+        writer.start();
+        first.deposit(ALICE, "vote_key", 5);
+        first.deposit(BOB, "rare_key", 2);
+        writer.close();
+        assertTrue(Files.exists(dir.resolve("key-balances.dat")));
+
+        KeyBalances second = new KeyBalances();
+        KeyBalanceLog reopened = log(second);
+        assertEquals(2, reopened.start());
+        assertEquals(5, second.get(ALICE, "vote_key"));
+        second.deposit(ALICE, "vote_key", 1);
+        assertTrue(second.withdraw(BOB, "rare_key", 2));
+        awaitLogged(reopened);
+
+        // The log's absolute balances replace the snapshot's, and a zero removes one
+        KeyBalances replayed = new KeyBalances();
+        assertEquals(4, log(replayed).start());
+        assertEquals(6, replayed.get(ALICE, "vote_key"));
+        assertEquals(0, replayed.get(BOB, "rare_key"));
+        assertEquals(1, replayed.getPlayerCount());
+    }
+
+    @Test
+    void testTornAndCorruptTailIsDiscarded() throws IOException, InterruptedException {
+        Path file = dir.resolve("key-balances.log");
+        KeyBalances balances = new KeyBalances();
+        KeyBalanceLog writer = log(balances);
+        writer.start();
+        balances.deposit(ALICE, "vote_key", 3);
+        awaitLogged(writer);
+        byte[] logged = Files.readAllBytes(file);
+
+        // A record cut off mid-write
+        Files.write(file, new byte[]{0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+        KeyBalances replayed = new KeyBalances();
+        assertEquals(1, log(replayed).start());
+        assertEquals(3, replayed.get(ALICE, "vote_key"));
+        assertEquals(logged.length, Files.size(file));
+
+        // A flipped byte in the record's payload fails its checksum
+        logged[logged.length - 1] ^= 0x55;
+        Files.write(file, logged);
+        KeyBalances corrupt = new KeyBalances();
+        assertEquals(0, log(corrupt).start());
+        assertEquals(0, corrupt.get(ALICE, "vote_key"));
+    }
+
+    @Test
+    void testFailedBatchIsRetried() throws InterruptedException {
+        AtomicInteger failures = new AtomicInteger(1);
+        KeyBalances balances = new KeyBalances();
+        KeyBalanceLog writer = open(new KeyBalanceLog(StorageLog.NONE, executor, balances,
+                dir.resolve("key-balances.log"), dir.resolve("key-balances.dat")) {
+            @Override
+            void append(FileChannel channel, ByteBuffer buffer) throws IOException {
+                if (failures.getAndDecrement() > 0) {
+                    // Part of the batch reaches the file before the disk fills up
+                    channel.write(buffer.slice(0, 5));
+                    throw new IOException("disk full");
+                }
+                super.append(channel, buffer);
+            }
+        });
+        writer.start();
+        balances.deposit(ALICE, "vote_key", 3);
+        awaitLogged(writer);
+
+        // The partial batch was dropped, so the retried record follows the header
+        KeyBalances replayed = new KeyBalances();
+        assertEquals(1, log(replayed).start());
+        assertEquals(3, replayed.get(ALICE, "vote_key"));
+    }
+}
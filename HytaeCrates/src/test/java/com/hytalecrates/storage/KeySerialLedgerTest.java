@@ -0,0 +1,87 @@
+package com.hytalecrates.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the memory-mapped key serial ledger.
+ */
+class KeySerialLedgerTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testRangeCanBeSpentOnlyAsOftenAsIssued() throws IOException {
+        try (KeySerialLedger ledger = KeySerialLedger.open(dir.resolve("serials.bin"), 1000)) {
+            long start = ledger.allocate(3);
+            assertEquals(0, start);
+            assertEquals(3, ledger.allocate(5));
+
+            // Two copies of the same stack share the hint; the second gets the next free serial
+            assertEquals(start, ledger.claim(start, 3, start));
+            assertEquals(start + 1, ledger.claim(start, 3, start));
+            assertEquals(start + 2, ledger.claim(start, 3, start));
+            assertEquals(-1, ledger.claim(start, 3, start));
+            assertFalse(ledger.isSpent(3));
+
+            ledger.release(start + 1);
+            assertEquals(start + 1, ledger.claim(start, 3, start));
+            assertEquals(3, ledger.getSpent());
+        }
+    }
+
+    @Test
+    void testUnissuedRangeIsRejected() throws IOException {
+        try (KeySerialLedger ledger = KeySerialLedger.open(dir.resolve("serials.bin"), 1000)) {
+            ledger.allocate(2);
+            assertEquals(-1, ledger.claim(1, 2, 1));
+            assertEquals(-1, ledger.claim(500, 1, 500));
+
+            ledger.retire(1);
+            assertEquals(0, ledger.claim(0, 2, 1));
+            assertEquals(-1, ledger.claim(0, 2, 1));
+        }
+    }
+
+    @Test
+    void testFullLedgerAllocatesNothing() throws IOException {
+        try (KeySerialLedger ledger = KeySerialLedger.open(dir.resolve("serials.bin"), 100)) {
+            assertEquals(128, ledger.getCapacity());
+            assertEquals(0, ledger.allocate(120));
+            assertEquals(-1, ledger.allocate(9));
+            assertEquals(120, ledger.allocate(8));
+        }
+    }
+
+    @Test
+    void testReopenKeepsSpentSerialsAndCapacity() throws IOException {
+        Path file = dir.resolve("serials.bin");
+        try (KeySerialLedger ledger = KeySerialLedger.open(file, 4096)) {
+            ledger.allocate(100);
+            ledger.claim(0, 100, 70);
+        }
+
+        try (KeySerialLedger ledger = KeySerialLedger.open(file, 64)) {
+            assertEquals(4096, ledger.getCapacity());
+            assertEquals(100, ledger.getIssued());
+            assertTrue(ledger.isSpent(70));
+            assertEquals(71, ledger.claim(0, 100, 70));
+            assertEquals(100, ledger.allocate(1));
+        }
+    }
+
+    @Test
+    void testForeignFileIsRejected() throws IOException {
+        Path file = dir.resolve("serials.bin");
+        Files.writeString(file, "not a ledger, but long enough to hold a header of sixty-four bytes");
+
+        assertThrows(IOException.class, () -> KeySerialLedger.open(file, 64));
+    }
+}
@@ -0,0 +1,189 @@
+package com.hytalecrates.storage;
+
+import com.hytalecrates.crate.CrateLocation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the placement change journal.
+ */
+class LocationJournalTest {
+
+    private static final CrateLocation SPAWN = new CrateLocation("world", 0, 64, 0);
+    private static final CrateLocation HILL = new CrateLocation("world", 10, 70, -4);
+    private static final CrateLocation NETHER = new CrateLocation("nether", 1, 2, 3);
+
+    @TempDir
+    Path dir;
+
+    private final Map<CrateLocation, String> placements = new ConcurrentHashMap<>();
+    private final AtomicInteger snapshots = new AtomicInteger();
+    private final List<LocationJournal> opened = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        opened.forEach(LocationJournal::close);
+    }
+
+    private LocationJournal journal(LocationJournal.SnapshotWriter snapshotWriter) {
+        LocationJournal journal = new LocationJournal(StorageLog.NONE, dir.resolve("locations.journal"),
+                placements::get, "world"::equals, snapshotWriter);
+        opened.add(journal);
+        return journal;
+    }
+
+    private LocationJournal journal() {
+        return journal(snapshots::incrementAndGet);
+    }
+
+    /**
+     * Replays the journal file into a map of location to crate ID, null for a removal.
+     */
+    private Map<CrateLocation, String> replay(int expectedRecords) {
+        Map<CrateLocation, String> replayed = new LinkedHashMap<>();
+        LocationJournal reader = new LocationJournal(StorageLog.NONE, dir.resolve("locations.journal"),
+                location -> null, world -> true, () -> {});
+        assertEquals(expectedRecords, reader.replay(
+                (crateId, location) -> replayed.put(location, crateId),
+                location -> replayed.put(location, null)));
+        return replayed;
+    }
+
+    private void set(LocationJournal journal, CrateLocation location, String crateId) {
+        if (crateId != null) {
+            placements.put(location, crateId);
+        } else {
+            placements.remove(location);
+        }
+        journal.record(location);
+    }
+
+    @Test
+    void testRecordFlushReplayRoundTrip() throws IOException {
+        LocationJournal journal = journal();
+        journal.start();
+        set(journal, SPAWN, "vote");
+        set(journal, HILL, "rare");
+        set(journal, HILL, null);
+        // Not loaded: whoever unloaded it saved the world file
+        set(journal, NETHER, "vote");
+        journal.flush();
+
+        Map<CrateLocation, String> replayed = replay(2);
+        assertEquals("vote", replayed.get(SPAWN));
+        assertTrue(replayed.containsKey(HILL));
+        assertNull(replayed.get(HILL));
+        assertFalse(replayed.containsKey(NETHER));
+        assertTrue(journal.getJournalBytes() > 0);
+    }
+
+    @Test
+    void testTornAndCorruptTailIsTruncated() throws IOException {
+        Path file = dir.resolve("locations.journal");
+        LocationJournal journal = journal();
+        journal.start();
+        set(journal, SPAWN, "vote");
+        journal.flush();
+        long firstEnd = Files.size(file);
+        set(journal, HILL, "rare");
+        journal.flush();
+        byte[] twoRecords = Files.readAllBytes(file);
+
+        // A record cut off mid-write
+        Files.write(file, new byte[]{0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+        assertEquals(Map.of(SPAWN, "vote", HILL, "rare"), replay(2));
+
+        // A flipped byte in the second record's payload fails its checksum
+        byte[] corrupt = twoRecords.clone();
+        corrupt[corrupt.length - 1] ^= 0x55;
+        Files.write(file, corrupt);
+        assertEquals(Map.of(SPAWN, "vote"), replay(1));
+
+        // Starting truncates to the last valid record, so new records follow it
+        LocationJournal reopened = journal();
+        reopened.replay((crateId, location) -> {}, location -> {});
+        reopened.start();
+        assertEquals(firstEnd, Files.size(file));
+        set(reopened, NETHER, null);
+        set(reopened, HILL, "epic");
+        reopened.flush();
+        assertEquals(Map.of(SPAWN, "vote", HILL, "epic"), replay(2));
+    }
+
+    @Test
+    void testPartlyWrittenBatchIsCutOffBeforeRetry() throws IOException {
+        AtomicInteger failures = new AtomicInteger(1);
+        LocationJournal journal = new LocationJournal(StorageLog.NONE, dir.resolve("locations.journal"),
+                placements::get, "world"::equals, snapshots::incrementAndGet) {
+            @Override
+            void append(FileChannel channel, ByteBuffer buffer) throws IOException {
+                if (failures.getAndDecrement() > 0) {
+                    // Part of the batch reaches the file before the disk fills up
+                    channel.write(buffer.slice(0, 5));
+                    throw new IOException("disk full");
+                }
+                super.append(channel, buffer);
+            }
+        };
+        opened.add(journal);
+        journal.start();
+        set(journal, SPAWN, "vote");
+        try {
+            journal.flush();
+        } catch (IOException e) {
+            // Injected; the I/O thread may have hit it first
+        }
+        set(journal, HILL, "rare");
+        journal.flush();
+
+        assertTrue(failures.get() < 0);
+        assertEquals(Map.of(SPAWN, "vote", HILL, "rare"), replay(2));
+    }
+
+    @Test
+    void testCompactionTruncatesAfterSnapshot() throws IOException, InterruptedException {
+        LocationJournal journal = journal();
+        journal.start();
+        set(journal, SPAWN, "vote");
+        journal.flush();
+        assertTrue(journal.getJournalBytes() > 0);
+
+        journal.requestCompaction();
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (journal.getJournalBytes() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(0, journal.getJournalBytes());
+        assertEquals(1, snapshots.get());
+        assertTrue(replay(0).isEmpty());
+    }
+
+    @Test
+    void testFailedSnapshotKeepsJournal() throws IOException {
+        LocationJournal journal = journal(() -> {
+            throw new IOException("disk full");
+        });
+        journal.start();
+        set(journal, SPAWN, "vote");
+        journal.close();
+
+        assertEquals(Map.of(SPAWN, "vote"), replay(1));
+    }
+}